@@ -3,10 +3,12 @@ package org.trilgar.medimage.ssl.analytics;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.context.annotation.Import;
+import org.trilgar.medimage.ssl.messaging.config.CommonMessagingConfig;
 import org.trilgar.medimage.ssl.s3.config.CommonS3Config;
+import org.trilgar.medimage.ssl.tracing.config.CommonTracingConfig;
 
 @SpringBootApplication
-@Import(CommonS3Config.class)
+@Import({CommonS3Config.class, CommonMessagingConfig.class, CommonTracingConfig.class})
 public class AnalyticalServiceApplication {
     public static void main(String[] args) {
         SpringApplication.run(AnalyticalServiceApplication.class, args);
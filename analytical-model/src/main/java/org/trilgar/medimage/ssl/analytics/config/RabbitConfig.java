@@ -1,28 +1,44 @@
 package org.trilgar.medimage.ssl.analytics.config;
 
+import org.springframework.amqp.core.Declarables;
 import org.springframework.amqp.core.Queue;
-import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.trilgar.medimage.ssl.messaging.retry.RetryTopology;
 
 @Configuration
 public class RabbitConfig {
     public static final String ANALYSIS_INPUT_QUEUE = "analysis_queue";
 
+    /**
+     * Series analyses start while slices are still uploading and wait for them, so they get their own consumers.
+     */
+    public static final String SERIES_ANALYSIS_INPUT_QUEUE = "series_analysis_queue";
+
     public static final String RISK_OUTPUT_QUEUE = "risk_assessment_queue";
 
     @Bean
     public Queue riskOutputQueue() {
-        return new Queue(RISK_OUTPUT_QUEUE, true);
+        return RetryTopology.workQueue(RISK_OUTPUT_QUEUE);
     }
 
     @Bean
     public Queue analysisInputQueue() {
-        return new Queue(ANALYSIS_INPUT_QUEUE, true);
+        return RetryTopology.workQueue(ANALYSIS_INPUT_QUEUE);
+    }
+
+    @Bean
+    public Queue seriesAnalysisInputQueue() {
+        return RetryTopology.workQueue(SERIES_ANALYSIS_INPUT_QUEUE);
+    }
+
+    @Bean
+    public Declarables analysisRetryTopology(RetryTopology retryTopology) {
+        return retryTopology.declarablesFor(ANALYSIS_INPUT_QUEUE);
     }
 
     @Bean
-    public Jackson2JsonMessageConverter messageConverter() {
-        return new Jackson2JsonMessageConverter();
+    public Declarables seriesAnalysisRetryTopology(RetryTopology retryTopology) {
+        return retryTopology.declarablesFor(SERIES_ANALYSIS_INPUT_QUEUE);
     }
 }
@@ -1,45 +1,90 @@
 package org.trilgar.medimage.ssl.analytics.listener;
 
+import io.micrometer.observation.ObservationRegistry;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.amqp.rabbit.annotation.RabbitListener;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.stereotype.Service;
 import org.trilgar.medimage.ssl.analytics.config.RabbitConfig;
+import org.trilgar.medimage.ssl.analytics.scaling.AnalysisScalingSignals;
+import org.trilgar.medimage.ssl.analytics.series.SeriesSliceReader;
 import org.trilgar.medimage.ssl.analytics.service.MockAiModelService;
 import org.trilgar.medimage.ssl.analytics.service.api.AnalyticalService;
+import org.trilgar.medimage.ssl.messaging.dedup.MessageDeduplicator;
+import org.trilgar.medimage.ssl.metrics.PipelineObservations;
 import org.trilgar.medimage.ssl.model.ImageAnalysisRequest;
 import org.trilgar.medimage.ssl.model.RiskAssessmentResult;
 import org.trilgar.medimage.ssl.s3.api.S3StorageService;
 
+import java.time.Duration;
+
 @Service
 @Slf4j
 @RequiredArgsConstructor
 public class AnalysisListener {
+    private static final String LISTENER_ID = "analysisListener";
+    private static final String SERIES_LISTENER_ID = "seriesAnalysisListener";
+
     private final S3StorageService s3Service;
     private final AnalyticalService aiService;
     private final RabbitTemplate rabbitTemplate;
+    private final ObservationRegistry observationRegistry;
+    private final MessageDeduplicator deduplicator;
+    private final AnalysisScalingSignals scalingSignals;
+    private final SeriesSliceReader sliceReader;
 
-    @RabbitListener(queues = RabbitConfig.ANALYSIS_INPUT_QUEUE)
+    @RabbitListener(id = LISTENER_ID, queues = RabbitConfig.ANALYSIS_INPUT_QUEUE)
     public void processAnalysisRequest(ImageAnalysisRequest request) {
         log.info("Received task for Patient: {}", request.getPatientId());
+        deduplicator.process(LISTENER_ID, request.getRequestId(), () -> analyze(request));
+    }
+
+    /**
+     * Own consumers ({@code analytics.series.concurrency}), since a series analysis waits for slices that are
+     * still uploading.
+     */
+    @RabbitListener(id = SERIES_LISTENER_ID, queues = RabbitConfig.SERIES_ANALYSIS_INPUT_QUEUE,
+            concurrency = "${analytics.series.concurrency:2}-${analytics.series.concurrency:2}")
+    public void processSeriesAnalysisRequest(ImageAnalysisRequest request) {
+        log.info("Received series {} for Patient: {}", request.getSeriesId(), request.getPatientId());
+        deduplicator.process(SERIES_LISTENER_ID, request.getRequestId(), () -> publish(analyzeSeries(request)));
+    }
 
-        try {
-            byte[] imageData = s3Service.downloadImage(request.getS3ObjectKey());
+    private void analyze(ImageAnalysisRequest request) {
+        long start = System.nanoTime();
+        publish(request.getSeriesId() != null ? analyzeSeries(request) : analyzeImage(request));
+        scalingSignals.recordProcessed(Duration.ofNanos(System.nanoTime() - start));
+    }
 
-            RiskAssessmentResult result = aiService.analyze(
-                    request.getRequestId(),
-                    request.getPatientId(),
-                    request.getS3ObjectKey(),
-                    imageData
-            );
+    private void publish(RiskAssessmentResult result) {
+        rabbitTemplate.convertAndSend(RabbitConfig.RISK_OUTPUT_QUEUE, result);
+        log.info("Result sent to queue: {}", RabbitConfig.RISK_OUTPUT_QUEUE);
+    }
 
-            rabbitTemplate.convertAndSend(RabbitConfig.RISK_OUTPUT_QUEUE, result);
+    private RiskAssessmentResult analyzeImage(ImageAnalysisRequest request) {
+        byte[] imageData = s3Service.downloadImage(request.getS3ObjectKey());
 
-            log.info("Result sent to queue: {}", RabbitConfig.RISK_OUTPUT_QUEUE);
+        return PipelineObservations.observe(observationRegistry, "analysis.inference",
+                () -> aiService.analyze(
+                        request.getRequestId(),
+                        request.getPatientId(),
+                        request.getS3ObjectKey(),
+                        imageData
+                ));
+    }
 
-        } catch (Exception e) {
-            log.error("Failed to process analysis for request {}", request.getRequestId(), e);
-        }
+    /**
+     * Starts as soon as radiology stored the first slice; the inference includes waiting for slices still uploading.
+     */
+    private RiskAssessmentResult analyzeSeries(ImageAnalysisRequest request) {
+        return PipelineObservations.observe(observationRegistry, "analysis.inference",
+                () -> aiService.analyzeSeries(
+                        request.getRequestId(),
+                        request.getPatientId(),
+                        request.getSeriesId(),
+                        request.getS3ObjectKey(),
+                        sliceReader.slices(request.getSeriesId(), request.getS3ObjectKey())
+                ));
     }
 }
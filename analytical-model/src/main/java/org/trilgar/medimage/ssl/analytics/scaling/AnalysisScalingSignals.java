@@ -0,0 +1,201 @@
+package org.trilgar.medimage.ssl.analytics.scaling;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.core.AmqpAdmin;
+import org.springframework.amqp.core.QueueInformation;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.trilgar.medimage.ssl.analytics.config.RabbitConfig;
+
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.DoubleAdder;
+
+/**
+ * Turns the state of {@code analysis_queue} and this pod's inference times into scaling signals, polled every
+ * {@code pollInterval}:
+ * <ul>
+ *     <li>{@code analysis.service.time}: smoothed time one consumer needs per message</li>
+ *     <li>{@code analysis.throughput}: messages this pod finished per second</li>
+ *     <li>{@code analysis.arrival.rate}: messages per second published to the queue, from the change in depth
+ *     plus what all consumers drain</li>
+ *     <li>{@code analysis.drain.time}: time until the current backlog is gone at the current arrival rate</li>
+ *     <li>{@code analysis.replicas.recommended}: pods needed to keep up with arrivals and work off the backlog
+ *     within {@code targetDrainTime}</li>
+ * </ul>
+ * Every pod sees the same queue, so all of them report the same recommendation; the HPA takes the maximum.
+ */
+@Slf4j
+@Component
+public class AnalysisScalingSignals implements SmartLifecycle {
+
+    /** Weight of the newest sample in the moving averages. */
+    private static final double SMOOTHING = 0.3;
+
+    private final AmqpAdmin amqpAdmin;
+    private final Duration pollInterval;
+    private final Duration targetDrainTime;
+    private final int consumersPerPod;
+    private final int minReplicas;
+    private final int maxReplicas;
+
+    private final AtomicLong processed = new AtomicLong();
+    private final DoubleAdder processingSeconds = new DoubleAdder();
+
+    private volatile double serviceTimeSeconds;
+    private volatile double throughput;
+    private volatile double arrivalRate;
+    private volatile long queueDepth = -1;
+    private volatile int queueConsumers;
+    private volatile double drainTimeSeconds;
+    private volatile int recommendedReplicas;
+
+    private long lastProcessed;
+    private long lastPollNanos;
+    private ScheduledExecutorService executor;
+    private volatile boolean running;
+
+    public AnalysisScalingSignals(AmqpAdmin amqpAdmin,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${analytics.scaling.poll-interval:10s}") Duration pollInterval,
+                                  @Value("${analytics.scaling.target-drain-time:60s}") Duration targetDrainTime,
+                                  @Value("${analytics.scaling.expected-service-time:2s}") Duration expectedServiceTime,
+                                  @Value("${spring.rabbitmq.listener.simple.max-concurrency:1}") int consumersPerPod,
+                                  @Value("${analytics.scaling.min-replicas:1}") int minReplicas,
+                                  @Value("${analytics.scaling.max-replicas:10}") int maxReplicas) {
+        this.amqpAdmin = amqpAdmin;
+        this.pollInterval = pollInterval;
+        this.targetDrainTime = targetDrainTime;
+        this.consumersPerPod = Math.max(1, consumersPerPod);
+        this.minReplicas = minReplicas;
+        this.maxReplicas = maxReplicas;
+        this.serviceTimeSeconds = expectedServiceTime.toMillis() / 1000.0;
+        this.recommendedReplicas = minReplicas;
+
+        Gauge.builder("analysis.queue.depth", () -> queueDepth < 0 ? Double.NaN : queueDepth)
+                .description("Messages ready in " + RabbitConfig.ANALYSIS_INPUT_QUEUE)
+                .register(meterRegistry);
+        Gauge.builder("analysis.queue.consumers", () -> queueConsumers)
+                .description("Consumers of " + RabbitConfig.ANALYSIS_INPUT_QUEUE + " across all pods")
+                .register(meterRegistry);
+        TimeGauge.builder("analysis.service.time", () -> serviceTimeSeconds, TimeUnit.SECONDS)
+                .description("Smoothed processing time per message and consumer")
+                .register(meterRegistry);
+        Gauge.builder("analysis.throughput", () -> throughput)
+                .description("Messages processed per second by this pod")
+                .baseUnit("messages")
+                .register(meterRegistry);
+        Gauge.builder("analysis.arrival.rate", () -> arrivalRate)
+                .description("Messages published per second to " + RabbitConfig.ANALYSIS_INPUT_QUEUE)
+                .baseUnit("messages")
+                .register(meterRegistry);
+        TimeGauge.builder("analysis.drain.time", () -> drainTimeSeconds, TimeUnit.SECONDS)
+                .description("Estimated time until the backlog is processed; infinite if arrivals outpace consumers")
+                .register(meterRegistry);
+        Gauge.builder("analysis.replicas.recommended", () -> recommendedReplicas)
+                .description("Pods needed to keep up with arrivals and drain the backlog within the target time")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Called by the listener for every analysed message.
+     */
+    public void recordProcessed(Duration duration) {
+        processingSeconds.add(duration.toNanos() / 1e9);
+        processed.incrementAndGet();
+    }
+
+    void poll() {
+        QueueInformation queue = amqpAdmin.getQueueInfo(RabbitConfig.ANALYSIS_INPUT_QUEUE);
+        long now = System.nanoTime();
+        double elapsedSeconds = (now - lastPollNanos) / 1e9;
+        lastPollNanos = now;
+
+        long total = processed.get();
+        long processedSinceLastPoll = total - lastProcessed;
+        lastProcessed = total;
+        double seconds = processingSeconds.sumThenReset();
+        if (processedSinceLastPoll > 0) {
+            serviceTimeSeconds = smooth(serviceTimeSeconds, seconds / processedSinceLastPoll);
+        }
+        throughput = smooth(throughput, processedSinceLastPoll / elapsedSeconds);
+
+        if (queue == null) {
+            return;
+        }
+        long depth = queue.getMessageCount();
+        int consumers = queue.getConsumerCount();
+        if (queueDepth >= 0) {
+            // what all pods drained, assuming they run at about this pod's rate
+            double clusterThroughput = throughput * Math.ceil((double) consumers / consumersPerPod);
+            double observedArrivals = Math.max(0, (depth - queueDepth) / elapsedSeconds + clusterThroughput);
+            arrivalRate = smooth(arrivalRate, observedArrivals);
+        }
+        queueDepth = depth;
+        queueConsumers = consumers;
+        drainTimeSeconds = drainTime(depth, consumers / serviceTimeSeconds, arrivalRate);
+        recommendedReplicas = recommendReplicas(depth, arrivalRate, serviceTimeSeconds,
+                targetDrainTime.toMillis() / 1000.0, consumersPerPod, minReplicas, maxReplicas);
+    }
+
+    static double drainTime(long depth, double capacity, double arrivalRate) {
+        if (depth == 0) {
+            return 0;
+        }
+        double netRate = capacity - arrivalRate;
+        return netRate > 0 ? depth / netRate : Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * Consumers needed = arrivals * service time (to keep up) + backlog * service time / target drain time
+     * (to work off what is queued), divided into pods and clamped.
+     */
+    static int recommendReplicas(long depth, double arrivalRate, double serviceTimeSeconds, double targetDrainSeconds,
+                                 int consumersPerPod, int minReplicas, int maxReplicas) {
+        double consumers = arrivalRate * serviceTimeSeconds + depth * serviceTimeSeconds / targetDrainSeconds;
+        int replicas = (int) Math.ceil(consumers / consumersPerPod);
+        return Math.max(minReplicas, Math.min(maxReplicas, replicas));
+    }
+
+    private static double smooth(double previous, double sample) {
+        return previous + SMOOTHING * (sample - previous);
+    }
+
+    private void runPoll() {
+        try {
+            poll();
+        } catch (RuntimeException e) {
+            log.debug("Could not read {} for scaling signals: {}", RabbitConfig.ANALYSIS_INPUT_QUEUE, e.getMessage());
+        }
+    }
+
+    @Override
+    public void start() {
+        lastPollNanos = System.nanoTime();
+        executor = Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("scaling-signals-"));
+        executor.scheduleWithFixedDelay(this::runPoll, pollInterval.toMillis(), pollInterval.toMillis(),
+                TimeUnit.MILLISECONDS);
+        running = true;
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+}
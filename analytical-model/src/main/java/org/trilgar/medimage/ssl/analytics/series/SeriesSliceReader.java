@@ -0,0 +1,136 @@
+package org.trilgar.medimage.ssl.analytics.series;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.trilgar.medimage.ssl.model.SeriesManifest;
+import org.trilgar.medimage.ssl.s3.api.ImageStream;
+import org.trilgar.medimage.ssl.s3.api.S3StorageService;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Reads the slices of a series in order while it may still be uploading. A missing slice is polled for
+ * every {@code pollInterval}; the series ends once its manifest exists and all slices it lists were read.
+ * Only one slice is held in memory at a time. The waiting happens on the consumers of
+ * {@code series_analysis_queue}, so a slow upload never holds up single-image analyses.
+ */
+@Slf4j
+@Component
+public class SeriesSliceReader {
+
+    private final S3StorageService s3Service;
+    private final ObjectMapper objectMapper;
+    private final Duration pollInterval;
+    private final Duration sliceTimeout;
+
+    public SeriesSliceReader(S3StorageService s3Service,
+                             ObjectMapper objectMapper,
+                             @Value("${analytics.series.poll-interval:500ms}") Duration pollInterval,
+                             @Value("${analytics.series.slice-timeout:5m}") Duration sliceTimeout) {
+        this.s3Service = s3Service;
+        this.objectMapper = objectMapper;
+        this.pollInterval = pollInterval;
+        this.sliceTimeout = sliceTimeout;
+    }
+
+    /**
+     * @throws IllegalStateException from the iterator when the next slice or the manifest does not show up
+     *                               within {@code sliceTimeout}
+     */
+    public Iterable<byte[]> slices(UUID seriesId, String manifestKey) {
+        return () -> new SliceIterator(seriesId, SeriesManifest.prefixOf(manifestKey));
+    }
+
+    private final class SliceIterator implements Iterator<byte[]> {
+        private final UUID seriesId;
+        private final String prefix;
+        private SeriesManifest manifest;
+        private byte[] next;
+        private int index;
+
+        private SliceIterator(UUID seriesId, String prefix) {
+            this.seriesId = seriesId;
+            this.prefix = prefix;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (next == null && (manifest == null || index < manifest.getSliceCount())) {
+                next = awaitSlice();
+            }
+            return next != null;
+        }
+
+        @Override
+        public byte[] next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            byte[] slice = next;
+            next = null;
+            index++;
+            return slice;
+        }
+
+        /**
+         * @return the slice at {@code index}, or {@code null} if the manifest says there is none
+         */
+        private byte[] awaitSlice() {
+            long deadline = System.nanoTime() + sliceTimeout.toNanos();
+            while (true) {
+                Optional<byte[]> slice = read(SeriesManifest.sliceKey(prefix, index));
+                if (slice.isPresent()) {
+                    return slice.get();
+                }
+                if (manifest == null) {
+                    manifest = read(SeriesManifest.manifestKey(prefix)).map(this::parse).orElse(null);
+                    if (manifest != null && index >= manifest.getSliceCount()) {
+                        return null;
+                    }
+                }
+                if (System.nanoTime() > deadline) {
+                    throw new IllegalStateException("Slice " + index + " of series " + seriesId
+                            + " was not uploaded within " + sliceTimeout);
+                }
+                sleep();
+            }
+        }
+
+        private Optional<byte[]> read(String key) {
+            Optional<ImageStream> object = s3Service.openIfExists(key);
+            if (object.isEmpty()) {
+                return Optional.empty();
+            }
+            try (ImageStream stream = object.get()) {
+                return Optional.of(stream.content().readAllBytes());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private SeriesManifest parse(byte[] json) {
+            try {
+                return objectMapper.readValue(json, SeriesManifest.class);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private void sleep() {
+            try {
+                Thread.sleep(pollInterval.toMillis());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for series " + seriesId, e);
+            }
+        }
+    }
+}
@@ -12,6 +12,8 @@ import java.util.UUID;
 @Service
 @Slf4j
 public class MockAiModelService implements AnalyticalService {
+    private static final long SLICE_INFERENCE_MILLIS = 20;
+
     private final Random random = new Random();
 
     public RiskAssessmentResult analyze(UUID requestId, UUID patientId, String s3Key, byte[] imageData) {
@@ -26,6 +28,36 @@ public class MockAiModelService implements AnalyticalService {
 
         // 2. Generate random result
         double riskScore = random.nextDouble();
+        log.info("Inference complete. Score: {}", String.format("%.2f", riskScore));
+
+        // 3. Return DTO
+        return result(requestId, patientId, s3Key, riskScore, null);
+    }
+
+    /**
+     * Scores every slice and reports the highest score, so one suspicious slice is enough to flag the study.
+     */
+    @Override
+    public RiskAssessmentResult analyzeSeries(UUID requestId, UUID patientId, UUID seriesId, String manifestKey,
+                                              Iterable<byte[]> slices) {
+        log.info("Starting AI inference for Series: {} (Request: {})", seriesId, requestId);
+        double riskScore = 0;
+        int sliceCount = 0;
+        for (byte[] slice : slices) {
+            try {
+                Thread.sleep(SLICE_INFERENCE_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            riskScore = Math.max(riskScore, random.nextDouble());
+            sliceCount++;
+        }
+        log.info("Inference complete for {} slices. Score: {}", sliceCount, String.format("%.2f", riskScore));
+        return result(requestId, patientId, manifestKey, riskScore, seriesId);
+    }
+
+    private static RiskAssessmentResult result(UUID requestId, UUID patientId, String s3Key, double riskScore,
+                                               UUID seriesId) {
         boolean isCritical = riskScore > 0.70;
 
         String label;
@@ -33,9 +65,6 @@ public class MockAiModelService implements AnalyticalService {
         else if (riskScore > 0.50) label = "MODERATE_RISK";
         else label = "NO_PATHOLOGY";
 
-        log.info("Inference complete. Score: {}", String.format("%.2f", riskScore));
-
-        // 3. Return DTO
         return new RiskAssessmentResult(
                 requestId,
                 patientId,
@@ -43,7 +72,8 @@ public class MockAiModelService implements AnalyticalService {
                 riskScore,
                 label,
                 isCritical,
-                LocalDateTime.now()
+                LocalDateTime.now(),
+                seriesId
         );
     }
 }
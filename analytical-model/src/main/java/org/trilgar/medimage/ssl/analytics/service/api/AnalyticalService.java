@@ -6,4 +6,10 @@ import java.util.UUID;
 
 public interface AnalyticalService {
     RiskAssessmentResult analyze(UUID requestId, UUID patientId, String s3Key, byte[] imageData);
+
+    /**
+     * Analyses the slices in order as they are produced; {@code slices} may block until the next one is uploaded.
+     */
+    RiskAssessmentResult analyzeSeries(UUID requestId, UUID patientId, UUID seriesId, String manifestKey,
+                                       Iterable<byte[]> slices);
 }
@@ -0,0 +1,27 @@
+package org.trilgar.medimage.ssl.benchmarks;
+
+import org.openjdk.jmh.Main;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * JMH entry point that writes results as JSON to {@code jmh-result.json} unless {@code -rf} is given,
+ * so every run leaves a file that can be diffed against a previous one.
+ */
+public final class BenchmarkMain {
+
+    private BenchmarkMain() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        List<String> jmhArgs = new ArrayList<>(List.of(args));
+        if (!jmhArgs.contains("-rf")) {
+            jmhArgs.addAll(List.of("-rf", "json"));
+            if (!jmhArgs.contains("-rff")) {
+                jmhArgs.addAll(List.of("-rff", "jmh-result.json"));
+            }
+        }
+        Main.main(jmhArgs.toArray(String[]::new));
+    }
+}
@@ -0,0 +1,126 @@
+package org.trilgar.medimage.ssl.benchmarks;
+
+import io.micrometer.observation.ObservationRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+import org.springframework.scheduling.concurrent.ConcurrentTaskExecutor;
+import org.trilgar.medimage.ssl.crypto.EnvelopeEncryption;
+import org.trilgar.medimage.ssl.s3.S3StorageServiceImpl;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.http.apache.ApacheHttpClient;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.S3Configuration;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of blocking S3 downloads when {@value #IN_FLIGHT} callers arrive at once, as with a burst of
+ * requests or messages: a platform pool of {@value #PLATFORM_THREADS} threads (Tomcat's default maximum)
+ * against one virtual thread per call, which is what {@code spring.threads.virtual.enabled} switches
+ * the web server and listener containers to. The stand-in S3 delays every response by
+ * {@code latencyMillis}, so the platform pool is bounded by threads / latency.
+ * <p>
+ * The {@code virtual} case needs a Java 21 runtime.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class BlockingIoThreadingBenchmark {
+
+    private static final String BUCKET = "benchmark-bucket";
+    private static final int IN_FLIGHT = 1000;
+    private static final int PLATFORM_THREADS = 200;
+
+    @Param({"platform", "virtual"})
+    public String threads;
+
+    @Param({"20", "300", "1000"})
+    public int latencyMillis;
+
+    private InMemoryS3Server server;
+    private S3Client s3Client;
+    private S3StorageServiceImpl storageService;
+    private ExecutorService platformPool;
+    private TaskExecutor executor;
+    private String storedKey;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        server = new InMemoryS3Server(Duration.ofMillis(latencyMillis));
+        s3Client = S3Client.builder()
+                .endpointOverride(server.endpoint())
+                .region(Region.US_EAST_1)
+                .credentialsProvider(StaticCredentialsProvider.create(
+                        AwsBasicCredentials.create("benchmark", "benchmark")))
+                .serviceConfiguration(S3Configuration.builder()
+                        .pathStyleAccessEnabled(true)
+                        .build())
+                .httpClientBuilder(ApacheHttpClient.builder()
+                        .maxConnections(IN_FLIGHT))
+                .build();
+        storageService = new S3StorageServiceImpl(s3Client, ObservationRegistry.NOOP, EnvelopeEncryption.disabled(),
+                BUCKET);
+        storageService.initializeBucket();
+
+        byte[] image = new byte[16 * 1024];
+        ThreadLocalRandom.current().nextBytes(image);
+        storedKey = storageService.upload(image, "png");
+
+        if ("virtual".equals(threads)) {
+            executor = new VirtualThreadTaskExecutor("benchmark-virtual-");
+        } else {
+            platformPool = Executors.newFixedThreadPool(PLATFORM_THREADS);
+            executor = new ConcurrentTaskExecutor(platformPool);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (platformPool != null) {
+            platformPool.shutdownNow();
+        }
+        s3Client.close();
+        server.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(IN_FLIGHT)
+    public void downloadBurst() throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(IN_FLIGHT);
+        for (int i = 0; i < IN_FLIGHT; i++) {
+            executor.execute(() -> {
+                try {
+                    storageService.downloadImage(storedKey);
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+        done.await();
+    }
+}
@@ -0,0 +1,94 @@
+package org.trilgar.medimage.ssl.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.trilgar.medimage.ssl.crypto.Envelope;
+import org.trilgar.medimage.ssl.crypto.EnvelopeEncryption;
+import org.trilgar.medimage.ssl.crypto.KeyRing;
+
+import javax.crypto.spec.SecretKeySpec;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The cost of the crypto alone: streaming an image through {@link EnvelopeEncryption} into a buffer, against
+ * streaming the same bytes unencrypted ({@code copy}). Run with {@code -jvmArgs -XX:-UseAESIntrinsics
+ * -XX:-UseAESCTRIntrinsics -XX:-UseGHASHIntrinsics} to see what the hardware instructions contribute.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EnvelopeEncryptionBenchmark {
+
+    @Param({"1048576", "8388608"})
+    public int sizeBytes;
+
+    @Param({"16384", "65536", "262144"})
+    public int chunkSize;
+
+    private EnvelopeEncryption encryption;
+    private byte[] image;
+    private byte[] ciphertext;
+    private Envelope envelope;
+    private byte[] sink;
+
+    @Setup
+    public void setUp() {
+        byte[] key = new byte[32];
+        ThreadLocalRandom.current().nextBytes(key);
+        encryption = new EnvelopeEncryption(new KeyRing(Map.of("benchmark", new SecretKeySpec(key, "AES")), "benchmark"),
+                chunkSize);
+        image = new byte[sizeBytes];
+        ThreadLocalRandom.current().nextBytes(image);
+        envelope = encryption.newEnvelope(sizeBytes);
+        ciphertext = encryption.encrypt(image, envelope);
+        sink = new byte[ciphertext.length];
+    }
+
+    @Benchmark
+    public long copy() throws IOException {
+        return drain(new ByteArrayInputStream(image));
+    }
+
+    @Benchmark
+    public long encrypt() throws IOException {
+        try (InputStream sealed = encryption.encrypt(new ByteArrayInputStream(image), encryption.newEnvelope(sizeBytes))) {
+            return drain(sealed);
+        }
+    }
+
+    @Benchmark
+    public long decrypt() throws IOException {
+        try (InputStream plain = encryption.decrypt(new ByteArrayInputStream(ciphertext), envelope)) {
+            return drain(plain);
+        }
+    }
+
+    /**
+     * Reads in 8 KB steps, like a servlet or HTTP client copying the stream to a socket.
+     */
+    private long drain(InputStream in) throws IOException {
+        long total = 0;
+        int read;
+        while ((read = in.read(sink, (int) (total % (sink.length - 8192)), 8192)) > 0) {
+            total += read;
+        }
+        return total;
+    }
+}
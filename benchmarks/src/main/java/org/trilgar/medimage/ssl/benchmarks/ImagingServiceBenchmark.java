@@ -0,0 +1,120 @@
+package org.trilgar.medimage.ssl.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.util.FileSystemUtils;
+import org.trilgar.medimage.ssl.imaging.ImagingServiceApplication;
+import org.trilgar.medimage.ssl.imaging.entity.ImageMetadata;
+import org.trilgar.medimage.ssl.imaging.service.api.ImagingService;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@code ImagingServiceImpl.saveImage}/{@code getImageData} through the real Spring Data JPA stack.
+ * By default the imaging-service context runs against a file-backed H2 database in a temp directory;
+ * pass {@code -Dbenchmark.datasource.url=jdbc:postgresql://...} (plus {@code .username}/{@code .password})
+ * to the forked JVM via {@code -jvmArgs} to measure against a real Postgres instead.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ImagingServiceBenchmark {
+
+    @Param({"262144", "4194304"})
+    public int sizeBytes;
+
+    private Path databaseDir;
+    private ConfigurableApplicationContext context;
+    private ImagingService imagingService;
+    private JdbcTemplate jdbcTemplate;
+    private UUID patientId;
+    private byte[] image;
+    private UUID storedImageId;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        List<String> args = new ArrayList<>(List.of(
+                "--spring.main.banner-mode=off",
+                "--spring.jpa.show-sql=false"
+        ));
+        String url = System.getProperty("benchmark.datasource.url");
+        if (url == null) {
+            databaseDir = Files.createTempDirectory("imaging-benchmark");
+            args.add("--spring.datasource.url=jdbc:h2:file:" + databaseDir.resolve("images"));
+            args.add("--spring.datasource.username=sa");
+            args.add("--spring.datasource.password=");
+            args.add("--spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect");
+            // the migrations are written for Postgres; H2 gets the schema from the entities
+            args.add("--spring.flyway.enabled=false");
+            args.add("--spring.jpa.hibernate.ddl-auto=create");
+        } else {
+            args.add("--spring.datasource.url=" + url);
+            args.add("--spring.datasource.username=" + System.getProperty("benchmark.datasource.username", "postgres"));
+            args.add("--spring.datasource.password=" + System.getProperty("benchmark.datasource.password", "password"));
+        }
+
+        context = new SpringApplicationBuilder(ImagingServiceApplication.class)
+                .web(WebApplicationType.NONE)
+                .run(args.toArray(String[]::new));
+        imagingService = context.getBean(ImagingService.class);
+        jdbcTemplate = context.getBean(JdbcTemplate.class);
+
+        patientId = UUID.randomUUID();
+        image = new byte[sizeBytes];
+        ThreadLocalRandom.current().nextBytes(image);
+        storedImageId = imagingService.saveImage(patientId, image, "XRAY").getId();
+    }
+
+    /**
+     * Keeps only the stored image of the benchmark patient between iterations, so later iterations of
+     * {@link #saveImage} do not run against an ever-growing table. Other rows are never touched.
+     */
+    @TearDown(Level.Iteration)
+    public void deleteSavedImages() {
+        jdbcTemplate.update("DELETE FROM images WHERE patient_id = ? AND id <> ?", patientId, storedImageId);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        jdbcTemplate.update("DELETE FROM images WHERE patient_id = ?", patientId);
+        context.close();
+        if (databaseDir != null) {
+            FileSystemUtils.deleteRecursively(databaseDir.toFile());
+        }
+    }
+
+    @Benchmark
+    public ImageMetadata saveImage() {
+        return imagingService.saveImage(patientId, image, "XRAY");
+    }
+
+    @Benchmark
+    public byte[] getImageData() {
+        return imagingService.getImageData(storedImageId);
+    }
+}
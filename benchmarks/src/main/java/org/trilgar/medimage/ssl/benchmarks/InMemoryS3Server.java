@@ -0,0 +1,249 @@
+package org.trilgar.medimage.ssl.benchmarks;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Minimal path-style S3 endpoint on the loopback interface, just enough for {@code S3StorageServiceImpl}:
+ * HEAD/PUT bucket, PUT object (plain or {@code aws-chunked}, with {@code x-amz-meta-*} user metadata), copy
+ * object with replaced metadata and GET object (whole or one {@code Range}). The SDK client talks to it
+ * over real HTTP, so marshalling, signing and the connection pool are part of the measurement.
+ * <p>
+ * Only the most recently used {@value #MAX_OBJECTS} objects are kept, so an upload benchmark does not
+ * grow the heap for the whole trial.
+ * <p>
+ * A non-zero {@code responseDelay} holds every response back to stand in for network and storage latency
+ * of a remote S3; each request then gets its own server thread so the delays overlap.
+ */
+class InMemoryS3Server implements AutoCloseable {
+
+    private static final int MAX_OBJECTS = 64;
+    private static final String METADATA_PREFIX = "x-amz-meta-";
+
+    private record StoredObject(byte[] data, String contentType, String eTag, Map<String, String> metadata) {
+    }
+
+    private final Map<String, StoredObject> objects = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, StoredObject> eldest) {
+            return size() > MAX_OBJECTS;
+        }
+    };
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final long responseDelayMillis;
+
+    InMemoryS3Server() throws IOException {
+        this(Duration.ZERO);
+    }
+
+    InMemoryS3Server(Duration responseDelay) throws IOException {
+        // the JDK server leaves Nagle on by default, which adds delayed-ACK stalls to every response
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+        // by default it keeps only 200 idle connections and closes the rest under the client's pooled connections
+        System.setProperty("sun.net.httpserver.maxIdleConnections", "4096");
+        responseDelayMillis = responseDelay.toMillis();
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 1024);
+        executor = responseDelayMillis > 0 ? Executors.newCachedThreadPool() : Executors.newFixedThreadPool(4);
+        server.setExecutor(executor);
+        server.createContext("/", this::handle);
+        server.start();
+    }
+
+    URI endpoint() {
+        return URI.create("http://127.0.0.1:" + server.getAddress().getPort());
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            String path = exchange.getRequestURI().getPath();
+            boolean bucketOnly = path.indexOf('/', 1) < 0;
+            String method = exchange.getRequestMethod();
+            delay();
+
+            if (bucketOnly) {
+                exchange.getRequestBody().readAllBytes();
+                exchange.sendResponseHeaders(200, -1);
+            } else if ("PUT".equals(method)) {
+                putObject(exchange, path);
+            } else if ("GET".equals(method) || "HEAD".equals(method)) {
+                getObject(exchange, path, "HEAD".equals(method));
+            } else {
+                exchange.sendResponseHeaders(405, -1);
+            }
+        }
+    }
+
+    private void delay() {
+        if (responseDelayMillis > 0) {
+            try {
+                Thread.sleep(responseDelayMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void putObject(HttpExchange exchange, String key) throws IOException {
+        String copySource = exchange.getRequestHeaders().getFirst("x-amz-copy-source");
+        if (copySource != null) {
+            copyObject(exchange, key, "/" + URLDecoder.decode(copySource, StandardCharsets.UTF_8).replaceFirst("^/", ""));
+            return;
+        }
+        boolean chunked = exchange.getRequestHeaders().containsKey("x-amz-decoded-content-length");
+        byte[] data = chunked
+                ? decodeAwsChunked(exchange.getRequestBody())
+                : exchange.getRequestBody().readAllBytes();
+        String contentType = exchange.getRequestHeaders().getFirst("Content-Type");
+        String eTag = "\"" + HexFormat.of().formatHex(md5(data)) + "\"";
+        synchronized (objects) {
+            objects.put(key, new StoredObject(data, contentType, eTag, metadata(exchange)));
+        }
+        exchange.getResponseHeaders().set("ETag", eTag);
+        exchange.sendResponseHeaders(200, -1);
+    }
+
+    private static Map<String, String> metadata(HttpExchange exchange) {
+        Map<String, String> metadata = new LinkedHashMap<>();
+        for (Map.Entry<String, List<String>> header : exchange.getRequestHeaders().entrySet()) {
+            if (header.getKey().toLowerCase().startsWith(METADATA_PREFIX)) {
+                metadata.put(header.getKey().toLowerCase(), header.getValue().get(0));
+            }
+        }
+        return metadata;
+    }
+
+    /**
+     * Always replaces the metadata, as with {@code x-amz-metadata-directive: REPLACE}.
+     */
+    private void copyObject(HttpExchange exchange, String key, String sourceKey) throws IOException {
+        exchange.getRequestBody().readAllBytes();
+        StoredObject copy;
+        synchronized (objects) {
+            StoredObject source = objects.get(sourceKey);
+            if (source == null) {
+                exchange.sendResponseHeaders(404, -1);
+                return;
+            }
+            String contentType = exchange.getRequestHeaders().getFirst("Content-Type");
+            copy = new StoredObject(source.data(), contentType != null ? contentType : source.contentType(),
+                    source.eTag(), metadata(exchange));
+            objects.put(key, copy);
+        }
+        byte[] result = ("<CopyObjectResult><ETag>" + copy.eTag() + "</ETag></CopyObjectResult>")
+                .getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/xml");
+        exchange.sendResponseHeaders(200, result.length);
+        exchange.getResponseBody().write(result);
+    }
+
+    private void getObject(HttpExchange exchange, String key, boolean headOnly) throws IOException {
+        StoredObject object;
+        synchronized (objects) {
+            object = objects.get(key);
+        }
+        if (object == null) {
+            byte[] error = ("<Error><Code>NoSuchKey</Code><Key>" + key + "</Key></Error>").getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "application/xml");
+            exchange.sendResponseHeaders(404, headOnly ? -1 : error.length);
+            if (!headOnly) {
+                exchange.getResponseBody().write(error);
+            }
+            return;
+        }
+        exchange.getResponseHeaders().set("ETag", object.eTag());
+        if (object.contentType() != null) {
+            exchange.getResponseHeaders().set("Content-Type", object.contentType());
+        }
+        object.metadata().forEach(exchange.getResponseHeaders()::set);
+        if (headOnly) {
+            exchange.getResponseHeaders().set("Content-Length", String.valueOf(object.data().length));
+            exchange.sendResponseHeaders(200, -1);
+            return;
+        }
+        int length = object.data().length;
+        int start = 0;
+        int end = length - 1;
+        int status = 200;
+        String range = exchange.getRequestHeaders().getFirst("Range");
+        if (range != null && range.startsWith("bytes=")) {
+            String[] bounds = range.substring("bytes=".length()).split("-", 2);
+            start = Integer.parseInt(bounds[0]);
+            end = bounds[1].isEmpty() ? end : Math.min(end, Integer.parseInt(bounds[1]));
+            if (start >= length) {
+                exchange.sendResponseHeaders(416, -1);
+                return;
+            }
+            status = 206;
+            exchange.getResponseHeaders().set("Content-Range", "bytes " + start + "-" + end + "/" + length);
+        }
+        exchange.sendResponseHeaders(status, end - start + 1);
+        try (OutputStream body = exchange.getResponseBody()) {
+            body.write(object.data(), start, end - start + 1);
+        }
+    }
+
+    /**
+     * Strips the per-chunk signatures of a SigV4 streaming upload:
+     * {@code <hex size>;chunk-signature=<sig>\r\n<data>\r\n ... 0;chunk-signature=<sig>\r\n\r\n}.
+     */
+    private static byte[] decodeAwsChunked(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        while (true) {
+            String header = readLine(in);
+            int separator = header.indexOf(';');
+            int size = Integer.parseInt(separator < 0 ? header.trim() : header.substring(0, separator), 16);
+            if (size == 0) {
+                break;
+            }
+            out.write(in.readNBytes(size));
+            readLine(in);
+        }
+        in.readAllBytes();
+        return out.toByteArray();
+    }
+
+    private static String readLine(InputStream in) throws IOException {
+        StringBuilder line = new StringBuilder();
+        int b;
+        while ((b = in.read()) != -1 && b != '\n') {
+            if (b != '\r') {
+                line.append((char) b);
+            }
+        }
+        return line.toString();
+    }
+
+    private static byte[] md5(byte[] data) {
+        try {
+            return MessageDigest.getInstance("MD5").digest(data);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package org.trilgar.medimage.ssl.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
+import org.springframework.amqp.support.converter.MessageConverter;
+import org.trilgar.medimage.ssl.messaging.codec.CompactBinaryMessageConverter;
+import org.trilgar.medimage.ssl.model.ImageAnalysisRequest;
+import org.trilgar.medimage.ssl.model.PatientExaminationRequest;
+import org.trilgar.medimage.ssl.model.ResearchCompletedNotificationEvent;
+import org.trilgar.medimage.ssl.model.RiskAssessmentResult;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the Jackson converter every service used to register with the compact binary codec
+ * on the DTOs that cross the broker. Payload sizes are printed once per trial.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MessageConverterBenchmark {
+
+    @Param({"json", "compact"})
+    public String format;
+
+    @Param({"PatientExaminationRequest", "ImageAnalysisRequest", "RiskAssessmentResult", "ResearchCompletedNotificationEvent"})
+    public String dto;
+
+    private MessageConverter converter;
+    private Object payload;
+    private Message encoded;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        converter = "compact".equals(format) ? new CompactBinaryMessageConverter() : new Jackson2JsonMessageConverter();
+        payload = sample(dto);
+        encoded = converter.toMessage(payload, new MessageProperties());
+        System.out.printf("%n%s/%s: %d bytes%n", format, dto, encoded.getBody().length);
+    }
+
+    @Benchmark
+    public Message serialize() {
+        return converter.toMessage(payload, new MessageProperties());
+    }
+
+    @Benchmark
+    public Object deserialize() {
+        return converter.fromMessage(encoded);
+    }
+
+    static Object sample(String dto) {
+        UUID requestId = UUID.randomUUID();
+        UUID patientId = UUID.randomUUID();
+        String s3Key = UUID.randomUUID() + ".png";
+        return switch (dto) {
+            case "PatientExaminationRequest" -> new PatientExaminationRequest(requestId, patientId, "Jane Doe", "XRAY",
+                    "Persistent cough, rule out pneumonia", LocalDateTime.now(), true);
+            case "ImageAnalysisRequest" -> new ImageAnalysisRequest(requestId, patientId, s3Key, "XRAY", null);
+            case "RiskAssessmentResult" -> new RiskAssessmentResult(requestId, patientId, s3Key, 0.87,
+                    "HIGH_RISK_PNEUMONIA", true, LocalDateTime.now(), null);
+            case "ResearchCompletedNotificationEvent" -> new ResearchCompletedNotificationEvent(patientId, requestId,
+                    "Analysis complete. Diagnosis: HIGH_RISK_PNEUMONIA", "CRITICAL", "HIGH_RISK_PNEUMONIA", 0.87);
+            default -> throw new IllegalArgumentException("Unknown DTO " + dto);
+        };
+    }
+}
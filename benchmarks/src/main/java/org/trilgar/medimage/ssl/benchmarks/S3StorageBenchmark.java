@@ -0,0 +1,113 @@
+package org.trilgar.medimage.ssl.benchmarks;
+
+import io.micrometer.observation.ObservationRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.trilgar.medimage.ssl.crypto.EnvelopeEncryption;
+import org.trilgar.medimage.ssl.crypto.KeyRing;
+import org.trilgar.medimage.ssl.s3.S3StorageServiceImpl;
+import org.trilgar.medimage.ssl.s3.api.ImageStream;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.S3Configuration;
+
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Upload and download through {@link S3StorageServiceImpl} with the same client settings as
+ * {@code CommonS3Config}, against {@link InMemoryS3Server} on loopback instead of MinIO. With {@code encrypted}
+ * the service seals objects with {@link EnvelopeEncryption} at the default chunk size; {@code downloadRange} reads
+ * 64 KB from the middle of the object.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class S3StorageBenchmark {
+
+    private static final String BUCKET = "benchmark-bucket";
+
+    @Param({"65536", "1048576", "8388608"})
+    public int sizeBytes;
+
+    @Param({"false", "true"})
+    public boolean encrypted;
+
+    private InMemoryS3Server server;
+    private S3Client s3Client;
+    private S3StorageServiceImpl storageService;
+    private byte[] image;
+    private String storedKey;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        server = new InMemoryS3Server();
+        s3Client = S3Client.builder()
+                .endpointOverride(server.endpoint())
+                .region(Region.US_EAST_1)
+                .credentialsProvider(StaticCredentialsProvider.create(
+                        AwsBasicCredentials.create("benchmark", "benchmark")))
+                .serviceConfiguration(S3Configuration.builder()
+                        .pathStyleAccessEnabled(true)
+                        .build())
+                .build();
+        storageService = new S3StorageServiceImpl(s3Client, ObservationRegistry.NOOP, encryption(), BUCKET);
+        storageService.initializeBucket();
+
+        image = new byte[sizeBytes];
+        ThreadLocalRandom.current().nextBytes(image);
+        storedKey = storageService.upload(image, "png");
+    }
+
+    private EnvelopeEncryption encryption() {
+        if (!encrypted) {
+            return EnvelopeEncryption.disabled();
+        }
+        byte[] key = new byte[32];
+        ThreadLocalRandom.current().nextBytes(key);
+        return new EnvelopeEncryption(new KeyRing(Map.of("benchmark", new SecretKeySpec(key, "AES")), "benchmark"),
+                64 * 1024);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        s3Client.close();
+        server.close();
+    }
+
+    @Benchmark
+    public String upload() {
+        return storageService.upload(image, "png");
+    }
+
+    @Benchmark
+    public byte[] download() {
+        return storageService.downloadImage(storedKey);
+    }
+
+    @Benchmark
+    public byte[] downloadRange() throws IOException {
+        try (ImageStream range = storageService.openImage(storedKey, sizeBytes / 2, 64 * 1024)) {
+            return range.content().readAllBytes();
+        }
+    }
+}
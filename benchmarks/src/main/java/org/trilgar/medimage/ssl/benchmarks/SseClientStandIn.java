@@ -0,0 +1,144 @@
+package org.trilgar.medimage.ssl.benchmarks;
+
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.DispatcherType;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.converter.StringHttpMessageConverter;
+import org.springframework.web.context.request.async.AsyncWebRequest;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+import org.springframework.web.method.support.ModelAndViewContainer;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitterReturnValueHandler;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.trilgar.medimage.ssl.notification.controller.ResearchCompletedNotificationController;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Connects emitters returned by the notification service the way Spring MVC does for the SSE endpoint, through
+ * {@link ResponseBodyEmitterReturnValueHandler}, but against a stand-in servlet request and response. The
+ * response body is counted and discarded, so fan-out is measured with the real message conversion and no sockets.
+ */
+final class SseClientStandIn {
+
+    private final ResponseBodyEmitterReturnValueHandler returnValueHandler =
+            new ResponseBodyEmitterReturnValueHandler(List.of(new StringHttpMessageConverter()));
+    private final MethodParameter returnType;
+    private final LongAdder bytesWritten = new LongAdder();
+
+    SseClientStandIn() throws NoSuchMethodException {
+        Method endpoint = ResearchCompletedNotificationController.class
+                .getMethod("streamNotifications", Set.class, Set.class, String.class);
+        this.returnType = new MethodParameter(endpoint, -1);
+    }
+
+    void connect(SseEmitter emitter) throws Exception {
+        HttpServletRequest request = request();
+        HttpServletResponse response = response();
+        AsyncWebRequest asyncWebRequest = WebAsyncUtils.createAsyncWebRequest(request, response);
+        WebAsyncUtils.getAsyncManager(request).setAsyncWebRequest(asyncWebRequest);
+        returnValueHandler.handleReturnValue(emitter, returnType, new ModelAndViewContainer(), asyncWebRequest);
+    }
+
+    long getBytesWritten() {
+        return bytesWritten.sum();
+    }
+
+    private HttpServletRequest request() {
+        Map<String, Object> attributes = new ConcurrentHashMap<>();
+        AsyncContext[] asyncContext = new AsyncContext[1];
+        return stub(HttpServletRequest.class, (method, args) -> switch (method.getName()) {
+            case "getAttribute" -> attributes.get((String) args[0]);
+            case "setAttribute" -> {
+                if (args[1] == null) {
+                    attributes.remove((String) args[0]);
+                } else {
+                    attributes.put((String) args[0], args[1]);
+                }
+                yield null;
+            }
+            case "removeAttribute" -> attributes.remove((String) args[0]);
+            case "getAttributeNames" -> Collections.enumeration(attributes.keySet());
+            case "isAsyncSupported" -> true;
+            case "isAsyncStarted" -> asyncContext[0] != null;
+            case "startAsync" -> asyncContext[0] = stub(AsyncContext.class, (m, a) -> null);
+            case "getAsyncContext" -> asyncContext[0];
+            case "getDispatcherType" -> DispatcherType.REQUEST;
+            case "getMethod" -> "GET";
+            case "getRequestURI" -> "/api/notifications/stream";
+            default -> null;
+        });
+    }
+
+    private HttpServletResponse response() {
+        ServletOutputStream body = new ServletOutputStream() {
+            @Override
+            public void write(int b) {
+                bytesWritten.increment();
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+                bytesWritten.add(len);
+            }
+
+            @Override
+            public boolean isReady() {
+                return true;
+            }
+
+            @Override
+            public void setWriteListener(WriteListener writeListener) {
+            }
+        };
+        return stub(HttpServletResponse.class, (method, args) -> switch (method.getName()) {
+            case "getOutputStream" -> body;
+            case "getHeaders", "getHeaderNames" -> List.of();
+            case "getStatus" -> HttpServletResponse.SC_OK;
+            default -> null;
+        });
+    }
+
+    /**
+     * Answers the calls handled by {@code behaviour}; anything it leaves at {@code null} returns the
+     * type's default value.
+     */
+    private static <T> T stub(Class<T> type, Behaviour behaviour) {
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+            if (method.getDeclaringClass() == Object.class) {
+                return switch (method.getName()) {
+                    case "equals" -> proxy == args[0];
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    default -> type.getSimpleName() + " stand-in";
+                };
+            }
+            Object result = behaviour.invoke(method, args);
+            if (result != null || !method.getReturnType().isPrimitive()) {
+                return result;
+            }
+            Class<?> returnType = method.getReturnType();
+            if (returnType == boolean.class) {
+                return false;
+            }
+            if (returnType == long.class) {
+                return 0L;
+            }
+            return returnType == void.class ? null : 0;
+        }));
+    }
+
+    @FunctionalInterface
+    private interface Behaviour {
+        Object invoke(Method method, Object[] args);
+    }
+}
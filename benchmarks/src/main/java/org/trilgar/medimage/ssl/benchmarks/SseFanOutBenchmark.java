@@ -0,0 +1,99 @@
+package org.trilgar.medimage.ssl.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.trilgar.medimage.ssl.model.ResearchCompletedNotificationEvent;
+import org.trilgar.medimage.ssl.notification.model.SubscriptionFilter;
+import org.trilgar.medimage.ssl.notification.service.DeliveryMetrics;
+import org.trilgar.medimage.ssl.notification.service.OverflowPolicy;
+import org.trilgar.medimage.ssl.notification.service.ResearchCompltedNotificationSubscriptionService;
+import org.trilgar.medimage.ssl.notification.service.SubscriberCapacityGuard;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time from {@code sendNotification} until every matching client has been written to, with
+ * {@code clients} connected emitters. {@code filter=all} subscribes every client to everything;
+ * {@code filter=patient} spreads the clients over {@value #PATIENTS} patients, as doctor dashboards would.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SseFanOutBenchmark {
+
+    private static final int PATIENTS = 100;
+    private static final int EVENTS = 1024;
+
+    @Param({"1", "100", "1000"})
+    public int clients;
+
+    @Param({"all", "patient"})
+    public String filter;
+
+    private ResearchCompltedNotificationSubscriptionService service;
+    private DeliveryMetrics metrics;
+    private SseClientStandIn clientStandIn;
+    private ResearchCompletedNotificationEvent[] events;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        metrics = new DeliveryMetrics();
+        SubscriberCapacityGuard capacityGuard = new SubscriberCapacityGuard(event -> {
+        }, Integer.MAX_VALUE, Integer.MAX_VALUE);
+        service = new ResearchCompltedNotificationSubscriptionService(new ObjectMapper(), metrics, capacityGuard,
+                256, OverflowPolicy.DROP_OLDEST, 4, 5000, 1024, false, 50, 100);
+        clientStandIn = new SseClientStandIn();
+
+        UUID[] patients = new UUID[PATIENTS];
+        for (int i = 0; i < PATIENTS; i++) {
+            patients[i] = UUID.randomUUID();
+        }
+        for (int i = 0; i < clients; i++) {
+            SubscriptionFilter subscriptionFilter = "patient".equals(filter)
+                    ? SubscriptionFilter.of(List.of(patients[i % PATIENTS]), null)
+                    : SubscriptionFilter.ALL;
+            SseEmitter emitter = service.subscribe(subscriptionFilter, null);
+            clientStandIn.connect(emitter);
+        }
+
+        events = new ResearchCompletedNotificationEvent[EVENTS];
+        for (int i = 0; i < EVENTS; i++) {
+            events[i] = new ResearchCompletedNotificationEvent(patients[i % PATIENTS], UUID.randomUUID(),
+                    "Analysis complete. Diagnosis: HIGH_RISK_PNEUMONIA", "CRITICAL", "HIGH_RISK_PNEUMONIA", 0.87);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        System.out.printf("%n%s, %d bytes written%n", metrics.snapshot(), clientStandIn.getBytesWritten());
+        service.shutdown();
+    }
+
+    @Benchmark
+    public long fanOut() {
+        service.sendNotification(events[next++ & (EVENTS - 1)]);
+        while (metrics.getQueuedFrames() > 0) {
+            Thread.onSpinWait();
+        }
+        return metrics.getQueuedFrames();
+    }
+}
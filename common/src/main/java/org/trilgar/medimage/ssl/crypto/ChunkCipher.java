@@ -0,0 +1,66 @@
+package org.trilgar.medimage.ssl.crypto;
+
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+import java.security.GeneralSecurityException;
+
+/**
+ * AES-GCM over single chunks of one blob. The 12-byte nonce is the blob's 7-byte prefix, the chunk index and
+ * a flag for the last chunk, so chunks cannot be reordered, and a blob cut at a chunk boundary fails to decrypt.
+ * Uses the JDK provider, whose AES and GHASH are compiled to AES-NI/CLMUL (or ARMv8 crypto) instructions.
+ * Not thread-safe; one instance per stream.
+ */
+class ChunkCipher {
+
+    static final String TRANSFORMATION = "AES/GCM/NoPadding";
+    static final int NONCE_PREFIX_LENGTH = 7;
+
+    private final Cipher cipher;
+    private final SecretKey key;
+    private final byte[] nonce = new byte[12];
+
+    ChunkCipher(SecretKey key, byte[] noncePrefix) {
+        try {
+            this.cipher = Cipher.getInstance(TRANSFORMATION);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+        this.key = key;
+        System.arraycopy(noncePrefix, 0, nonce, 0, NONCE_PREFIX_LENGTH);
+    }
+
+    /**
+     * @return bytes written to {@code out}: {@code length + 16}
+     */
+    int encrypt(long index, boolean last, byte[] in, int offset, int length, byte[] out, int outOffset) {
+        try {
+            cipher.init(Cipher.ENCRYPT_MODE, key, parameters(index, last));
+            return cipher.doFinal(in, offset, length, out, outOffset);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Could not encrypt chunk " + index, e);
+        }
+    }
+
+    /**
+     * @return bytes written to {@code out}: {@code length - 16}
+     * @throws javax.crypto.AEADBadTagException wrapped in {@link IllegalStateException} for tampered data
+     */
+    int decrypt(long index, boolean last, byte[] in, int offset, int length, byte[] out, int outOffset) {
+        try {
+            cipher.init(Cipher.DECRYPT_MODE, key, parameters(index, last));
+            return cipher.doFinal(in, offset, length, out, outOffset);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Could not decrypt chunk " + index, e);
+        }
+    }
+
+    private GCMParameterSpec parameters(long index, boolean last) {
+        nonce[7] = (byte) (index >>> 24);
+        nonce[8] = (byte) (index >>> 16);
+        nonce[9] = (byte) (index >>> 8);
+        nonce[10] = (byte) index;
+        nonce[11] = (byte) (last ? 1 : 0);
+        return new GCMParameterSpec(Envelope.TAG_LENGTH * 8, nonce);
+    }
+}
@@ -0,0 +1,94 @@
+package org.trilgar.medimage.ssl.crypto;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Serves the output of {@link #nextChunk} one chunk at a time; the chunk buffers come from and go back to a
+ * {@link BufferPool}.
+ */
+abstract class ChunkedInputStream extends InputStream {
+
+    protected final ChunkCipher cipher;
+    protected final Envelope envelope;
+    private final BufferPool buffers;
+    private byte[] in;
+    private byte[] out;
+    private long nextIndex;
+    private final long endChunk;
+    private int position;
+    private int limit;
+    private boolean closed;
+
+    /**
+     * @param endChunk index after the last chunk to produce
+     */
+    ChunkedInputStream(ChunkCipher cipher, Envelope envelope, long firstChunk, long endChunk, BufferPool buffers) {
+        this.cipher = cipher;
+        this.envelope = envelope;
+        this.buffers = buffers;
+        this.nextIndex = firstChunk;
+        this.endChunk = endChunk;
+        this.in = buffers.acquire();
+        this.out = buffers.acquire();
+    }
+
+    /**
+     * @return number of bytes written to {@code out}
+     */
+    protected abstract int nextChunk(long index, boolean last, byte[] in, byte[] out) throws IOException;
+
+    protected abstract void closeSource() throws IOException;
+
+    private boolean fill() throws IOException {
+        if (closed) {
+            throw new IOException("Stream closed");
+        }
+        while (position == limit) {
+            if (nextIndex >= endChunk) {
+                return false;
+            }
+            limit = nextChunk(nextIndex, nextIndex == envelope.chunkCount() - 1, in, out);
+            position = 0;
+            nextIndex++;
+        }
+        return true;
+    }
+
+    @Override
+    public int read() throws IOException {
+        return fill() ? out[position++] & 0xFF : -1;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (!fill()) {
+            return -1;
+        }
+        int count = Math.min(len, limit - position);
+        System.arraycopy(out, position, b, off, count);
+        position += count;
+        return count;
+    }
+
+    @Override
+    public int available() {
+        return limit - position;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        buffers.release(in);
+        buffers.release(out);
+        in = null;
+        out = null;
+        closeSource();
+    }
+}
@@ -0,0 +1,55 @@
+package org.trilgar.medimage.ssl.crypto;
+
+/**
+ * The whole chunks of an encrypted blob that cover a plaintext range.
+ *
+ * @param firstChunk index of the first chunk
+ * @param endChunk   index after the last chunk
+ * @param start      first ciphertext byte to fetch
+ * @param end        last ciphertext byte to fetch, inclusive (as in an HTTP {@code Range})
+ * @param skip       plaintext bytes of the first chunk before the range
+ * @param length     plaintext bytes in the range
+ */
+public record CiphertextRange(long firstChunk, long endChunk, long start, long end, int skip, long length) {
+
+    static CiphertextRange of(Envelope envelope, long offset, long length) {
+        long plaintextLength = envelope.plaintextLength();
+        if (offset < 0 || length < 0 || offset > plaintextLength) {
+            throw new IllegalArgumentException("Range " + offset + "+" + length + " outside of " + plaintextLength + " bytes");
+        }
+        long clampedLength = Math.min(length, plaintextLength - offset);
+        int chunkSize = envelope.chunkSize();
+        long firstChunk = Math.min(offset / chunkSize, envelope.chunkCount() - 1);
+        long endChunk = clampedLength == 0 ? firstChunk + 1 : (offset + clampedLength - 1) / chunkSize + 1;
+        long start = envelope.ciphertextChunkOffset(firstChunk);
+        long end = Math.min(envelope.ciphertextChunkOffset(endChunk), envelope.ciphertextLength()) - 1;
+        return new CiphertextRange(firstChunk, endChunk, start, end, (int) (offset - firstChunk * chunkSize),
+                clampedLength);
+    }
+
+    /**
+     * The range for a blob written with {@code chunkSize}, before its envelope is known. Reaches past the end
+     * of the blob if the plaintext range does.
+     */
+    static CiphertextRange assuming(int chunkSize, long offset, long length) {
+        long firstChunk = offset / chunkSize;
+        long endChunk = length == 0 ? firstChunk + 1 : (offset + length - 1) / chunkSize + 1;
+        long chunkLength = chunkSize + Envelope.TAG_LENGTH;
+        return new CiphertextRange(firstChunk, endChunk, firstChunk * chunkLength, endChunk * chunkLength - 1,
+                (int) (offset - firstChunk * chunkSize), length);
+    }
+
+    /**
+     * @return whether the ciphertext fetched for this range contains all chunks {@code needed} starts with
+     */
+    public boolean covers(CiphertextRange needed) {
+        return firstChunk == needed.firstChunk && endChunk >= needed.endChunk;
+    }
+
+    /**
+     * @return the {@code Range} header value for the ciphertext
+     */
+    public String httpRange() {
+        return "bytes=" + start + "-" + end;
+    }
+}
@@ -0,0 +1,38 @@
+package org.trilgar.medimage.ssl.crypto;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Reads the sealed chunks {@code [firstChunk, endChunk)} and hands out the plaintext. Every chunk is authenticated
+ * before any of its bytes are returned.
+ */
+class DecryptingInputStream extends ChunkedInputStream {
+
+    private final InputStream ciphertext;
+
+    DecryptingInputStream(InputStream ciphertext, ChunkCipher cipher, Envelope envelope, long firstChunk,
+                          long endChunk, BufferPool buffers) {
+        super(cipher, envelope, firstChunk, endChunk, buffers);
+        this.ciphertext = ciphertext;
+    }
+
+    @Override
+    protected int nextChunk(long index, boolean last, byte[] in, byte[] out) throws IOException {
+        int length = envelope.plaintextChunkLength(index) + Envelope.TAG_LENGTH;
+        if (ciphertext.readNBytes(in, 0, length) != length) {
+            throw new EOFException("Encrypted object ends inside chunk " + index);
+        }
+        try {
+            return cipher.decrypt(index, last, in, 0, length, out, 0);
+        } catch (IllegalStateException e) {
+            throw new IOException(e.getMessage(), e.getCause());
+        }
+    }
+
+    @Override
+    protected void closeSource() throws IOException {
+        ciphertext.close();
+    }
+}
@@ -0,0 +1,33 @@
+package org.trilgar.medimage.ssl.crypto;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Reads plaintext one chunk at a time and hands out the sealed chunks, so memory stays at two chunk buffers
+ * regardless of the blob size.
+ */
+class EncryptingInputStream extends ChunkedInputStream {
+
+    private final InputStream plaintext;
+
+    EncryptingInputStream(InputStream plaintext, ChunkCipher cipher, Envelope envelope, BufferPool buffers) {
+        super(cipher, envelope, 0, envelope.chunkCount(), buffers);
+        this.plaintext = plaintext;
+    }
+
+    @Override
+    protected int nextChunk(long index, boolean last, byte[] in, byte[] out) throws IOException {
+        int length = envelope.plaintextChunkLength(index);
+        if (plaintext.readNBytes(in, 0, length) != length) {
+            throw new EOFException("Plaintext is shorter than the " + envelope.plaintextLength() + " bytes announced");
+        }
+        return cipher.encrypt(index, last, in, 0, length, out, 0);
+    }
+
+    @Override
+    protected void closeSource() throws IOException {
+        plaintext.close();
+    }
+}
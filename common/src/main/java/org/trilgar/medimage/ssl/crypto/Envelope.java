@@ -0,0 +1,53 @@
+package org.trilgar.medimage.ssl.crypto;
+
+import java.util.Base64;
+
+/**
+ * Everything needed to decrypt one blob besides the key-encryption key: the blob's own data key wrapped by
+ * {@code keyId}, the nonce prefix and the chunk layout. Stored next to the blob (S3 user metadata, a column),
+ * so rotating the key-encryption key only replaces the envelope.
+ * <p>
+ * The ciphertext is the plaintext cut into {@code chunkSize} chunks, each followed by its 16-byte GCM tag.
+ * Chunk {@code i} starts at {@code i * (chunkSize + 16)}, so any plaintext range maps to whole chunks.
+ */
+public record Envelope(String keyId, byte[] wrappedKey, byte[] noncePrefix, int chunkSize, long plaintextLength) {
+
+    public static final int TAG_LENGTH = 16;
+    private static final String VERSION = "1";
+
+    public long chunkCount() {
+        return Math.max(1, (plaintextLength + chunkSize - 1) / chunkSize);
+    }
+
+    public long ciphertextLength() {
+        return plaintextLength + chunkCount() * TAG_LENGTH;
+    }
+
+    public int plaintextChunkLength(long index) {
+        return (int) Math.min(chunkSize, plaintextLength - index * chunkSize);
+    }
+
+    public long ciphertextChunkOffset(long index) {
+        return index * (chunkSize + TAG_LENGTH);
+    }
+
+    public Envelope withKey(String newKeyId, byte[] newWrappedKey) {
+        return new Envelope(newKeyId, newWrappedKey, noncePrefix, chunkSize, plaintextLength);
+    }
+
+    public String encode() {
+        Base64.Encoder base64 = Base64.getEncoder();
+        return String.join(":", VERSION, keyId, base64.encodeToString(wrappedKey),
+                base64.encodeToString(noncePrefix), Integer.toString(chunkSize), Long.toString(plaintextLength));
+    }
+
+    public static Envelope decode(String encoded) {
+        String[] parts = encoded.split(":");
+        if (parts.length != 6 || !VERSION.equals(parts[0])) {
+            throw new IllegalArgumentException("Unsupported encryption envelope");
+        }
+        Base64.Decoder base64 = Base64.getDecoder();
+        return new Envelope(parts[1], base64.decode(parts[2]), base64.decode(parts[3]),
+                Integer.parseInt(parts[4]), Long.parseLong(parts[5]));
+    }
+}
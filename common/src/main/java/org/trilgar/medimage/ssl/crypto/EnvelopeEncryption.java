@@ -0,0 +1,201 @@
+package org.trilgar.medimage.ssl.crypto;
+
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.SecureRandom;
+
+/**
+ * Envelope encryption for stored blobs: each blob gets a fresh 256-bit data key, sealed chunk by chunk with
+ * AES-GCM; the data key is wrapped with the active key of the {@link KeyRing} and kept in the blob's
+ * {@link Envelope}. Rotating the key ring means re-wrapping envelopes ({@link #rewrap}), never re-encrypting blobs.
+ * <p>
+ * When disabled, {@link #isEnabled()} is {@code false} and callers store plaintext.
+ */
+public class EnvelopeEncryption {
+
+    private static final int DATA_KEY_LENGTH = 32;
+    private static final int POOLED_BUFFERS = 64;
+
+    private final KeyRing keyRing;
+    private final int chunkSize;
+    private final BufferPool buffers;
+    private final SecureRandom random = new SecureRandom();
+
+    public EnvelopeEncryption(KeyRing keyRing, int chunkSize) {
+        this.keyRing = keyRing;
+        this.chunkSize = chunkSize;
+        this.buffers = new BufferPool(chunkSize + Envelope.TAG_LENGTH, POOLED_BUFFERS);
+    }
+
+    public static EnvelopeEncryption disabled() {
+        return new EnvelopeEncryption(null, 0);
+    }
+
+    public boolean isEnabled() {
+        return keyRing != null;
+    }
+
+    public String activeKeyId() {
+        return keyRing().activeKeyId();
+    }
+
+    public int chunkSize() {
+        return chunkSize;
+    }
+
+    public boolean hasRetiredKeys() {
+        return isEnabled() && keyRing.hasRetiredKeys();
+    }
+
+    /**
+     * Creates the data key and envelope for a blob of {@code plaintextLength} bytes.
+     */
+    public Envelope newEnvelope(long plaintextLength) {
+        KeyRing keys = keyRing();
+        byte[] dataKey = new byte[DATA_KEY_LENGTH];
+        byte[] noncePrefix = new byte[ChunkCipher.NONCE_PREFIX_LENGTH];
+        random.nextBytes(dataKey);
+        random.nextBytes(noncePrefix);
+        if ((plaintextLength + chunkSize - 1) / chunkSize > 0xFFFFFFFFL) {
+            throw new IllegalArgumentException("Blob of " + plaintextLength + " bytes has too many chunks");
+        }
+        byte[] wrappedKey = keys.wrap(new SecretKeySpec(dataKey, "AES"));
+        return new Envelope(keys.activeKeyId(), wrappedKey, noncePrefix, chunkSize, plaintextLength);
+    }
+
+    /**
+     * @param plaintext exactly {@code envelope.plaintextLength()} bytes
+     * @return {@code envelope.ciphertextLength()} bytes of ciphertext, produced as it is read
+     */
+    public InputStream encrypt(InputStream plaintext, Envelope envelope) {
+        return new EncryptingInputStream(plaintext, cipher(envelope), envelope, buffers);
+    }
+
+    public InputStream decrypt(InputStream ciphertext, Envelope envelope) {
+        return new DecryptingInputStream(ciphertext, cipher(envelope), envelope, 0, envelope.chunkCount(), buffers);
+    }
+
+    /**
+     * @param ciphertext the bytes {@code range.start()} to {@code range.end()} of the blob
+     * @return the {@code range.length()} plaintext bytes of the range
+     */
+    public InputStream decrypt(InputStream ciphertext, Envelope envelope, CiphertextRange range) {
+        InputStream chunks = new DecryptingInputStream(ciphertext, cipher(envelope), envelope, range.firstChunk(),
+                range.endChunk(), buffers);
+        return new RangeInputStream(chunks, range.skip(), range.length());
+    }
+
+    public CiphertextRange range(Envelope envelope, long offset, long length) {
+        return CiphertextRange.of(envelope, offset, length);
+    }
+
+    /**
+     * The range to fetch when the envelope is not known yet, assuming the blob was written with the configured
+     * chunk size. Check it with {@link CiphertextRange#covers} once the envelope is there.
+     */
+    public CiphertextRange range(long offset, long length) {
+        return CiphertextRange.assuming(chunkSize, offset, length);
+    }
+
+    public byte[] encrypt(byte[] plaintext, Envelope envelope) {
+        ChunkCipher cipher = cipher(envelope);
+        byte[] ciphertext = new byte[Math.toIntExact(envelope.ciphertextLength())];
+        long chunkCount = envelope.chunkCount();
+        for (long i = 0; i < chunkCount; i++) {
+            cipher.encrypt(i, i == chunkCount - 1, plaintext, (int) (i * envelope.chunkSize()),
+                    envelope.plaintextChunkLength(i), ciphertext, (int) envelope.ciphertextChunkOffset(i));
+        }
+        return ciphertext;
+    }
+
+    public byte[] decrypt(byte[] ciphertext, Envelope envelope) {
+        if (ciphertext.length != envelope.ciphertextLength()) {
+            throw new IllegalStateException("Encrypted blob has " + ciphertext.length + " bytes, expected "
+                    + envelope.ciphertextLength());
+        }
+        ChunkCipher cipher = cipher(envelope);
+        byte[] plaintext = new byte[Math.toIntExact(envelope.plaintextLength())];
+        long chunkCount = envelope.chunkCount();
+        for (long i = 0; i < chunkCount; i++) {
+            cipher.decrypt(i, i == chunkCount - 1, ciphertext, (int) envelope.ciphertextChunkOffset(i),
+                    envelope.plaintextChunkLength(i) + Envelope.TAG_LENGTH, plaintext, (int) (i * envelope.chunkSize()));
+        }
+        return plaintext;
+    }
+
+    public boolean needsRewrap(Envelope envelope) {
+        return !envelope.keyId().equals(keyRing().activeKeyId());
+    }
+
+    /**
+     * @return the same envelope with the data key wrapped by the active key; the blob itself is unchanged
+     */
+    public Envelope rewrap(Envelope envelope) {
+        SecretKey dataKey = keyRing().unwrap(envelope.keyId(), envelope.wrappedKey());
+        return envelope.withKey(keyRing.activeKeyId(), keyRing.wrap(dataKey));
+    }
+
+    private KeyRing keyRing() {
+        if (keyRing == null) {
+            throw new IllegalStateException("Encrypted data found, but storage.encryption is not enabled");
+        }
+        return keyRing;
+    }
+
+    private ChunkCipher cipher(Envelope envelope) {
+        return new ChunkCipher(keyRing().unwrap(envelope.keyId(), envelope.wrappedKey()), envelope.noncePrefix());
+    }
+
+    private static final class RangeInputStream extends InputStream {
+
+        private final InputStream source;
+        private int skip;
+        private long remaining;
+
+        RangeInputStream(InputStream source, int skip, long length) {
+            this.source = source;
+            this.skip = skip;
+            this.remaining = length;
+        }
+
+        private void skipLeading() throws IOException {
+            if (skip > 0) {
+                source.skipNBytes(skip);
+                skip = 0;
+            }
+        }
+
+        @Override
+        public int read() throws IOException {
+            skipLeading();
+            if (remaining == 0) {
+                return -1;
+            }
+            int b = source.read();
+            if (b >= 0) {
+                remaining--;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            skipLeading();
+            if (remaining == 0) {
+                return len == 0 ? 0 : -1;
+            }
+            int count = source.read(b, off, (int) Math.min(len, remaining));
+            if (count > 0) {
+                remaining -= count;
+            }
+            return count;
+        }
+
+        @Override
+        public void close() throws IOException {
+            source.close();
+        }
+    }
+}
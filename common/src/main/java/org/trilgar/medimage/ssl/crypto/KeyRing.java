@@ -0,0 +1,85 @@
+package org.trilgar.medimage.ssl.crypto;
+
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+import java.security.GeneralSecurityException;
+import java.security.Key;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The key-encryption keys by id. New data keys are wrapped (RFC 3394 {@code AESWrap}) with the active one;
+ * older ids stay listed as long as envelopes wrapped with them exist.
+ */
+public class KeyRing {
+
+    private static final String WRAP_ALGORITHM = "AESWrap";
+
+    private final Map<String, SecretKey> keys;
+    private final String activeKeyId;
+
+    public KeyRing(Map<String, SecretKey> keys, String activeKeyId) {
+        if (!keys.containsKey(activeKeyId)) {
+            throw new IllegalStateException("Active encryption key '" + activeKeyId + "' is not configured");
+        }
+        this.keys = Map.copyOf(keys);
+        this.activeKeyId = activeKeyId;
+    }
+
+    /**
+     * @param spec comma-separated {@code id:base64-key} pairs, keys of 16, 24 or 32 bytes
+     */
+    public static KeyRing parse(String spec, String activeKeyId) {
+        Map<String, SecretKey> keys = new LinkedHashMap<>();
+        for (String entry : spec.split(",")) {
+            if (entry.isBlank()) {
+                continue;
+            }
+            int separator = entry.indexOf(':');
+            if (separator <= 0) {
+                throw new IllegalStateException("Encryption keys must be given as id:base64-key");
+            }
+            keys.put(entry.substring(0, separator).trim(),
+                    new SecretKeySpec(Base64.getDecoder().decode(entry.substring(separator + 1).trim()), "AES"));
+        }
+        return new KeyRing(keys, activeKeyId);
+    }
+
+    public String activeKeyId() {
+        return activeKeyId;
+    }
+
+    /**
+     * Only data keys wrapped with a retired key that is still configured can be re-wrapped.
+     */
+    public boolean hasRetiredKeys() {
+        return keys.size() > 1;
+    }
+
+    public byte[] wrap(SecretKey dataKey) {
+        try {
+            Cipher cipher = Cipher.getInstance(WRAP_ALGORITHM);
+            cipher.init(Cipher.WRAP_MODE, keys.get(activeKeyId));
+            return cipher.wrap(dataKey);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Could not wrap data key", e);
+        }
+    }
+
+    public SecretKey unwrap(String keyId, byte[] wrappedKey) {
+        SecretKey keyEncryptionKey = keys.get(keyId);
+        if (keyEncryptionKey == null) {
+            throw new IllegalStateException("Encryption key '" + keyId + "' is not configured");
+        }
+        try {
+            Cipher cipher = Cipher.getInstance(WRAP_ALGORITHM);
+            cipher.init(Cipher.UNWRAP_MODE, keyEncryptionKey);
+            Key key = cipher.unwrap(wrappedKey, "AES", Cipher.SECRET_KEY);
+            return (SecretKey) key;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Could not unwrap data key with '" + keyId + "'", e);
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package org.trilgar.medimage.ssl.crypto.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.unit.DataSize;
+import org.trilgar.medimage.ssl.crypto.EnvelopeEncryption;
+import org.trilgar.medimage.ssl.crypto.KeyRing;
+
+/**
+ * Encryption at rest for stored images. Off unless {@code storage.encryption.enabled}; once on, the key ring
+ * must name at least the active key, and every key any stored envelope was wrapped with.
+ */
+@Slf4j
+@Configuration
+public class CommonEncryptionConfig {
+
+    @Bean
+    public EnvelopeEncryption envelopeEncryption(@Value("${storage.encryption.enabled:false}") boolean enabled,
+                                                 @Value("${storage.encryption.keys:}") String keys,
+                                                 @Value("${storage.encryption.active-key:}") String activeKey,
+                                                 @Value("${storage.encryption.chunk-size:64KB}") DataSize chunkSize) {
+        if (!enabled) {
+            return EnvelopeEncryption.disabled();
+        }
+        if (keys.isBlank() || activeKey.isBlank()) {
+            throw new IllegalStateException(
+                    "storage.encryption.enabled needs storage.encryption.keys and storage.encryption.active-key");
+        }
+        log.info("Encrypting stored images with key '{}', {} chunks", activeKey, chunkSize);
+        return new EnvelopeEncryption(KeyRing.parse(keys, activeKey), Math.toIntExact(chunkSize.toBytes()));
+    }
+}
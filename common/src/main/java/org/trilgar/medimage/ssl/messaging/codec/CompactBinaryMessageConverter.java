@@ -0,0 +1,81 @@
+package org.trilgar.medimage.ssl.messaging.codec;
+
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.support.converter.AbstractMessageConverter;
+import org.springframework.amqp.support.converter.MessageConversionException;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Encodes the shared model DTOs with hand-written {@link MessageCodec}s instead of reflective JSON.
+ * A message is {@code [version][type tag][fields...]}; the tag identifies the DTO, so no type
+ * header is needed on the consumer side.
+ */
+public class CompactBinaryMessageConverter extends AbstractMessageConverter {
+
+    public static final String CONTENT_TYPE = "application/x-medimage-compact";
+    public static final int FORMAT_VERSION = 1;
+
+    private static final int INITIAL_BUFFER_SIZE = 128;
+
+    private final Map<Class<?>, Integer> tagsByType = new HashMap<>();
+    private final MessageCodec<?>[] codecsByTag = new MessageCodec<?>[128];
+
+    public CompactBinaryMessageConverter() {
+        register(1, ModelCodecs.PATIENT_EXAMINATION_REQUEST);
+        register(2, ModelCodecs.IMAGE_ANALYSIS_REQUEST);
+        register(3, ModelCodecs.RISK_ASSESSMENT_RESULT);
+        register(4, ModelCodecs.RESEARCH_COMPLETED_NOTIFICATION_EVENT);
+    }
+
+    public final void register(int tag, MessageCodec<?> codec) {
+        if (codecsByTag[tag] != null) {
+            throw new IllegalArgumentException("Tag " + tag + " is already used by " + codecsByTag[tag].type());
+        }
+        codecsByTag[tag] = codec;
+        tagsByType.put(codec.type(), tag);
+    }
+
+    public boolean supports(Class<?> type) {
+        return tagsByType.containsKey(type);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    protected Message createMessage(Object object, MessageProperties messageProperties) {
+        Integer tag = tagsByType.get(object.getClass());
+        if (tag == null) {
+            throw new MessageConversionException("No compact codec registered for " + object.getClass().getName());
+        }
+        CompactBinaryWriter writer = new CompactBinaryWriter(INITIAL_BUFFER_SIZE);
+        writer.writeByte(FORMAT_VERSION);
+        writer.writeByte(tag);
+        ((MessageCodec<Object>) codecsByTag[tag]).write(object, writer);
+
+        byte[] body = writer.toByteArray();
+        messageProperties.setContentType(CONTENT_TYPE);
+        messageProperties.setContentLength(body.length);
+        return new Message(body, messageProperties);
+    }
+
+    @Override
+    public Object fromMessage(Message message) {
+        try {
+            CompactBinaryReader reader = new CompactBinaryReader(message.getBody());
+            int version = reader.readByte();
+            if (version != FORMAT_VERSION) {
+                throw new MessageConversionException("Unsupported compact format version " + version);
+            }
+            int tag = reader.readByte();
+            MessageCodec<?> codec = tag > 0 && tag < codecsByTag.length ? codecsByTag[tag] : null;
+            if (codec == null) {
+                throw new MessageConversionException("Unknown compact type tag " + tag);
+            }
+            return codec.read(reader);
+        } catch (IllegalArgumentException e) {
+            throw new MessageConversionException("Malformed compact message", e);
+        }
+    }
+}
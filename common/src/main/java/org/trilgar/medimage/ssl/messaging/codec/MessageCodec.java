@@ -0,0 +1,9 @@
+package org.trilgar.medimage.ssl.messaging.codec;
+
+public interface MessageCodec<T> {
+    Class<T> type();
+
+    void write(T value, CompactBinaryWriter writer);
+
+    T read(CompactBinaryReader reader);
+}
@@ -0,0 +1,138 @@
+package org.trilgar.medimage.ssl.messaging.codec;
+
+import org.trilgar.medimage.ssl.model.ImageAnalysisRequest;
+import org.trilgar.medimage.ssl.model.PatientExaminationRequest;
+import org.trilgar.medimage.ssl.model.ResearchCompletedNotificationEvent;
+import org.trilgar.medimage.ssl.model.RiskAssessmentResult;
+
+/**
+ * Hand-written codecs for the shared model DTOs. Field order is the wire format: append new
+ * fields at the end and bump {@link CompactBinaryMessageConverter#FORMAT_VERSION} when an
+ * existing field changes. Appended fields are read only if {@link CompactBinaryReader#hasRemaining()},
+ * so messages from producers that predate them still decode.
+ */
+public final class ModelCodecs {
+
+    public static final MessageCodec<PatientExaminationRequest> PATIENT_EXAMINATION_REQUEST = new MessageCodec<>() {
+        @Override
+        public Class<PatientExaminationRequest> type() {
+            return PatientExaminationRequest.class;
+        }
+
+        @Override
+        public void write(PatientExaminationRequest value, CompactBinaryWriter writer) {
+            writer.writeUuid(value.getRequestId());
+            writer.writeUuid(value.getPatientId());
+            writer.writeString(value.getPatientFullName());
+            writer.writeString(value.getExaminationType());
+            writer.writeString(value.getDoctorNotes());
+            writer.writeDateTime(value.getRequestedAt());
+            writer.writeBoolean(value.isUrgent());
+        }
+
+        @Override
+        public PatientExaminationRequest read(CompactBinaryReader reader) {
+            return new PatientExaminationRequest(
+                    reader.readUuid(),
+                    reader.readUuid(),
+                    reader.readString(),
+                    reader.readString(),
+                    reader.readString(),
+                    reader.readDateTime(),
+                    reader.readBoolean()
+            );
+        }
+    };
+
+    public static final MessageCodec<ImageAnalysisRequest> IMAGE_ANALYSIS_REQUEST = new MessageCodec<>() {
+        @Override
+        public Class<ImageAnalysisRequest> type() {
+            return ImageAnalysisRequest.class;
+        }
+
+        @Override
+        public void write(ImageAnalysisRequest value, CompactBinaryWriter writer) {
+            writer.writeUuid(value.getRequestId());
+            writer.writeUuid(value.getPatientId());
+            writer.writeString(value.getS3ObjectKey());
+            writer.writeString(value.getModality());
+            writer.writeUuid(value.getSeriesId());
+        }
+
+        @Override
+        public ImageAnalysisRequest read(CompactBinaryReader reader) {
+            return new ImageAnalysisRequest(
+                    reader.readUuid(),
+                    reader.readUuid(),
+                    reader.readString(),
+                    reader.readString(),
+                    reader.hasRemaining() ? reader.readUuid() : null
+            );
+        }
+    };
+
+    public static final MessageCodec<RiskAssessmentResult> RISK_ASSESSMENT_RESULT = new MessageCodec<>() {
+        @Override
+        public Class<RiskAssessmentResult> type() {
+            return RiskAssessmentResult.class;
+        }
+
+        @Override
+        public void write(RiskAssessmentResult value, CompactBinaryWriter writer) {
+            writer.writeUuid(value.getRequestId());
+            writer.writeUuid(value.getPatientId());
+            writer.writeString(value.getS3ObjectKey());
+            writer.writeDouble(value.getRiskScore());
+            writer.writeString(value.getDiagnosisLabel());
+            writer.writeBoolean(value.isCritical());
+            writer.writeDateTime(value.getAnalyzedAt());
+            writer.writeUuid(value.getSeriesId());
+        }
+
+        @Override
+        public RiskAssessmentResult read(CompactBinaryReader reader) {
+            return new RiskAssessmentResult(
+                    reader.readUuid(),
+                    reader.readUuid(),
+                    reader.readString(),
+                    reader.readDouble(),
+                    reader.readString(),
+                    reader.readBoolean(),
+                    reader.readDateTime(),
+                    reader.hasRemaining() ? reader.readUuid() : null
+            );
+        }
+    };
+
+    public static final MessageCodec<ResearchCompletedNotificationEvent> RESEARCH_COMPLETED_NOTIFICATION_EVENT = new MessageCodec<>() {
+        @Override
+        public Class<ResearchCompletedNotificationEvent> type() {
+            return ResearchCompletedNotificationEvent.class;
+        }
+
+        @Override
+        public void write(ResearchCompletedNotificationEvent value, CompactBinaryWriter writer) {
+            writer.writeUuid(value.getPatientId());
+            writer.writeUuid(value.getRequestId());
+            writer.writeString(value.getMessage());
+            writer.writeString(value.getType());
+            writer.writeString(value.getDiagnosis());
+            writer.writeNullableDouble(value.getRiskScore());
+        }
+
+        @Override
+        public ResearchCompletedNotificationEvent read(CompactBinaryReader reader) {
+            return new ResearchCompletedNotificationEvent(
+                    reader.readUuid(),
+                    reader.readUuid(),
+                    reader.readString(),
+                    reader.readString(),
+                    reader.readString(),
+                    reader.readNullableDouble()
+            );
+        }
+    };
+
+    private ModelCodecs() {
+    }
+}
@@ -0,0 +1,63 @@
+package org.trilgar.medimage.ssl.messaging.codec;
+
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
+import org.springframework.amqp.support.converter.MessageConversionException;
+import org.springframework.amqp.support.converter.SmartMessageConverter;
+
+import java.lang.reflect.Type;
+
+/**
+ * Reads both JSON and compact binary messages, choosing by the message content type, and writes
+ * the configured outbound format. This lets consumers accept both encodings before producers
+ * switch, so the binary format can be rolled out one service at a time.
+ */
+public class NegotiatingMessageConverter implements SmartMessageConverter {
+
+    public enum Format {
+        JSON,
+        COMPACT
+    }
+
+    private final Jackson2JsonMessageConverter json;
+    private final CompactBinaryMessageConverter compact;
+    private final Format outboundFormat;
+
+    public NegotiatingMessageConverter(Jackson2JsonMessageConverter json, CompactBinaryMessageConverter compact, Format outboundFormat) {
+        this.json = json;
+        this.compact = compact;
+        this.outboundFormat = outboundFormat;
+    }
+
+    @Override
+    public Message toMessage(Object object, MessageProperties messageProperties) throws MessageConversionException {
+        if (outboundFormat == Format.COMPACT && compact.supports(object.getClass())) {
+            return compact.toMessage(object, messageProperties);
+        }
+        return json.toMessage(object, messageProperties);
+    }
+
+    @Override
+    public Message toMessage(Object object, MessageProperties messageProperties, Type genericType) throws MessageConversionException {
+        if (outboundFormat == Format.COMPACT && compact.supports(object.getClass())) {
+            return compact.toMessage(object, messageProperties, genericType);
+        }
+        return json.toMessage(object, messageProperties, genericType);
+    }
+
+    @Override
+    public Object fromMessage(Message message) throws MessageConversionException {
+        return isCompact(message) ? compact.fromMessage(message) : json.fromMessage(message);
+    }
+
+    @Override
+    public Object fromMessage(Message message, Object conversionHint) throws MessageConversionException {
+        return isCompact(message) ? compact.fromMessage(message) : json.fromMessage(message, conversionHint);
+    }
+
+    private static boolean isCompact(Message message) {
+        String contentType = message.getMessageProperties().getContentType();
+        return contentType != null && contentType.startsWith(CompactBinaryMessageConverter.CONTENT_TYPE);
+    }
+}
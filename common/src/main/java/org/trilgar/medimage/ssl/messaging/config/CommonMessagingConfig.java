@@ -0,0 +1,143 @@
+package org.trilgar.medimage.ssl.messaging.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.amqp.core.AmqpAdmin;
+import org.springframework.amqp.rabbit.config.ContainerCustomizer;
+import org.springframework.amqp.rabbit.config.RetryInterceptorBuilder;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.amqp.rabbit.listener.SimpleMessageListenerContainer;
+import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
+import org.springframework.amqp.support.converter.MessageConverter;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.amqp.RabbitTemplateCustomizer;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.trilgar.medimage.ssl.messaging.codec.CompactBinaryMessageConverter;
+import org.trilgar.medimage.ssl.messaging.codec.NegotiatingMessageConverter;
+import org.trilgar.medimage.ssl.messaging.dedup.JdbcProcessedMessageStore;
+import org.trilgar.medimage.ssl.messaging.dedup.MessageDeduplicator;
+import org.trilgar.medimage.ssl.messaging.dedup.api.ProcessedMessageStore;
+import org.trilgar.medimage.ssl.messaging.lifecycle.InFlightMessages;
+import org.trilgar.medimage.ssl.messaging.retry.DeadLetterEndpoint;
+import org.trilgar.medimage.ssl.messaging.retry.RetryTopology;
+import org.trilgar.medimage.ssl.messaging.retry.RetryingMessageRecoverer;
+import org.trilgar.medimage.ssl.metrics.EnqueueTimestampPostProcessor;
+import org.trilgar.medimage.ssl.metrics.FirstMessageRecorder;
+import org.trilgar.medimage.ssl.metrics.QueueLagRecorder;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+@Configuration
+public class CommonMessagingConfig {
+
+    @Value("${messaging.outbound-format:json}")
+    private String outboundFormat;
+
+    @Bean
+    public MessageConverter messageConverter() {
+        return new NegotiatingMessageConverter(
+                new Jackson2JsonMessageConverter(),
+                new CompactBinaryMessageConverter(),
+                NegotiatingMessageConverter.Format.valueOf(outboundFormat.toUpperCase())
+        );
+    }
+
+    /**
+     * Publishes under an observation so the trace context travels in the message headers, and stamps
+     * the enqueue time used for queue lag.
+     */
+    @Bean
+    public RabbitTemplateCustomizer rabbitTemplateCustomizer() {
+        return template -> {
+            template.setObservationEnabled(true);
+            template.addBeforePublishPostProcessors(new EnqueueTimestampPostProcessor());
+        };
+    }
+
+    /**
+     * Restores the trace context from the message headers around every {@code @RabbitListener} and
+     * records queue lag and time to first message. With observation enabled the container reports
+     * {@code spring.rabbit.listener} instead of the plain {@code spring.rabbitmq.listener} timer.
+     * A failed delivery is handed to {@link RetryingMessageRecoverer} right away instead of being requeued.
+     * On shutdown the container stops consuming and gives in-flight messages {@code messaging.shutdown.timeout}
+     * to finish, see {@link InFlightMessages}.
+     */
+    @Bean
+    public ContainerCustomizer<SimpleMessageListenerContainer> listenerContainerCustomizer(MeterRegistry meterRegistry,
+                                                                                       RetryingMessageRecoverer messageRecoverer,
+                                                                                       InFlightMessages inFlightMessages,
+                                                                                       @Value("${messaging.shutdown.timeout:30s}") Duration shutdownTimeout) {
+        QueueLagRecorder queueLagRecorder = new QueueLagRecorder(meterRegistry);
+        FirstMessageRecorder firstMessageRecorder = new FirstMessageRecorder(meterRegistry);
+        return container -> {
+            container.setObservationEnabled(true);
+            container.addAfterReceivePostProcessors(queueLagRecorder, firstMessageRecorder);
+            container.setAdviceChain(
+                    inFlightMessages.tracker(container.getListenerId()),
+                    RetryInterceptorBuilder.stateless()
+                            .maxAttempts(1)
+                            .recoverer(messageRecoverer)
+                            .build());
+            container.setShutdownTimeout(shutdownTimeout.toMillis());
+        };
+    }
+
+    /**
+     * Also the {@code inFlightMessages} health contributor, meant for the readiness group.
+     */
+    @Bean
+    public InFlightMessages inFlightMessages(MeterRegistry meterRegistry) {
+        return new InFlightMessages(meterRegistry);
+    }
+
+    /**
+     * Backoff steps are {@code initial-delay * multiplier^n} for {@code max-retries} steps, 2 s, 10 s and
+     * 50 s by default.
+     */
+    @Bean
+    public RetryTopology retryTopology(@Value("${messaging.retry.initial-delay:2s}") Duration initialDelay,
+                                       @Value("${messaging.retry.multiplier:5}") double multiplier,
+                                       @Value("${messaging.retry.max-retries:3}") int maxRetries) {
+        return new RetryTopology(initialDelay, multiplier, maxRetries);
+    }
+
+    @Bean
+    public RetryingMessageRecoverer retryingMessageRecoverer(RabbitTemplate rabbitTemplate,
+                                                             RetryTopology retryTopology,
+                                                             MeterRegistry meterRegistry) {
+        return new RetryingMessageRecoverer(rabbitTemplate, retryTopology, meterRegistry);
+    }
+
+    @Bean
+    public DeadLetterEndpoint deadLetterEndpoint(RabbitTemplate rabbitTemplate, AmqpAdmin amqpAdmin,
+                                                 RetryTopology retryTopology) {
+        return new DeadLetterEndpoint(rabbitTemplate, amqpAdmin, retryTopology);
+    }
+
+    /**
+     * Deduplicates in memory unless {@code messaging.dedup.store=jdbc} adds the shared
+     * {@code processed_messages} table behind the cache.
+     */
+    @Bean
+    public MessageDeduplicator messageDeduplicator(ObjectProvider<ProcessedMessageStore> processedMessageStore,
+                                                   @Value("${messaging.dedup.cache-size:10000}") int cacheSize,
+                                                   MeterRegistry meterRegistry) {
+        return new MessageDeduplicator(processedMessageStore.getIfAvailable(), cacheSize, meterRegistry);
+    }
+
+    @Configuration
+    @ConditionalOnProperty(name = "messaging.dedup.store", havingValue = "jdbc")
+    static class JdbcDeduplicationConfig {
+
+        @Bean
+        public JdbcProcessedMessageStore processedMessageStore(DataSource dataSource,
+                                                               @Value("${messaging.dedup.ttl:7d}") Duration ttl,
+                                                               @Value("${messaging.dedup.cleanup-interval:1h}") Duration cleanupInterval) {
+            return new JdbcProcessedMessageStore(new JdbcTemplate(dataSource), ttl, cleanupInterval);
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package org.trilgar.medimage.ssl.messaging.dedup;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.trilgar.medimage.ssl.messaging.dedup.api.ProcessedMessageStore;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps handled message keys in {@code processed_messages}, one narrow row per (consumer, key), so
+ * deduplication survives restarts and is shared by all instances of a service. Rows older than {@code ttl}
+ * are deleted every {@code cleanupInterval}.
+ * <p>
+ * The table is created by the schema migrations of each service that uses this store. Cleanup is scheduled
+ * on lifecycle start.
+ */
+@Slf4j
+public class JdbcProcessedMessageStore implements ProcessedMessageStore, SmartLifecycle {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Duration ttl;
+    private final Duration cleanupInterval;
+    private ScheduledExecutorService cleanupExecutor;
+    private volatile boolean running;
+
+    public JdbcProcessedMessageStore(JdbcTemplate jdbcTemplate, Duration ttl, Duration cleanupInterval) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.ttl = ttl;
+        this.cleanupInterval = cleanupInterval;
+    }
+
+    @Override
+    public boolean contains(String consumer, String messageKey) {
+        Boolean exists = jdbcTemplate.queryForObject(
+                "SELECT EXISTS (SELECT 1 FROM processed_messages WHERE consumer = ? AND message_key = ?)",
+                Boolean.class, consumer, messageKey);
+        return Boolean.TRUE.equals(exists);
+    }
+
+    @Override
+    public void record(String consumer, String messageKey) {
+        jdbcTemplate.update(
+                "INSERT INTO processed_messages (consumer, message_key, processed_at) VALUES (?, ?, ?) ON CONFLICT DO NOTHING",
+                consumer, messageKey, Timestamp.from(Instant.now()));
+    }
+
+    @Override
+    public int deleteOlderThan(Instant cutoff) {
+        return jdbcTemplate.update("DELETE FROM processed_messages WHERE processed_at < ?", Timestamp.from(cutoff));
+    }
+
+    @Override
+    public void start() {
+        cleanupExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "dedup-cleanup");
+            thread.setDaemon(true);
+            return thread;
+        });
+        cleanupExecutor.scheduleWithFixedDelay(this::cleanUp,
+                cleanupInterval.toMillis(), cleanupInterval.toMillis(), TimeUnit.MILLISECONDS);
+        running = true;
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        if (cleanupExecutor != null) {
+            cleanupExecutor.shutdownNow();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        return DEFAULT_PHASE - 1000;
+    }
+
+    private void cleanUp() {
+        try {
+            int deleted = deleteOlderThan(Instant.now().minus(ttl));
+            if (deleted > 0) {
+                log.info("Removed {} processed message keys older than {}", deleted, ttl);
+            }
+        } catch (RuntimeException e) {
+            log.warn("Processed message cleanup failed: {}", e.getMessage());
+        }
+    }
+}
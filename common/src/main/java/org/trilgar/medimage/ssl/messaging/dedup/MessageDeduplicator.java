@@ -0,0 +1,110 @@
+package org.trilgar.medimage.ssl.messaging.dedup;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.trilgar.medimage.ssl.messaging.dedup.api.ProcessedMessageStore;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Skips messages a consumer has already handled, keyed by consumer name and message key (the request id).
+ * Keys are looked up in a bounded LRU cache first, then in the optional {@link ProcessedMessageStore}, so a
+ * redelivery is dropped before the handler does any I/O. A key is only recorded after the handler returned;
+ * if it throws, the message stays eligible for redelivery. A copy arriving while the same key is still being
+ * handled is dropped too: if the first one fails, the broker redelivers that one.
+ * <p>
+ * There is a short window between the handler's own commit and recording the key in which a crash leads
+ * to one more run; handlers should stay safe to repeat in that case.
+ */
+@Slf4j
+public class MessageDeduplicator {
+
+    public static final String METRIC_NAME = "messaging.dedup.duplicates";
+
+    private final ProcessedMessageStore store;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, Boolean> recentKeys;
+    private final Set<String> inFlightKeys = ConcurrentHashMap.newKeySet();
+    private final ReentrantLock lock = new ReentrantLock();
+
+    /**
+     * @param store durable store shared by all instances, or {@code null} to deduplicate in memory only
+     */
+    public MessageDeduplicator(ProcessedMessageStore store, int cacheSize, MeterRegistry meterRegistry) {
+        this.store = store;
+        this.meterRegistry = meterRegistry;
+        this.recentKeys = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+                return size() > cacheSize;
+            }
+        };
+    }
+
+    /**
+     * Runs {@code handler} unless {@code messageKey} was already handled by {@code consumer}.
+     *
+     * @return {@code false} if the message was a duplicate and the handler was not run
+     */
+    public boolean process(String consumer, Object messageKey, Runnable handler) {
+        if (messageKey == null) {
+            handler.run();
+            return true;
+        }
+        String key = messageKey.toString();
+        String cacheKey = consumer + '|' + key;
+
+        if (isRecent(cacheKey)) {
+            return duplicate(consumer, key, "cache");
+        }
+        if (!inFlightKeys.add(cacheKey)) {
+            return duplicate(consumer, key, "in_flight");
+        }
+        try {
+            if (store != null && store.contains(consumer, key)) {
+                remember(cacheKey);
+                return duplicate(consumer, key, "store");
+            }
+            handler.run();
+            remember(cacheKey);
+            if (store != null) {
+                try {
+                    store.record(consumer, key);
+                } catch (RuntimeException e) {
+                    log.warn("Could not record message {} for {}: {}", key, consumer, e.getMessage());
+                }
+            }
+            return true;
+        } finally {
+            inFlightKeys.remove(cacheKey);
+        }
+    }
+
+    private boolean duplicate(String consumer, String key, String source) {
+        log.info("Skipping duplicate message {} for {} (seen in {})", key, consumer, source);
+        meterRegistry.counter(METRIC_NAME, "consumer", consumer, "source", source).increment();
+        return false;
+    }
+
+    private boolean isRecent(String cacheKey) {
+        lock.lock();
+        try {
+            return recentKeys.get(cacheKey) != null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void remember(String cacheKey) {
+        lock.lock();
+        try {
+            recentKeys.put(cacheKey, Boolean.TRUE);
+        } finally {
+            lock.unlock();
+        }
+    }
+}
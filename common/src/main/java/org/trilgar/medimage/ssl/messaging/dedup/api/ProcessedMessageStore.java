@@ -0,0 +1,9 @@
+package org.trilgar.medimage.ssl.messaging.dedup.api;
+
+import java.time.Instant;
+
+public interface ProcessedMessageStore {
+    boolean contains(String consumer, String messageKey);
+    void record(String consumer, String messageKey);
+    int deleteOlderThan(Instant cutoff);
+}
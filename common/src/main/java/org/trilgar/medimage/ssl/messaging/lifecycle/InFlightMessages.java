@@ -0,0 +1,86 @@
+package org.trilgar.medimage.ssl.messaging.lifecycle;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.event.ContextClosedEvent;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Counts the messages each listener container is handling right now. Once the context starts closing, the
+ * service reports {@code OUT_OF_SERVICE} on readiness together with the counts, while the containers stop
+ * consuming and wait up to {@code messaging.shutdown.timeout} for those messages to finish. Messages still
+ * running after that go back to the queue when the channel closes; prefetched ones that never started always do.
+ */
+@Slf4j
+public class InFlightMessages implements HealthIndicator, ApplicationListener<ContextClosedEvent> {
+
+    public static final String METRIC_NAME = "messaging.listener.in.flight";
+
+    private final MeterRegistry meterRegistry;
+    private final Map<String, AtomicInteger> inFlight = new ConcurrentHashMap<>();
+    private volatile boolean draining;
+
+    public InFlightMessages(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Advice for the container of {@code listenerId}; must be the outermost one so retries and recovery are
+     * counted as part of the message.
+     */
+    public MethodInterceptor tracker(String listenerId) {
+        AtomicInteger count = inFlight.computeIfAbsent(listenerId, id -> {
+            AtomicInteger counter = new AtomicInteger();
+            Gauge.builder(METRIC_NAME, counter, AtomicInteger::get)
+                    .description("Messages the listener is handling")
+                    .tag("listener", id)
+                    .register(meterRegistry);
+            return counter;
+        });
+        return invocation -> {
+            count.incrementAndGet();
+            try {
+                return invocation.proceed();
+            } finally {
+                count.decrementAndGet();
+            }
+        };
+    }
+
+    public int total() {
+        return inFlight.values().stream().mapToInt(AtomicInteger::get).sum();
+    }
+
+    public boolean isDraining() {
+        return draining;
+    }
+
+    @Override
+    public void onApplicationEvent(ContextClosedEvent event) {
+        draining = true;
+        log.info("Draining listeners, in flight: {}", snapshot());
+    }
+
+    @Override
+    public Health health() {
+        return (draining ? Health.outOfService() : Health.up())
+                .withDetail("draining", draining)
+                .withDetail("inFlight", snapshot())
+                .build();
+    }
+
+    private Map<String, Integer> snapshot() {
+        Map<String, Integer> counts = new TreeMap<>();
+        inFlight.forEach((listener, count) -> counts.put(listener, count.get()));
+        return counts;
+    }
+}
@@ -0,0 +1,87 @@
+package org.trilgar.medimage.ssl.messaging.retry;
+
+import com.rabbitmq.client.AMQP;
+import com.rabbitmq.client.GetResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.core.AmqpAdmin;
+import org.springframework.amqp.core.QueueInformation;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.lang.Nullable;
+import org.trilgar.medimage.ssl.metrics.EnqueueTimestampPostProcessor;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * {@code /actuator/deadletters}: {@code GET} lists the depth of every dead-letter queue this service consumes
+ * from, {@code POST /actuator/deadletters/{queue}} (optional body {@code {"limit": n}}) moves up to
+ * {@code limit} messages from {@code queue.dlq} back to {@code queue} with a fresh retry budget. Each message
+ * is acknowledged on the DLQ only after it was republished, so a failed replay leaves it where it was.
+ */
+@Slf4j
+@Endpoint(id = "deadletters")
+public class DeadLetterEndpoint {
+
+    private static final int DEFAULT_LIMIT = 100;
+
+    private final RabbitTemplate rabbitTemplate;
+    private final AmqpAdmin amqpAdmin;
+    private final RetryTopology retryTopology;
+
+    public DeadLetterEndpoint(RabbitTemplate rabbitTemplate, AmqpAdmin amqpAdmin, RetryTopology retryTopology) {
+        this.rabbitTemplate = rabbitTemplate;
+        this.amqpAdmin = amqpAdmin;
+        this.retryTopology = retryTopology;
+    }
+
+    @ReadOperation
+    public Map<String, Integer> deadLetters() {
+        Map<String, Integer> depths = new TreeMap<>();
+        for (String queue : retryTopology.getRetryableQueues()) {
+            String deadLetterQueue = RetryTopology.deadLetterQueue(queue);
+            QueueInformation info = amqpAdmin.getQueueInfo(deadLetterQueue);
+            depths.put(deadLetterQueue, info == null ? 0 : info.getMessageCount());
+        }
+        return depths;
+    }
+
+    @WriteOperation
+    public Map<String, Object> replay(@Selector String queue, @Nullable Integer limit) {
+        if (!retryTopology.hasRetries(queue)) {
+            throw new IllegalArgumentException("No dead-letter queue for " + queue);
+        }
+        String deadLetterQueue = RetryTopology.deadLetterQueue(queue);
+        int max = limit == null ? DEFAULT_LIMIT : limit;
+
+        Integer replayed = rabbitTemplate.execute(channel -> {
+            int count = 0;
+            while (count < max) {
+                GetResponse response = channel.basicGet(deadLetterQueue, false);
+                if (response == null) {
+                    break;
+                }
+                AMQP.BasicProperties props = response.getProps();
+                Map<String, Object> headers = props.getHeaders() == null ? new HashMap<>() : new HashMap<>(props.getHeaders());
+                headers.remove(RetryTopology.RETRY_ATTEMPT_HEADER);
+                headers.remove(RetryingMessageRecoverer.EXCEPTION_HEADER);
+                headers.remove(RetryingMessageRecoverer.ORIGINAL_QUEUE_HEADER);
+                headers.put(EnqueueTimestampPostProcessor.ENQUEUED_AT_HEADER, System.currentTimeMillis());
+                channel.basicPublish("", queue, props.builder().headers(headers).build(), response.getBody());
+                channel.basicAck(response.getEnvelope().getDeliveryTag(), false);
+                count++;
+            }
+            return count;
+        });
+
+        log.info("Replayed {} messages from {} to {}", replayed, deadLetterQueue, queue);
+        Map<String, Object> result = new HashMap<>();
+        result.put("queue", queue);
+        result.put("replayed", replayed);
+        return result;
+    }
+}
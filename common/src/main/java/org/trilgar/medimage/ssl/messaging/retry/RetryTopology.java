@@ -0,0 +1,104 @@
+package org.trilgar.medimage.ssl.messaging.retry;
+
+import org.springframework.amqp.core.Binding;
+import org.springframework.amqp.core.BindingBuilder;
+import org.springframework.amqp.core.Declarable;
+import org.springframework.amqp.core.Declarables;
+import org.springframework.amqp.core.DirectExchange;
+import org.springframework.amqp.core.Queue;
+import org.springframework.amqp.core.QueueBuilder;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Names and declarations for delayed retries of a work queue {@code q}:
+ * <ul>
+ *     <li>{@code q} itself dead-letters rejected messages to {@link #DEAD_LETTER_EXCHANGE} through the broker
+ *     policy {@value #DEAD_LETTER_POLICY} (pattern {@code _queue$}); they keep their routing key, which is
+ *     {@code q} for messages sent to the default exchange</li>
+ *     <li>{@code q.retry.<millis>}: one queue per backoff step, with that step as message TTL; expired
+ *     messages are dead-lettered back to {@code q} through the default exchange</li>
+ *     <li>{@code q.dlq}: bound to {@link #DEAD_LETTER_EXCHANGE} with key {@code q}, holds messages that
+ *     exhausted their retries or failed fatally</li>
+ * </ul>
+ * Each retry queue has a single TTL, so a waiting message never holds up one with a shorter delay. The
+ * consuming service declares the retry and dead-letter queues with {@link #declarablesFor(String)}.
+ * <p>
+ * Dead-lettering of {@code q} is a policy rather than a queue argument because arguments of an existing queue
+ * cannot change: redeclaring a queue with different ones fails with {@code PRECONDITION_FAILED}. A policy
+ * applies to queues already holding messages. Retry queues are new, so they carry their own arguments, which
+ * take precedence over the policy.
+ */
+public class RetryTopology {
+
+    public static final String DEAD_LETTER_EXCHANGE = "medimage.dlx";
+    public static final String RETRY_ATTEMPT_HEADER = "x-retry-attempt";
+    public static final String DEAD_LETTER_POLICY = "medimage-dead-letter";
+
+    private final List<Duration> delays;
+    private final Set<String> retryableQueues = ConcurrentHashMap.newKeySet();
+
+    public RetryTopology(Duration initialDelay, double multiplier, int maxRetries) {
+        List<Duration> steps = new ArrayList<>();
+        double millis = initialDelay.toMillis();
+        for (int i = 0; i < maxRetries; i++) {
+            steps.add(Duration.ofMillis(Math.round(millis)));
+            millis *= multiplier;
+        }
+        this.delays = List.copyOf(steps);
+    }
+
+    /**
+     * Declared without arguments, as before retries existed; {@value #DEAD_LETTER_POLICY} adds the dead-letter
+     * exchange. The name must end in {@code _queue} for the policy to match.
+     */
+    public static Queue workQueue(String queue) {
+        return QueueBuilder.durable(queue).build();
+    }
+
+    public static String deadLetterQueue(String queue) {
+        return queue + ".dlq";
+    }
+
+    public Declarables declarablesFor(String queue) {
+        List<Declarable> declarables = new ArrayList<>();
+        DirectExchange deadLetterExchange = new DirectExchange(DEAD_LETTER_EXCHANGE, true, false);
+        Queue deadLetterQueue = QueueBuilder.durable(deadLetterQueue(queue)).build();
+        declarables.add(deadLetterExchange);
+        declarables.add(deadLetterQueue);
+        declarables.add(BindingBuilder.bind(deadLetterQueue).to(deadLetterExchange).with(queue));
+        for (int attempt = 0; attempt < delays.size(); attempt++) {
+            declarables.add(QueueBuilder.durable(retryQueue(queue, attempt))
+                    .ttl((int) delays.get(attempt).toMillis())
+                    .deadLetterExchange("")
+                    .deadLetterRoutingKey(queue)
+                    .build());
+        }
+        retryableQueues.add(queue);
+        return new Declarables(declarables);
+    }
+
+    public String retryQueue(String queue, int attempt) {
+        return queue + ".retry." + delays.get(attempt).toMillis();
+    }
+
+    public boolean hasRetries(String queue) {
+        return retryableQueues.contains(queue);
+    }
+
+    public Set<String> getRetryableQueues() {
+        return Set.copyOf(retryableQueues);
+    }
+
+    public int getMaxRetries() {
+        return delays.size();
+    }
+
+    public List<Duration> getDelays() {
+        return delays;
+    }
+}
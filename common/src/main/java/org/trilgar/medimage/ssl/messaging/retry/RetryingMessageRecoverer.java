@@ -0,0 +1,84 @@
+package org.trilgar.medimage.ssl.messaging.retry;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.AmqpRejectAndDontRequeueException;
+import org.springframework.amqp.core.AmqpTemplate;
+import org.springframework.amqp.core.MessageDeliveryMode;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.rabbit.listener.ConditionalRejectingErrorHandler;
+import org.springframework.amqp.rabbit.listener.FatalExceptionStrategy;
+import org.springframework.amqp.rabbit.retry.MessageRecoverer;
+
+/**
+ * Handles a failed delivery without putting it back at the head of its queue: the message is published to
+ * the next retry queue of {@link RetryTopology} and the original is acknowledged, so the consumer moves on
+ * at once. When the retries are exhausted, or the failure can never succeed (for example a message that
+ * cannot be converted), it goes to the dead-letter queue with the cause in its headers. Messages from
+ * queues without retry topology are rejected, which drops them or hands them to the queue's own DLX.
+ */
+@Slf4j
+public class RetryingMessageRecoverer implements MessageRecoverer {
+
+    public static final String METRIC_NAME = "messaging.retry";
+    public static final String EXCEPTION_HEADER = "x-exception-message";
+    public static final String ORIGINAL_QUEUE_HEADER = "x-original-queue";
+
+    private final AmqpTemplate amqpTemplate;
+    private final RetryTopology retryTopology;
+    private final MeterRegistry meterRegistry;
+    private final FatalExceptionStrategy fatalExceptionStrategy = new ConditionalRejectingErrorHandler.DefaultExceptionStrategy();
+
+    public RetryingMessageRecoverer(AmqpTemplate amqpTemplate, RetryTopology retryTopology, MeterRegistry meterRegistry) {
+        this.amqpTemplate = amqpTemplate;
+        this.retryTopology = retryTopology;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public void recover(Message message, Throwable cause) {
+        MessageProperties properties = message.getMessageProperties();
+        String queue = properties.getConsumerQueue();
+
+        if (queue == null || !retryTopology.hasRetries(queue)) {
+            count(String.valueOf(queue), "rejected");
+            throw new AmqpRejectAndDontRequeueException("No retry topology for queue " + queue, cause);
+        }
+
+        Integer header = properties.getHeader(RetryTopology.RETRY_ATTEMPT_HEADER);
+        int attempt = header == null ? 0 : header;
+        if (properties.getDeliveryMode() == null) {
+            properties.setDeliveryMode(MessageDeliveryMode.PERSISTENT);
+        }
+        boolean fatal = fatalExceptionStrategy.isFatal(cause) || cause.getCause() instanceof AmqpRejectAndDontRequeueException;
+
+        if (!fatal && attempt < retryTopology.getMaxRetries()) {
+            String retryQueue = retryTopology.retryQueue(queue, attempt);
+            properties.setHeader(RetryTopology.RETRY_ATTEMPT_HEADER, attempt + 1);
+            log.warn("Message from {} failed (attempt {}), retrying via {}: {}",
+                    queue, attempt + 1, retryQueue, rootMessage(cause));
+            amqpTemplate.send("", retryQueue, message);
+            count(queue, "retried");
+            return;
+        }
+
+        properties.setHeader(EXCEPTION_HEADER, rootMessage(cause));
+        properties.setHeader(ORIGINAL_QUEUE_HEADER, queue);
+        log.error("Message from {} dead-lettered after {} attempts{}", queue, attempt + 1, fatal ? " (fatal error)" : "", cause);
+        amqpTemplate.send(RetryTopology.DEAD_LETTER_EXCHANGE, queue, message);
+        count(queue, "dead_lettered");
+    }
+
+    private void count(String queue, String outcome) {
+        meterRegistry.counter(METRIC_NAME, "queue", queue, "outcome", outcome).increment();
+    }
+
+    private static String rootMessage(Throwable cause) {
+        Throwable root = cause;
+        while (root.getCause() != null && root.getCause() != root) {
+            root = root.getCause();
+        }
+        return root.getClass().getSimpleName() + ": " + root.getMessage();
+    }
+}
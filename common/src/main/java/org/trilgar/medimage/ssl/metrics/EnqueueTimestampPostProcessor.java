@@ -0,0 +1,18 @@
+package org.trilgar.medimage.ssl.metrics;
+
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessagePostProcessor;
+
+/**
+ * Stamps every outgoing message with the publish time (epoch millis) so consumers can measure queue lag.
+ */
+public class EnqueueTimestampPostProcessor implements MessagePostProcessor {
+
+    public static final String ENQUEUED_AT_HEADER = "x-enqueued-at";
+
+    @Override
+    public Message postProcessMessage(Message message) {
+        message.getMessageProperties().setHeader(ENQUEUED_AT_HEADER, System.currentTimeMillis());
+        return message;
+    }
+}
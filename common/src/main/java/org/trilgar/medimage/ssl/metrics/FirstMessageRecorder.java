@@ -0,0 +1,42 @@
+package org.trilgar.medimage.ssl.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessagePostProcessor;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Records {@code application.first.message.time}: time from JVM start until any listener container of this
+ * instance received its first message. This is the delay a scaled-out pod adds before it takes load,
+ * next to Boot's {@code application.started.time} and {@code application.ready.time}.
+ */
+@Slf4j
+public class FirstMessageRecorder implements MessagePostProcessor {
+
+    public static final String METRIC_NAME = "application.first.message.time";
+
+    private final AtomicLong firstMessageMillis = new AtomicLong(-1);
+
+    public FirstMessageRecorder(MeterRegistry meterRegistry) {
+        TimeGauge.builder(METRIC_NAME, firstMessageMillis, TimeUnit.MILLISECONDS, millis -> Math.max(0, millis.get()))
+                .description("Time from JVM start until the first message was received")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public Message postProcessMessage(Message message) {
+        if (firstMessageMillis.get() < 0) {
+            long elapsed = System.currentTimeMillis() - ManagementFactory.getRuntimeMXBean().getStartTime();
+            if (firstMessageMillis.compareAndSet(-1, elapsed)) {
+                log.info("First message received from {} {} ms after JVM start",
+                        message.getMessageProperties().getConsumerQueue(), elapsed);
+            }
+        }
+        return message;
+    }
+}
@@ -0,0 +1,32 @@
+package org.trilgar.medimage.ssl.metrics;
+
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+
+import java.util.function.Supplier;
+
+/**
+ * Wraps a pipeline stage in an observation named {@value #STAGE_OBSERVATION}, tagged with the stage name.
+ * With a meter registry this becomes the {@code medimage.stage} timer (tags {@code stage}, {@code error}).
+ */
+public final class PipelineObservations {
+
+    public static final String STAGE_OBSERVATION = "medimage.stage";
+
+    private PipelineObservations() {
+    }
+
+    public static <T> T observe(ObservationRegistry registry, String stage, Supplier<T> work) {
+        return Observation.createNotStarted(STAGE_OBSERVATION, registry)
+                .contextualName(stage)
+                .lowCardinalityKeyValue("stage", stage)
+                .observe(work);
+    }
+
+    public static void observe(ObservationRegistry registry, String stage, Runnable work) {
+        Observation.createNotStarted(STAGE_OBSERVATION, registry)
+                .contextualName(stage)
+                .lowCardinalityKeyValue("stage", stage)
+                .observe(work);
+    }
+}
@@ -0,0 +1,46 @@
+package org.trilgar.medimage.ssl.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessagePostProcessor;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records {@code rabbitmq.queue.lag}: time between publish ({@link EnqueueTimestampPostProcessor#ENQUEUED_AT_HEADER})
+ * and the moment a consumer receives the message, per consumer queue. Messages without the header
+ * (e.g. from producers that predate it) are not recorded. Negative values from clock skew between hosts are
+ * clamped to zero.
+ */
+public class QueueLagRecorder implements MessagePostProcessor {
+
+    public static final String METRIC_NAME = "rabbitmq.queue.lag";
+
+    private final MeterRegistry meterRegistry;
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+
+    public QueueLagRecorder(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public Message postProcessMessage(Message message) {
+        Object enqueuedAt = message.getMessageProperties().getHeader(EnqueueTimestampPostProcessor.ENQUEUED_AT_HEADER);
+        if (enqueuedAt instanceof Number millis) {
+            long lag = Math.max(0, System.currentTimeMillis() - millis.longValue());
+            timer(message.getMessageProperties().getConsumerQueue()).record(lag, TimeUnit.MILLISECONDS);
+        }
+        return message;
+    }
+
+    private Timer timer(String queue) {
+        return timers.computeIfAbsent(queue == null ? "unknown" : queue, name -> Timer.builder(METRIC_NAME)
+                .description("Time a message spent in the broker between publish and consume")
+                .tag("queue", name)
+                .publishPercentileHistogram()
+                .register(meterRegistry));
+    }
+}
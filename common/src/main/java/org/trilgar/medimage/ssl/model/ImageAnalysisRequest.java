@@ -13,7 +13,11 @@ public class ImageAnalysisRequest {
     private UUID requestId;
     private UUID patientId;
 
+    /** The image, or the {@link SeriesManifest} key when {@link #seriesId} is set. */
     private String s3ObjectKey;
 
     private String modality;
+
+    /** Set for a multi-slice series; slices are read as they arrive, see {@link SeriesManifest}. */
+    private UUID seriesId;
 }
\ No newline at end of file
@@ -21,4 +21,7 @@ public class RiskAssessmentResult {
     private boolean isCritical;
 
     private LocalDateTime analyzedAt;
+
+    /** Set when {@link #s3ObjectKey} is the manifest of a series. */
+    private UUID seriesId;
 }
\ No newline at end of file
@@ -0,0 +1,40 @@
+package org.trilgar.medimage.ssl.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Describes a multi-slice study uploaded slice by slice. All objects of a series share one key prefix,
+ * see {@link org.trilgar.medimage.ssl.staging.StagingKeys#seriesPrefix}. Slices are stored under
+ * {@link #sliceKey} as they arrive; the manifest is written to {@link #manifestKey} once the upload is complete,
+ * so its presence tells readers that no more slices will come.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SeriesManifest {
+
+    private UUID seriesId;
+    private UUID patientId;
+    private String modality;
+    private int sliceCount;
+    private List<String> sliceKeys;
+    private LocalDateTime completedAt;
+
+    public static String sliceKey(String prefix, int index) {
+        return prefix + "slice-%05d".formatted(index);
+    }
+
+    public static String manifestKey(String prefix) {
+        return prefix + "manifest.json";
+    }
+
+    public static String prefixOf(String manifestKey) {
+        return manifestKey.substring(0, manifestKey.lastIndexOf('/') + 1);
+    }
+}
@@ -0,0 +1,56 @@
+package org.trilgar.medimage.ssl.persistence;
+
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+
+/**
+ * Sizes the Hikari pool before it starts and turns on pgjdbc batch rewriting. Without an explicit size the
+ * pool gets one connection per caller expected to hold one at the same time (request threads, listener
+ * consumers, background jobs), since fewer connections than callers queue up in Hikari. {@code cores * 2 + 1}
+ * is the floor, so a large node is not held below what Postgres can serve from it. A size set through
+ * {@code spring.datasource.hikari.maximum-pool-size} is left alone.
+ */
+@Slf4j
+public class HikariPoolTuner implements BeanPostProcessor {
+
+    private static final String POSTGRES_URL_PREFIX = "jdbc:postgresql:";
+
+    private final int poolSize;
+    private final int expectedConcurrency;
+    private final boolean sizeConfiguredOnPool;
+
+    /**
+     * @param poolSize             fixed pool size, or {@code 0} to derive it
+     * @param expectedConcurrency  callers expected to need a connection at once (request threads, listener consumers)
+     * @param sizeConfiguredOnPool whether {@code spring.datasource.hikari.maximum-pool-size} is set
+     */
+    public HikariPoolTuner(int poolSize, int expectedConcurrency, boolean sizeConfiguredOnPool) {
+        this.poolSize = poolSize;
+        this.expectedConcurrency = expectedConcurrency;
+        this.sizeConfiguredOnPool = sizeConfiguredOnPool;
+    }
+
+    public static int recommendedPoolSize(int cores, int expectedConcurrency) {
+        return Math.max(cores * 2 + 1, expectedConcurrency);
+    }
+
+    @Override
+    public Object postProcessBeforeInitialization(Object bean, String beanName) {
+        if (bean instanceof HikariDataSource dataSource) {
+            if (poolSize > 0) {
+                dataSource.setMaximumPoolSize(poolSize);
+            } else if (!sizeConfiguredOnPool) {
+                dataSource.setMaximumPoolSize(
+                        recommendedPoolSize(Runtime.getRuntime().availableProcessors(), expectedConcurrency));
+            }
+            String url = dataSource.getJdbcUrl();
+            if (url != null && url.startsWith(POSTGRES_URL_PREFIX)) {
+                // Hibernate batches become one multi-row INSERT instead of one round trip per row
+                dataSource.getDataSourceProperties().putIfAbsent("reWriteBatchedInserts", "true");
+            }
+            log.info("JDBC pool {}: {} connections", beanName, dataSource.getMaximumPoolSize());
+        }
+        return bean;
+    }
+}
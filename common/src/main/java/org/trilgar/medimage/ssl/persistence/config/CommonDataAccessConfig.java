@@ -0,0 +1,38 @@
+package org.trilgar.medimage.ssl.persistence.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.trilgar.medimage.ssl.persistence.HikariPoolTuner;
+
+/**
+ * Pool sizing and JDBC batching shared by the services on {@code medimage_db}. Hibernate settings are only
+ * defaults: anything under {@code spring.jpa.properties} wins.
+ */
+@Configuration
+public class CommonDataAccessConfig {
+
+    @Bean
+    public static HikariPoolTuner hikariPoolTuner(Environment environment) {
+        return new HikariPoolTuner(
+                environment.getProperty("datasource.pool.size", Integer.class, 0),
+                environment.getProperty("datasource.pool.expected-concurrency", Integer.class, 10),
+                environment.containsProperty("spring.datasource.hikari.maximum-pool-size"));
+    }
+
+    /**
+     * Groups inserts and updates per table so JDBC batches are not broken up by interleaved statements.
+     * Entity ids are generated in memory (UUIDs), so identity generation never disables batching.
+     */
+    @Bean
+    public HibernatePropertiesCustomizer jdbcBatchingCustomizer(@Value("${datasource.batch-size:50}") int batchSize) {
+        return properties -> {
+            properties.putIfAbsent("hibernate.jdbc.batch_size", batchSize);
+            properties.putIfAbsent("hibernate.order_inserts", true);
+            properties.putIfAbsent("hibernate.order_updates", true);
+            properties.putIfAbsent("hibernate.jdbc.batch_versioned_data", true);
+        };
+    }
+}
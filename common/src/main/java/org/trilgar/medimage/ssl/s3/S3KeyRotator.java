@@ -0,0 +1,122 @@
+package org.trilgar.medimage.ssl.s3;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.trilgar.medimage.ssl.crypto.EnvelopeEncryption;
+import org.trilgar.medimage.ssl.s3.api.S3StorageService;
+import software.amazon.awssdk.core.exception.SdkException;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Request;
+import software.amazon.awssdk.services.s3.model.S3Object;
+
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Walks the bucket every {@code interval} and re-wraps the data keys of objects still wrapped with a retired
+ * key, see {@link S3StorageService#rewrapKey}. Object bodies are never downloaded or re-encrypted. Run it in one
+ * service per bucket; once a pass reports nothing left, the retired key can be dropped from the key ring, which
+ * also stops the walks.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "storage.encryption.rotation.enabled", havingValue = "true")
+public class S3KeyRotator implements SmartLifecycle {
+
+    private final S3Client s3Client;
+    private final S3StorageService storageService;
+    private final EnvelopeEncryption encryption;
+    private final String bucketName;
+    private final Duration interval;
+    private final Counter rewrappedCounter;
+    private ScheduledExecutorService executor;
+    private volatile boolean running;
+
+    public S3KeyRotator(S3Client s3Client,
+                        S3StorageService storageService,
+                        EnvelopeEncryption encryption,
+                        MeterRegistry meterRegistry,
+                        @Value("${s3.bucket}") String bucketName,
+                        @Value("${storage.encryption.rotation.interval:1h}") Duration interval) {
+        this.s3Client = s3Client;
+        this.storageService = storageService;
+        this.encryption = encryption;
+        this.bucketName = bucketName;
+        this.interval = interval;
+        this.rewrappedCounter = Counter.builder("storage.keys.rewrapped")
+                .description("Data keys re-wrapped with the active key")
+                .tag("store", "s3")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Lists nothing while the key ring holds only the active key, since no object can need a re-wrap then.
+     *
+     * @return number of objects re-wrapped
+     */
+    public int rotate() {
+        if (!encryption.hasRetiredKeys()) {
+            return 0;
+        }
+        int rewrapped = 0;
+        ListObjectsV2Request request = ListObjectsV2Request.builder().bucket(bucketName).build();
+        for (S3Object object : s3Client.listObjectsV2Paginator(request).contents()) {
+            if (!running) {
+                break;
+            }
+            try {
+                if (storageService.rewrapKey(object.key())) {
+                    rewrapped++;
+                    rewrappedCounter.increment();
+                }
+            } catch (SdkException e) {
+                // e.g. overwritten or deleted meanwhile; the next pass picks it up again
+                log.warn("Could not re-wrap {}: {}", object.key(), e.getMessage());
+            }
+        }
+        if (rewrapped > 0) {
+            log.info("Re-wrapped {} S3 objects", rewrapped);
+        }
+        return rewrapped;
+    }
+
+    private void runRotation() {
+        try {
+            rotate();
+        } catch (RuntimeException e) {
+            log.warn("S3 key rotation failed: {}", e.getMessage());
+        }
+    }
+
+    @Override
+    public void start() {
+        if (!encryption.isEnabled()) {
+            log.warn("storage.encryption.rotation.enabled is set, but encryption is off; not rotating");
+            return;
+        }
+        executor = Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("s3-key-rotator-"));
+        running = true;
+        executor.scheduleWithFixedDelay(this::runRotation, 0, interval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+}
@@ -1,31 +1,73 @@
 package org.trilgar.medimage.ssl.s3;
 
+import io.micrometer.observation.ObservationRegistry;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
+import org.trilgar.medimage.ssl.crypto.Envelope;
+import org.trilgar.medimage.ssl.crypto.CiphertextRange;
+import org.trilgar.medimage.ssl.crypto.EnvelopeEncryption;
+import org.trilgar.medimage.ssl.metrics.PipelineObservations;
+import org.trilgar.medimage.ssl.s3.api.ImageStream;
 import org.trilgar.medimage.ssl.s3.api.S3StorageService;
-import software.amazon.awssdk.core.ResponseBytes;
+import org.trilgar.medimage.ssl.staging.StagingKeys;
+import software.amazon.awssdk.core.ResponseInputStream;
 import software.amazon.awssdk.core.sync.RequestBody;
 import software.amazon.awssdk.services.s3.S3Client;
 import software.amazon.awssdk.services.s3.model.*;
 
-import java.util.UUID;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 
+/**
+ * With {@link EnvelopeEncryption} enabled, objects are encrypted while they are uploaded and their
+ * {@link Envelope} is stored as user metadata {@value #ENVELOPE_METADATA}. Reads decrypt whatever carries an
+ * envelope, so objects written before encryption was turned on stay readable.
+ */
 @Service
 @Slf4j
 public class S3StorageServiceImpl implements S3StorageService {
+    public static final String ENVELOPE_METADATA = "medimage-envelope";
+    private static final int MAX_DELETE_BATCH = 1000;
+
     private final S3Client s3Client;
+    private final ObservationRegistry observationRegistry;
+    private final EnvelopeEncryption encryption;
     private final String bucketName;
 
     public S3StorageServiceImpl(S3Client s3Client,
+                                ObservationRegistry observationRegistry,
+                                EnvelopeEncryption encryption,
                                 @Value("${s3.bucket}") String bucketName) {
         this.s3Client = s3Client;
+        this.observationRegistry = observationRegistry;
+        this.encryption = encryption;
         this.bucketName = bucketName;
+    }
 
-        initializeBucket();
+    /**
+     * Verifies the bucket on a background thread once the application is ready, so a slow or unreachable
+     * S3 endpoint does not hold up startup.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void initializeBucketInBackground() {
+        Thread thread = new Thread(this::initializeBucket, "s3-bucket-init");
+        thread.setDaemon(true);
+        thread.start();
     }
 
-    private void initializeBucket() {
+    public void initializeBucket() {
         try {
             s3Client.headBucket(HeadBucketRequest.builder().bucket(bucketName).build());
             log.info("S3 Bucket '{}' is ready.", bucketName);
@@ -42,20 +84,225 @@ public class S3StorageServiceImpl implements S3StorageService {
         log.info("Downloading from S3: {}", key);
         GetObjectRequest request = GetObjectRequest.builder()
                 .bucket(bucketName).key(key).build();
-        ResponseBytes<GetObjectResponse> bytes = s3Client.getObjectAsBytes(request);
-        return bytes.asByteArray();
+        return PipelineObservations.observe(observationRegistry, "s3.download", () -> {
+            try (ResponseInputStream<GetObjectResponse> stream = s3Client.getObject(request)) {
+                Envelope envelope = envelope(stream.response().metadata());
+                if (envelope == null) {
+                    return stream.readNBytes(Math.toIntExact(stream.response().contentLength()));
+                }
+                // decrypted chunk by chunk into the result, so the ciphertext is never held as a whole
+                try (InputStream plaintext = encryption.decrypt(stream, envelope)) {
+                    return plaintext.readNBytes(Math.toIntExact(envelope.plaintextLength()));
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
     }
 
+    /**
+     * Only the request and response headers are observed as {@code s3.open}; the body is read by the caller.
+     */
     @Override
-    public String upload(byte[] data, String extension) {
-        String fileName = UUID.randomUUID() + "." + extension;
-        PutObjectRequest putOb = PutObjectRequest.builder()
-                .bucket(bucketName)
-                .key(fileName)
-                .contentType("image/" + extension)
+    public ImageStream openImage(String key) {
+        log.info("Opening S3 object: {}", key);
+        GetObjectRequest request = GetObjectRequest.builder()
+                .bucket(bucketName).key(key).build();
+        ResponseInputStream<GetObjectResponse> stream = PipelineObservations.observe(observationRegistry, "s3.open",
+                () -> s3Client.getObject(request));
+        Envelope envelope = envelope(stream.response().metadata());
+        if (envelope == null) {
+            return new ImageStream(stream, stream.response().contentLength());
+        }
+        return new ImageStream(encryption.decrypt(stream, envelope), envelope.plaintextLength());
+    }
+
+    /**
+     * Fetches the range the object would need if it was written with the current settings (encrypted with the
+     * configured chunk size, or plaintext), and only fetches again if its metadata says otherwise.
+     */
+    @Override
+    public ImageStream openImage(String key, long offset, long length) {
+        if (length == 0) {
+            return new ImageStream(InputStream.nullInputStream(), 0);
+        }
+        // null while what was fetched is the plaintext range
+        CiphertextRange fetched = encryption.isEnabled() ? encryption.range(offset, length) : null;
+        ResponseInputStream<GetObjectResponse> stream = getRange(key,
+                fetched != null ? fetched.httpRange() : plaintextRange(offset, length));
+        if (stream == null && fetched != null) {
+            // past the end of an encrypted object, but a shorter plaintext one may still hold the range
+            fetched = null;
+            stream = getRange(key, plaintextRange(offset, length));
+        }
+        if (stream == null) {
+            return new ImageStream(InputStream.nullInputStream(), 0);
+        }
+
+        Envelope envelope = envelope(stream.response().metadata());
+        if (envelope == null) {
+            if (fetched == null) {
+                return new ImageStream(stream, stream.response().contentLength());
+            }
+            stream.abort();
+            return openPlaintextRange(key, offset, length);
+        }
+        if (offset >= envelope.plaintextLength()) {
+            stream.abort();
+            return new ImageStream(InputStream.nullInputStream(), 0);
+        }
+        CiphertextRange range = encryption.range(envelope, offset, length);
+        if (fetched == null || !fetched.covers(range)) {
+            stream.abort();
+            stream = getRange(key, range.httpRange());
+        }
+        return new ImageStream(encryption.decrypt(stream, envelope, range), range.length());
+    }
+
+    private ImageStream openPlaintextRange(String key, long offset, long length) {
+        ResponseInputStream<GetObjectResponse> stream = getRange(key, plaintextRange(offset, length));
+        return stream == null
+                ? new ImageStream(InputStream.nullInputStream(), 0)
+                : new ImageStream(stream, stream.response().contentLength());
+    }
+
+    /**
+     * @return {@code null} if the range starts past the end of the object
+     */
+    private ResponseInputStream<GetObjectResponse> getRange(String key, String range) {
+        GetObjectRequest request = GetObjectRequest.builder().bucket(bucketName).key(key).range(range).build();
+        try {
+            return PipelineObservations.observe(observationRegistry, "s3.open", () -> s3Client.getObject(request));
+        } catch (S3Exception e) {
+            if (e.statusCode() == 416) {
+                return null;
+            }
+            throw e;
+        }
+    }
+
+    private static String plaintextRange(long offset, long length) {
+        return "bytes=" + offset + "-" + (offset + length - 1);
+    }
+
+    /**
+     * Copies the object onto itself with the new envelope. The copy happens inside S3; nothing is downloaded.
+     */
+    @Override
+    public boolean rewrapKey(String key) {
+        HeadObjectResponse head = head(key);
+        Envelope envelope = envelope(head.metadata());
+        if (envelope == null || !encryption.needsRewrap(envelope)) {
+            return false;
+        }
+        Envelope rewrapped = encryption.rewrap(envelope);
+        CopyObjectRequest copy = CopyObjectRequest.builder()
+                .sourceBucket(bucketName).sourceKey(key)
+                .destinationBucket(bucketName).destinationKey(key)
+                .metadataDirective(MetadataDirective.REPLACE)
+                .contentType(head.contentType())
+                .metadata(Map.of(ENVELOPE_METADATA, rewrapped.encode()))
+                .copySourceIfMatch(head.eTag())
                 .build();
-        s3Client.putObject(putOb, RequestBody.fromBytes(data));
-        log.info("Uploaded to S3: {}", fileName);
+        PipelineObservations.observe(observationRegistry, "s3.rewrap", () -> s3Client.copyObject(copy));
+        log.info("Re-wrapped data key of {} from '{}' to '{}'", key, envelope.keyId(), rewrapped.keyId());
+        return true;
+    }
+
+    @Override
+    public Optional<ImageStream> openIfExists(String key) {
+        try {
+            return Optional.of(openImage(key));
+        } catch (NoSuchKeyException e) {
+            return Optional.empty();
+        }
+    }
+
+    @Override
+    public void upload(String key, InputStream content, long contentLength, String contentType) {
+        PutObjectRequest.Builder putOb = PutObjectRequest.builder()
+                .bucket(bucketName)
+                .key(key)
+                .contentType(contentType);
+        RequestBody body;
+        if (encryption.isEnabled()) {
+            Envelope envelope = encryption.newEnvelope(contentLength);
+            putOb.metadata(Map.of(ENVELOPE_METADATA, envelope.encode()));
+            body = RequestBody.fromInputStream(encryption.encrypt(content, envelope), envelope.ciphertextLength());
+        } else {
+            body = RequestBody.fromInputStream(content, contentLength);
+        }
+        PipelineObservations.observe(observationRegistry, "s3.upload",
+                () -> s3Client.putObject(putOb.contentLength(body.optionalContentLength().orElseThrow()).build(), body));
+        log.info("Uploaded to S3: {} ({} bytes)", key, contentLength);
+    }
+
+    @Override
+    public String upload(byte[] data, String extension) {
+        String fileName = StagingKeys.imageKey(StagingKeys.today(), extension);
+        upload(fileName, data, "image/" + extension);
         return fileName;
     }
-}
\ No newline at end of file
+
+    @Override
+    public void upload(String key, byte[] data, String contentType) {
+        PutObjectRequest.Builder putOb = PutObjectRequest.builder()
+                .bucket(bucketName)
+                .key(key)
+                .contentType(contentType);
+        RequestBody body;
+        if (encryption.isEnabled()) {
+            Envelope envelope = encryption.newEnvelope(data.length);
+            putOb.metadata(Map.of(ENVELOPE_METADATA, envelope.encode()));
+            // encrypted again from the plaintext if the SDK retries
+            body = RequestBody.fromContentProvider(
+                    () -> encryption.encrypt(new ByteArrayInputStream(data), envelope),
+                    envelope.ciphertextLength(), contentType);
+        } else {
+            body = RequestBody.fromBytes(data);
+        }
+        PipelineObservations.observe(observationRegistry, "s3.upload",
+                () -> s3Client.putObject(putOb.build(), body));
+        log.info("Uploaded to S3: {}", key);
+    }
+
+    @Override
+    public List<String> listKeys(String prefix) {
+        ListObjectsV2Request request = ListObjectsV2Request.builder().bucket(bucketName).prefix(prefix).build();
+        return PipelineObservations.observe(observationRegistry, "s3.list",
+                () -> s3Client.listObjectsV2Paginator(request).contents().stream().map(S3Object::key).toList());
+    }
+
+    @Override
+    public Set<String> delete(Collection<String> keys) {
+        List<String> all = new ArrayList<>(keys);
+        Set<String> failed = new HashSet<>();
+        for (int from = 0; from < all.size(); from += MAX_DELETE_BATCH) {
+            List<ObjectIdentifier> batch = all.subList(from, Math.min(all.size(), from + MAX_DELETE_BATCH)).stream()
+                    .map(key -> ObjectIdentifier.builder().key(key).build())
+                    .toList();
+            DeleteObjectsRequest request = DeleteObjectsRequest.builder()
+                    .bucket(bucketName)
+                    .delete(Delete.builder().objects(batch).quiet(true).build())
+                    .build();
+            DeleteObjectsResponse response = PipelineObservations.observe(observationRegistry, "s3.delete",
+                    () -> s3Client.deleteObjects(request));
+            for (S3Error error : response.errors()) {
+                log.warn("Could not delete {}: {} {}", error.key(), error.code(), error.message());
+                failed.add(error.key());
+            }
+        }
+        log.debug("Deleted {} S3 objects", all.size() - failed.size());
+        return failed;
+    }
+
+    private HeadObjectResponse head(String key) {
+        HeadObjectRequest request = HeadObjectRequest.builder().bucket(bucketName).key(key).build();
+        return PipelineObservations.observe(observationRegistry, "s3.head", () -> s3Client.headObject(request));
+    }
+
+    private static Envelope envelope(Map<String, String> metadata) {
+        String encoded = metadata.get(ENVELOPE_METADATA);
+        return encoded == null ? null : Envelope.decode(encoded);
+    }
+}
@@ -0,0 +1,21 @@
+package org.trilgar.medimage.ssl.s3.api;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+
+/**
+ * An open S3 object body together with its length, so it can be passed on without buffering it in memory.
+ * Closing it before the end releases the underlying connection.
+ */
+public record ImageStream(InputStream content, long contentLength) implements AutoCloseable {
+
+    @Override
+    public void close() {
+        try {
+            content.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
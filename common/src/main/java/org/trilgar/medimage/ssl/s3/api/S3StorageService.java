@@ -1,6 +1,51 @@
 package org.trilgar.medimage.ssl.s3.api;
 
+import java.io.InputStream;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
 public interface S3StorageService {
     String upload(byte[] data, String extension);
+
+    /**
+     * Stores {@code data} under {@code key}, for callers that need the key before the object exists.
+     */
+    void upload(String key, byte[] data, String contentType);
+
+    /**
+     * Streams {@code contentLength} bytes to {@code key} without buffering them.
+     */
+    void upload(String key, InputStream content, long contentLength, String contentType);
+
     byte[] downloadImage(String key);
+    ImageStream openImage(String key);
+
+    /**
+     * Like {@link #openImage}, but empty instead of failing when the object does not exist (yet).
+     */
+    Optional<ImageStream> openIfExists(String key);
+
+    /**
+     * Reads {@code length} bytes starting at {@code offset}, or fewer at the end of the object. For encrypted
+     * objects only the chunks covering the range are fetched and decrypted.
+     */
+    ImageStream openImage(String key, long offset, long length);
+
+    /**
+     * Re-wraps the data key of an encrypted object with the active key, replacing only its metadata.
+     *
+     * @return whether the object needed it
+     */
+    boolean rewrapKey(String key);
+
+    List<String> listKeys(String prefix);
+
+    /**
+     * Deletes the objects in batches of up to 1000 keys per request. Keys that do not exist count as deleted.
+     *
+     * @return the keys that could not be deleted
+     */
+    Set<String> delete(Collection<String> keys);
 }
@@ -4,8 +4,11 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.trilgar.medimage.ssl.crypto.config.CommonEncryptionConfig;
 import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
 import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.http.apache.ApacheHttpClient;
 import software.amazon.awssdk.regions.Region;
 import software.amazon.awssdk.services.s3.S3Client;
 import software.amazon.awssdk.services.s3.S3Configuration;
@@ -14,6 +17,7 @@ import java.net.URI;
 
 @Configuration
 @ComponentScan(basePackages = "org.trilgar.medimage.ssl.s3")
+@Import(CommonEncryptionConfig.class)
 public class CommonS3Config {
 
     @Value("${s3.endpoint}")
@@ -24,12 +28,17 @@ public class CommonS3Config {
     private String secretKey;
     @Value("${s3.region:us-east-1}")
     private String region;
+    /** Caps concurrent S3 calls per service; raise it together with listener concurrency or virtual threads. */
+    @Value("${s3.max-connections:50}")
+    private int maxConnections;
 
     @Bean
     public S3Client s3Client() {
         return S3Client.builder()
                 .endpointOverride(URI.create(endpoint))
                 .region(Region.of(region))
+                .httpClientBuilder(ApacheHttpClient.builder()
+                        .maxConnections(maxConnections))
                 .credentialsProvider(StaticCredentialsProvider.create(
                         AwsBasicCredentials.create(accessKey, secretKey)))
                 .serviceConfiguration(S3Configuration.builder()
@@ -0,0 +1,182 @@
+package org.trilgar.medimage.ssl.staging;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.trilgar.medimage.ssl.s3.api.S3StorageService;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Deletes staging objects that are no longer needed, {@code batchSize} tracked objects at a time:
+ * <ul>
+ *     <li>{@code archived}: copied to imaging-service more than {@code archivedRetention} ago</li>
+ *     <li>{@code orphaned}: still {@link StagedObjectStatus#UPLOADED} after {@code orphanAfter}, e.g. an
+ *     abandoned series upload</li>
+ * </ul>
+ * Objects that were analysed but never archived are kept. A batch is claimed in one short statement by setting
+ * {@code claimed_until} one {@code interval} ahead, so other replicas pass over it. The bucket objects are then
+ * deleted in {@code DeleteObjects} batches outside any transaction, and only rows whose objects are all gone are
+ * removed. A row whose delete failed keeps its claim and is retried once the claim has expired.
+ */
+@Slf4j
+public class StagedObjectReaper implements SmartLifecycle {
+
+    private static final String CLAIM = """
+            UPDATE staged_objects SET claimed_until = ?
+            WHERE object_key IN (
+                SELECT object_key FROM staged_objects
+                WHERE ((status = 'ARCHIVED' AND updated_at < ?) OR (status = 'UPLOADED' AND updated_at < ?))
+                AND (claimed_until IS NULL OR claimed_until < ?)
+                ORDER BY updated_at LIMIT ? FOR UPDATE SKIP LOCKED)
+            RETURNING object_key, is_prefix, status""";
+
+    private static final String DELETE_ROW = "DELETE FROM staged_objects WHERE object_key = ?";
+
+    private record Candidate(String key, boolean prefix, StagedObjectStatus status) {
+    }
+
+    private final S3StorageService storageService;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final Duration interval;
+    private final Duration archivedRetention;
+    private final Duration orphanAfter;
+    private final int batchSize;
+    private final Counter archivedCounter;
+    private final Counter orphanedCounter;
+    private ScheduledExecutorService executor;
+    private volatile boolean running;
+
+    public StagedObjectReaper(S3StorageService storageService,
+                              JdbcTemplate jdbcTemplate,
+                              TransactionTemplate transactionTemplate,
+                              MeterRegistry meterRegistry,
+                              Duration interval,
+                              Duration archivedRetention,
+                              Duration orphanAfter,
+                              int batchSize) {
+        this.storageService = storageService;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.interval = interval;
+        this.archivedRetention = archivedRetention;
+        this.orphanAfter = orphanAfter;
+        this.batchSize = batchSize;
+        this.archivedCounter = deletedCounter(meterRegistry, "archived");
+        this.orphanedCounter = deletedCounter(meterRegistry, "orphaned");
+    }
+
+    private static Counter deletedCounter(MeterRegistry meterRegistry, String reason) {
+        return Counter.builder("staging.objects.deleted")
+                .description("Tracked staging objects (single scans or whole series) deleted from the bucket")
+                .tag("reason", reason)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Claimed rows whose objects could not be deleted stay claimed for the rest of the run, so they are passed
+     * over instead of being picked up again by every batch.
+     *
+     * @return number of tracked objects deleted
+     */
+    public int reap() {
+        Instant now = Instant.now();
+        Timestamp archivedBefore = Timestamp.from(now.minus(archivedRetention));
+        Timestamp orphanedBefore = Timestamp.from(now.minus(orphanAfter));
+        int total = 0;
+        List<Candidate> claimed;
+        do {
+            claimed = claim(archivedBefore, orphanedBefore);
+            if (claimed.isEmpty()) {
+                break;
+            }
+            List<Candidate> deleted = deleteObjects(claimed);
+            transactionTemplate.executeWithoutResult(status -> jdbcTemplate.batchUpdate(DELETE_ROW,
+                    deleted.stream().map(candidate -> new Object[]{candidate.key()}).toList()));
+            deleted.forEach(candidate ->
+                    (candidate.status() == StagedObjectStatus.ARCHIVED ? archivedCounter : orphanedCounter).increment());
+            total += deleted.size();
+        } while (claimed.size() == batchSize && running);
+
+        if (total > 0) {
+            log.info("Deleted {} staging objects", total);
+        }
+        return total;
+    }
+
+    /**
+     * A single statement, so the row locks are held only while the claim is written.
+     */
+    private List<Candidate> claim(Timestamp archivedBefore, Timestamp orphanedBefore) {
+        Instant now = Instant.now();
+        return jdbcTemplate.query(CLAIM,
+                (rs, rowNum) -> new Candidate(rs.getString("object_key"), rs.getBoolean("is_prefix"),
+                        StagedObjectStatus.valueOf(rs.getString("status"))),
+                Timestamp.from(now.plus(interval)), archivedBefore, orphanedBefore, Timestamp.from(now), batchSize);
+    }
+
+    /**
+     * @return the candidates whose objects are all gone from the bucket
+     */
+    private List<Candidate> deleteObjects(List<Candidate> candidates) {
+        Map<String, Candidate> owners = new HashMap<>();
+        for (Candidate candidate : candidates) {
+            List<String> keys = candidate.prefix() ? storageService.listKeys(candidate.key()) : List.of(candidate.key());
+            keys.forEach(key -> owners.put(key, candidate));
+        }
+        Set<Candidate> incomplete = new HashSet<>();
+        storageService.delete(owners.keySet()).forEach(key -> incomplete.add(owners.get(key)));
+
+        List<Candidate> deleted = new ArrayList<>();
+        for (Candidate candidate : candidates) {
+            if (!incomplete.contains(candidate)) {
+                deleted.add(candidate);
+            }
+        }
+        return deleted;
+    }
+
+    private void runReap() {
+        try {
+            reap();
+        } catch (RuntimeException e) {
+            log.warn("Staging object cleanup failed: {}", e.getMessage());
+        }
+    }
+
+    @Override
+    public void start() {
+        executor = Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("staging-reaper-"));
+        running = true;
+        executor.scheduleWithFixedDelay(this::runReap, interval.toMillis(), interval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+}
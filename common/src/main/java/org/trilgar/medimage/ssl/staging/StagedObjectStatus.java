@@ -0,0 +1,12 @@
+package org.trilgar.medimage.ssl.staging;
+
+/**
+ * Lifecycle of an object in the staging bucket: stored by radiology, analysed (the result reached
+ * patient-service), then copied to imaging-service. Only archived objects are deleted on schedule; an
+ * object still {@link #UPLOADED} after the orphan timeout is deleted as abandoned.
+ */
+public enum StagedObjectStatus {
+    UPLOADED,
+    ANALYZED,
+    ARCHIVED
+}
@@ -0,0 +1,59 @@
+package org.trilgar.medimage.ssl.staging;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+
+/**
+ * Records the {@link StagedObjectStatus} of staging objects in {@code staged_objects}. A series is tracked as
+ * one row for its key prefix. Status only moves forward; updates for unknown keys (uploaded before tracking
+ * existed) do nothing.
+ * <p>
+ * The table is created by the schema migrations of each service that uses the tracker. Calls join the
+ * caller's transaction.
+ */
+public class StagedObjectTracker {
+
+    private static final String INSERT = """
+            INSERT INTO staged_objects (object_key, is_prefix, status, uploaded_at, updated_at)
+            VALUES (?, ?, 'UPLOADED', ?, ?) ON CONFLICT DO NOTHING""";
+
+    private static final String ADVANCE = """
+            UPDATE staged_objects SET status = ?, updated_at = ?
+            WHERE object_key = ? AND status IN (%s)""";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public StagedObjectTracker(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public void uploaded(String key) {
+        insert(key, false);
+    }
+
+    /**
+     * @param prefix ends with {@code /}; everything under it belongs to the tracked object
+     */
+    public void uploadedPrefix(String prefix) {
+        insert(prefix, true);
+    }
+
+    public void analyzed(String key) {
+        jdbcTemplate.update(ADVANCE.formatted("'UPLOADED'"), StagedObjectStatus.ANALYZED.name(), now(), key);
+    }
+
+    public void archived(String key) {
+        jdbcTemplate.update(ADVANCE.formatted("'UPLOADED', 'ANALYZED'"), StagedObjectStatus.ARCHIVED.name(), now(), key);
+    }
+
+    private void insert(String key, boolean prefix) {
+        Timestamp now = now();
+        jdbcTemplate.update(INSERT, key, prefix, now, now);
+    }
+
+    private static Timestamp now() {
+        return Timestamp.from(Instant.now());
+    }
+}
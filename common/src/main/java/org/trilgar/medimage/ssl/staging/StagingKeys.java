@@ -0,0 +1,42 @@
+package org.trilgar.medimage.ssl.staging;
+
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.UUID;
+
+/**
+ * Key layout of the staging bucket. Keys are partitioned by the day the upload started, so a day's objects can be
+ * listed, or expired by a bucket lifecycle rule, without touching the rest of the bucket:
+ * <ul>
+ *     <li>{@code staging/yyyy/MM/dd/<uuid>.<ext>}: single scans</li>
+ *     <li>{@code series/yyyy/MM/dd/<seriesId>/}: slices and manifest of a series, see
+ *     {@link org.trilgar.medimage.ssl.model.SeriesManifest}</li>
+ * </ul>
+ */
+public final class StagingKeys {
+
+    public static final String IMAGE_ROOT = "staging/";
+    public static final String SERIES_ROOT = "series/";
+
+    private static final DateTimeFormatter DAY = DateTimeFormatter.ofPattern("yyyy/MM/dd");
+
+    private StagingKeys() {
+    }
+
+    public static LocalDate today() {
+        return LocalDate.now(ZoneOffset.UTC);
+    }
+
+    public static String dayPrefix(String root, LocalDate day) {
+        return root + DAY.format(day) + "/";
+    }
+
+    public static String imageKey(LocalDate day, String extension) {
+        return dayPrefix(IMAGE_ROOT, day) + UUID.randomUUID() + "." + extension;
+    }
+
+    public static String seriesPrefix(LocalDate day, UUID seriesId) {
+        return dayPrefix(SERIES_ROOT, day) + seriesId + "/";
+    }
+}
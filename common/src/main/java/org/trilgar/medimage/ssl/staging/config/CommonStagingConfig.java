@@ -0,0 +1,58 @@
+package org.trilgar.medimage.ssl.staging.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.trilgar.medimage.ssl.s3.api.S3StorageService;
+import org.trilgar.medimage.ssl.staging.StagedObjectReaper;
+import org.trilgar.medimage.ssl.staging.StagedObjectTracker;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+/**
+ * Lifecycle tracking of staging bucket objects in {@code staged_objects}, for the services that upload or
+ * archive them. Deleting them is turned on with {@code staging.reaper.enabled} in one of them.
+ * <p>
+ * Dead-lettered analysis requests and results still name {@code UPLOADED} objects, and dead-letter queues do
+ * not expire. {@code orphan-after} must therefore exceed {@code dead-letter-replay-window}, the time operations
+ * allow themselves to replay a dead letter; the reaper refuses to start otherwise.
+ */
+@Configuration
+public class CommonStagingConfig {
+
+    @Bean
+    public StagedObjectTracker stagedObjectTracker(DataSource dataSource) {
+        return new StagedObjectTracker(new JdbcTemplate(dataSource));
+    }
+
+    @Configuration
+    @ConditionalOnProperty(name = "staging.reaper.enabled", havingValue = "true")
+    static class ReaperConfig {
+
+        @Bean
+        public StagedObjectReaper stagedObjectReaper(S3StorageService storageService,
+                                                     DataSource dataSource,
+                                                     PlatformTransactionManager transactionManager,
+                                                     MeterRegistry meterRegistry,
+                                                     @Value("${staging.reaper.interval:10m}") Duration interval,
+                                                     @Value("${staging.reaper.archived-retention:1h}") Duration archivedRetention,
+                                                     @Value("${staging.reaper.orphan-after:7d}") Duration orphanAfter,
+                                                     @Value("${staging.reaper.batch-size:1000}") int batchSize,
+                                                     @Value("${staging.reaper.dead-letter-replay-window:3d}") Duration deadLetterReplayWindow) {
+            if (orphanAfter.compareTo(deadLetterReplayWindow) <= 0) {
+                throw new IllegalStateException("staging.reaper.orphan-after (" + orphanAfter
+                        + ") must exceed staging.reaper.dead-letter-replay-window (" + deadLetterReplayWindow
+                        + "), or replayed dead letters would name deleted objects");
+            }
+            return new StagedObjectReaper(storageService, new JdbcTemplate(dataSource),
+                    new TransactionTemplate(transactionManager), meterRegistry, interval, archivedRetention,
+                    orphanAfter, batchSize);
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package org.trilgar.medimage.ssl.tracing;
+
+import brave.handler.MutableSpan;
+import brave.handler.SpanHandler;
+import brave.propagation.TraceContext;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Appends every finished span as one JSON line ({@link SpanRecord}) to a local file. The files of all
+ * services can be concatenated and grouped by {@code traceId} to follow one examination across hops.
+ * Writes are guarded by a lock rather than {@code synchronized}, so a virtual thread doing the file I/O
+ * does not pin its carrier.
+ */
+@Slf4j
+public class FileSpanHandler extends SpanHandler implements Closeable {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final BufferedWriter writer;
+    private final ReentrantLock lock = new ReentrantLock();
+
+    public FileSpanHandler(Path file) {
+        try {
+            Path parent = file.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            this.writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open span file " + file, e);
+        }
+        log.info("Writing spans to {}", file.toAbsolutePath());
+    }
+
+    @Override
+    public boolean end(TraceContext context, MutableSpan span, Cause cause) {
+        if (cause == Cause.ABANDONED) {
+            return true;
+        }
+        try {
+            String line = objectMapper.writeValueAsString(SpanRecord.of(context, span));
+            lock.lock();
+            try {
+                writer.write(line);
+                writer.newLine();
+                writer.flush();
+            } finally {
+                lock.unlock();
+            }
+        } catch (IOException e) {
+            log.warn("Failed to write span {}: {}", context.spanIdString(), e.getMessage());
+        }
+        return true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            writer.close();
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package org.trilgar.medimage.ssl.tracing;
+
+import brave.handler.MutableSpan;
+import brave.handler.SpanHandler;
+import brave.propagation.TraceContext;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Keeps the most recent finished spans in memory so tests can assert on them without a tracing backend.
+ */
+public class InMemorySpanCollector extends SpanHandler {
+
+    private final int maxSpans;
+    private final Deque<SpanRecord> spans = new ArrayDeque<>();
+
+    public InMemorySpanCollector(int maxSpans) {
+        this.maxSpans = maxSpans;
+    }
+
+    @Override
+    public boolean end(TraceContext context, MutableSpan span, Cause cause) {
+        if (cause == Cause.ABANDONED) {
+            return true;
+        }
+        SpanRecord record = SpanRecord.of(context, span);
+        synchronized (spans) {
+            if (spans.size() == maxSpans) {
+                spans.removeFirst();
+            }
+            spans.addLast(record);
+        }
+        return true;
+    }
+
+    public List<SpanRecord> getSpans() {
+        synchronized (spans) {
+            return new ArrayList<>(spans);
+        }
+    }
+
+    public List<SpanRecord> getTrace(String traceId) {
+        return getSpans().stream()
+                .filter(span -> span.traceId().equals(traceId))
+                .toList();
+    }
+
+    public void clear() {
+        synchronized (spans) {
+            spans.clear();
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package org.trilgar.medimage.ssl.tracing;
+
+import brave.handler.MutableSpan;
+import brave.propagation.TraceContext;
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Immutable copy of a finished span. Timestamps and durations are in microseconds since the epoch.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record SpanRecord(String traceId,
+                         String id,
+                         String parentId,
+                         String name,
+                         String kind,
+                         String service,
+                         String remoteService,
+                         long timestamp,
+                         long duration,
+                         Map<String, String> tags,
+                         String error) {
+
+    public static SpanRecord of(TraceContext context, MutableSpan span) {
+        Map<String, String> tags = new LinkedHashMap<>();
+        span.forEachTag((target, key, value) -> target.put(key, value), tags);
+        return new SpanRecord(
+                context.traceIdString(),
+                context.spanIdString(),
+                context.parentIdString(),
+                span.name(),
+                span.kind() == null ? null : span.kind().name(),
+                span.localServiceName(),
+                span.remoteServiceName(),
+                span.startTimestamp(),
+                Math.max(0, span.finishTimestamp() - span.startTimestamp()),
+                tags,
+                span.error() == null ? span.tag("error") : span.error().toString()
+        );
+    }
+}
@@ -0,0 +1,31 @@
+package org.trilgar.medimage.ssl.tracing.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.trilgar.medimage.ssl.tracing.FileSpanHandler;
+import org.trilgar.medimage.ssl.tracing.InMemorySpanCollector;
+
+import java.nio.file.Path;
+
+/**
+ * Span exporters selected by {@code tracing.export}: {@code file} appends JSON lines to
+ * {@code tracing.file}, {@code memory} keeps the last {@code tracing.memory.max-spans} spans in an
+ * {@link InMemorySpanCollector} bean. Any other value exports nothing; context is still propagated.
+ */
+@Configuration
+public class CommonTracingConfig {
+
+    @Bean
+    @ConditionalOnProperty(name = "tracing.export", havingValue = "file")
+    public FileSpanHandler fileSpanHandler(@Value("${tracing.file:traces/${spring.application.name}.jsonl}") String file) {
+        return new FileSpanHandler(Path.of(file));
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "tracing.export", havingValue = "memory")
+    public InMemorySpanCollector inMemorySpanCollector(@Value("${tracing.memory.max-spans:10000}") int maxSpans) {
+        return new InMemorySpanCollector(maxSpans);
+    }
+}
@@ -3,9 +3,13 @@ package org.trilgar.medimage.ssl.imaging;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.context.annotation.Import;
+import org.trilgar.medimage.ssl.crypto.config.CommonEncryptionConfig;
+import org.trilgar.medimage.ssl.persistence.config.CommonDataAccessConfig;
 import org.trilgar.medimage.ssl.s3.config.CommonS3Config;
+import org.trilgar.medimage.ssl.tracing.config.CommonTracingConfig;
 
 @SpringBootApplication
+@Import({CommonDataAccessConfig.class, CommonTracingConfig.class, CommonEncryptionConfig.class})
 public class ImagingServiceApplication {
     public static void main(String[] args) {
         SpringApplication.run(ImagingServiceApplication.class, args);
@@ -0,0 +1,87 @@
+package org.trilgar.medimage.ssl.imaging.codec;
+
+import org.springframework.http.MediaType;
+
+/**
+ * Image encodings recognised by their leading bytes. Only formats that ImageIO decodes without loss are
+ * candidates for re-encoding; JPEG is already lossy and DICOM carries more than pixels, so both are kept as sent.
+ * A ZIP holds a whole multi-slice series and is never re-encoded either. GIF and TIFF decode losslessly only
+ * one frame at a time, so {@link PngTranscoder} keeps multi-frame files as sent.
+ */
+public enum ImageFormat {
+    PNG(MediaType.IMAGE_PNG, true),
+    JPEG(MediaType.IMAGE_JPEG, false),
+    GIF(MediaType.IMAGE_GIF, true),
+    BMP(MediaType.parseMediaType("image/bmp"), true),
+    TIFF(MediaType.parseMediaType("image/tiff"), true),
+    DICOM(MediaType.parseMediaType("application/dicom"), false),
+    ZIP(MediaType.parseMediaType("application/zip"), false),
+    UNKNOWN(MediaType.APPLICATION_OCTET_STREAM, false);
+
+    private final MediaType mediaType;
+    private final boolean losslessDecodable;
+
+    ImageFormat(MediaType mediaType, boolean losslessDecodable) {
+        this.mediaType = mediaType;
+        this.losslessDecodable = losslessDecodable;
+    }
+
+    public MediaType getMediaType() {
+        return mediaType;
+    }
+
+    public boolean isLosslessDecodable() {
+        return losslessDecodable;
+    }
+
+    public static ImageFormat detect(byte[] data) {
+        if (startsWith(data, 0, 0x89, 'P', 'N', 'G', 0x0D, 0x0A, 0x1A, 0x0A)) {
+            return PNG;
+        }
+        if (startsWith(data, 0, 0xFF, 0xD8, 0xFF)) {
+            return JPEG;
+        }
+        if (startsWith(data, 0, 'G', 'I', 'F', '8')) {
+            return GIF;
+        }
+        if (startsWith(data, 0, 'I', 'I', 0x2A, 0x00) || startsWith(data, 0, 'M', 'M', 0x00, 0x2A)) {
+            return TIFF;
+        }
+        if (startsWith(data, 0, 'B', 'M')) {
+            return BMP;
+        }
+        if (startsWith(data, 128, 'D', 'I', 'C', 'M')) {
+            return DICOM;
+        }
+        if (startsWith(data, 0, 'P', 'K', 0x03, 0x04)) {
+            return ZIP;
+        }
+        return UNKNOWN;
+    }
+
+    /**
+     * Maps a stored {@code format} column back to the enum; anything unrecognised is {@link #UNKNOWN}.
+     */
+    public static ImageFormat fromName(String name) {
+        if (name == null) {
+            return UNKNOWN;
+        }
+        try {
+            return valueOf(name.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return UNKNOWN;
+        }
+    }
+
+    private static boolean startsWith(byte[] data, int offset, int... magic) {
+        if (data == null || data.length < offset + magic.length) {
+            return false;
+        }
+        for (int i = 0; i < magic.length; i++) {
+            if ((data[offset + i] & 0xFF) != magic[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
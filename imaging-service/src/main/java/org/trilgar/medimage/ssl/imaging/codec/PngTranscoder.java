@@ -0,0 +1,121 @@
+package org.trilgar.medimage.ssl.imaging.codec;
+
+import org.w3c.dom.Node;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.metadata.IIOMetadata;
+import javax.imageio.metadata.IIOMetadataFormatImpl;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.color.ColorSpace;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Decodes a losslessly stored image with ImageIO and encodes it with {@link PngEncoder}. Returns empty when
+ * the format is lossy, unreadable or has a raster layout the encoder cannot represent exactly.
+ * <p>
+ * The encoder writes pixels only, so anything else the source carries would be lost. Multi-page TIFFs and
+ * animated GIFs, and images with text, a physical resolution, a gamma or an embedded colour profile, are
+ * therefore kept as they are.
+ */
+public class PngTranscoder {
+
+    /**
+     * Standard metadata nodes ({@code javax_imageio_1.0}) the encoder has no chunk for.
+     */
+    private static final Set<String> UNCARRIED_STANDARD_NODES =
+            Set.of("TextEntry", "HorizontalPixelSize", "VerticalPixelSize", "Gamma");
+
+    /**
+     * Native nodes for embedded profiles that do not show up in the decoded colour space (PNG's {@code iCCP}).
+     */
+    private static final Set<String> UNCARRIED_NATIVE_NODES = Set.of("iCCP");
+
+    private final PngEncoder encoder;
+
+    public PngTranscoder(PngEncoder encoder) {
+        this.encoder = encoder;
+    }
+
+    public Optional<byte[]> toPng(byte[] data, ImageFormat format) {
+        return toPng(new ByteArrayInputStream(data), format);
+    }
+
+    public Optional<byte[]> toPng(InputStream data, ImageFormat format) {
+        if (!format.isLosslessDecodable()) {
+            return Optional.empty();
+        }
+        Optional<BufferedImage> image;
+        try (data; ImageInputStream input = ImageIO.createImageInputStream(data)) {
+            image = readSingleImage(input);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot decode " + format + " image", e);
+        }
+        return image.filter(PngEncoder::supports).map(encoder::encode);
+    }
+
+    private static Optional<BufferedImage> readSingleImage(ImageInputStream input) throws IOException {
+        if (input == null) {
+            return Optional.empty();
+        }
+        Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+        if (!readers.hasNext()) {
+            return Optional.empty();
+        }
+        ImageReader reader = readers.next();
+        try {
+            reader.setInput(input, false, false);
+            if (reader.getNumImages(true) != 1) {
+                return Optional.empty();
+            }
+            IIOImage image = reader.readAll(0, null);
+            BufferedImage pixels = (BufferedImage) image.getRenderedImage();
+            if (carriesMoreThanPixels(reader.getStreamMetadata()) || carriesMoreThanPixels(image.getMetadata())
+                    || !isStandardColorSpace(pixels.getColorModel().getColorSpace())) {
+                return Optional.empty();
+            }
+            return Optional.of(pixels);
+        } finally {
+            reader.dispose();
+        }
+    }
+
+    private static boolean carriesMoreThanPixels(IIOMetadata metadata) {
+        if (metadata == null) {
+            return false;
+        }
+        if (metadata.isStandardMetadataFormatSupported()
+                && containsAny(metadata.getAsTree(IIOMetadataFormatImpl.standardMetadataFormatName),
+                UNCARRIED_STANDARD_NODES)) {
+            return true;
+        }
+        String nativeFormat = metadata.getNativeMetadataFormatName();
+        return nativeFormat != null && containsAny(metadata.getAsTree(nativeFormat), UNCARRIED_NATIVE_NODES);
+    }
+
+    private static boolean containsAny(Node node, Set<String> names) {
+        if (names.contains(node.getNodeName())) {
+            return true;
+        }
+        for (Node child = node.getFirstChild(); child != null; child = child.getNextSibling()) {
+            if (containsAny(child, names)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isStandardColorSpace(ColorSpace colorSpace) {
+        return colorSpace.isCS_sRGB()
+                || colorSpace == ColorSpace.getInstance(ColorSpace.CS_GRAY)
+                || colorSpace == ColorSpace.getInstance(ColorSpace.CS_LINEAR_RGB);
+    }
+}
@@ -0,0 +1,55 @@
+package org.trilgar.medimage.ssl.imaging.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.trilgar.medimage.ssl.imaging.codec.PngEncoder;
+import org.trilgar.medimage.ssl.imaging.codec.PngTranscoder;
+
+import javax.imageio.ImageIO;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Two pools keep the CPU-heavy encoding away from request threads: {@code imageEncodingExecutor} takes whole
+ * re-encoding jobs with a bounded queue (a full queue means the image keeps its original encoding), and
+ * {@code imageCompressionPool} runs the filter stripes and deflate blocks of a single image in parallel.
+ */
+@Configuration
+public class ImageCodecConfig {
+
+    static {
+        // decode from memory without ImageIO's temp-file cache
+        ImageIO.setUseCache(false);
+    }
+
+    @Bean(destroyMethod = "shutdown")
+    public ForkJoinPool imageCompressionPool(@Value("${imaging.codec.parallelism:0}") int parallelism) {
+        return new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+    }
+
+    @Bean
+    public PngEncoder pngEncoder(ForkJoinPool imageCompressionPool,
+                                 @Value("${imaging.codec.block-size:262144}") int blockSize,
+                                 @Value("${imaging.codec.level:6}") int level) {
+        return new PngEncoder(imageCompressionPool, blockSize, level);
+    }
+
+    @Bean
+    public PngTranscoder pngTranscoder(PngEncoder pngEncoder) {
+        return new PngTranscoder(pngEncoder);
+    }
+
+    @Bean
+    public ThreadPoolTaskExecutor imageEncodingExecutor(@Value("${imaging.codec.threads:2}") int threads,
+                                                        @Value("${imaging.codec.queue-capacity:100}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("image-encode-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        return executor;
+    }
+}
@@ -1,14 +1,19 @@
 package org.trilgar.medimage.ssl.imaging.controller;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.core.io.InputStreamResource;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 import org.trilgar.medimage.ssl.imaging.entity.ImageMetadata;
+import org.trilgar.medimage.ssl.imaging.model.ImageContent;
 import org.trilgar.medimage.ssl.imaging.service.api.ImagingService;
 
 import java.io.IOException;
+import java.util.Comparator;
 import java.util.List;
 import java.util.UUID;
 
@@ -31,10 +36,25 @@ public class ImagingController {
         );
     }
 
+    /**
+     * Negotiates on {@code Accept}: the stored encoding if acceptable, otherwise a PNG conversion; 406 if neither.
+     */
     @Transactional
-    @GetMapping(value = "/{id}/content", produces = MediaType.IMAGE_PNG_VALUE)
-    public byte[] getImageContent(@PathVariable("id") UUID id) {
-        return imagingService.getImageData(id);
+    @GetMapping("/{id}/content")
+    public ResponseEntity<InputStreamResource> getImageContent(@PathVariable("id") UUID id,
+                                                               @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+        List<MediaType> acceptable = accept == null || accept.isBlank()
+                ? List.of(MediaType.ALL)
+                : MediaType.parseMediaTypes(accept).stream()
+                        .filter(mediaType -> mediaType.getQualityValue() > 0)
+                        .sorted(Comparator.comparingDouble(MediaType::getQualityValue).reversed())
+                        .toList();
+        ImageContent content = imagingService.getImageContent(id, acceptable);
+        return ResponseEntity.ok()
+                .contentType(content.mediaType())
+                .contentLength(content.contentLength())
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT)
+                .body(new InputStreamResource(content.content()));
     }
 
     @Transactional(readOnly = true)
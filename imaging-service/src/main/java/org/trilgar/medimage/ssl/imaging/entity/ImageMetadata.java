@@ -32,7 +32,19 @@ public class ImageMetadata {
     private byte[] data;
 
     private String modality;
+
+    /** Encoding of {@code data} as stored now, detected from its leading bytes. */
     private String format;
+    private String originalFormat;
+    private Long originalSize;
+    private Long storedSize;
+
+    /** Encoded {@code Envelope} of {@code data}, or {@code null} if it is stored in plaintext. */
+    @Column(length = 512)
+    @ToString.Exclude
+    @JsonIgnore
+    private String encryptionEnvelope;
+    private String encryptionKeyId;
 
     private LocalDateTime uploadedAt;
 
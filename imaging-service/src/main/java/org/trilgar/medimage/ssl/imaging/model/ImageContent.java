@@ -0,0 +1,8 @@
+package org.trilgar.medimage.ssl.imaging.model;
+
+import org.springframework.http.MediaType;
+
+import java.io.InputStream;
+
+public record ImageContent(InputStream content, long contentLength, MediaType mediaType) {
+}
@@ -0,0 +1,8 @@
+package org.trilgar.medimage.ssl.imaging.model;
+
+import org.trilgar.medimage.ssl.imaging.codec.ImageFormat;
+
+import java.util.UUID;
+
+public record ImageStoredEvent(UUID imageId, byte[] data, ImageFormat format) {
+}
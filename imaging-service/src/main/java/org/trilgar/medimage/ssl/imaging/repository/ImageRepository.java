@@ -2,7 +2,11 @@ package org.trilgar.medimage.ssl.imaging.repository;
 
 import lombok.AllArgsConstructor;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import org.trilgar.medimage.ssl.imaging.entity.ImageMetadata;
 
 import java.util.List;
@@ -11,4 +15,12 @@ import java.util.UUID;
 @Repository
 public interface ImageRepository extends JpaRepository<ImageMetadata, UUID> {
     List<ImageMetadata> findAllByPatientId(UUID patientId);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE ImageMetadata i SET i.data = :data, i.format = :format, i.storedSize = :storedSize,"
+            + " i.encryptionEnvelope = :envelope, i.encryptionKeyId = :keyId WHERE i.id = :id")
+    int updateEncoding(@Param("id") UUID id, @Param("data") byte[] data,
+                       @Param("format") String format, @Param("storedSize") Long storedSize,
+                       @Param("envelope") String envelope, @Param("keyId") String keyId);
 }
@@ -0,0 +1,67 @@
+package org.trilgar.medimage.ssl.imaging.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.trilgar.medimage.ssl.crypto.Envelope;
+import org.trilgar.medimage.ssl.crypto.EnvelopeEncryption;
+import org.trilgar.medimage.ssl.imaging.entity.ImageMetadata;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+
+/**
+ * Encrypts {@code images.image_data} on the way in and decrypts it on the way out, see
+ * {@link EnvelopeEncryption}. Rows without an envelope are plaintext, written before encryption was enabled.
+ */
+@Component
+@RequiredArgsConstructor
+public class ImageEncryption {
+
+    private final EnvelopeEncryption encryption;
+
+    /**
+     * @param envelope {@code null} when encryption is off and {@code data} is the plaintext
+     */
+    public record Sealed(byte[] data, String envelope, String keyId) {
+    }
+
+    public Sealed seal(byte[] plaintext) {
+        if (!encryption.isEnabled()) {
+            return new Sealed(plaintext, null, null);
+        }
+        Envelope envelope = encryption.newEnvelope(plaintext.length);
+        return new Sealed(encryption.encrypt(plaintext, envelope), envelope.encode(), envelope.keyId());
+    }
+
+    public void seal(ImageMetadata image, byte[] plaintext) {
+        Sealed sealed = seal(plaintext);
+        image.setData(sealed.data());
+        image.setEncryptionEnvelope(sealed.envelope());
+        image.setEncryptionKeyId(sealed.keyId());
+    }
+
+    public byte[] open(ImageMetadata image) {
+        if (image.getEncryptionEnvelope() == null) {
+            return image.getData();
+        }
+        return encryption.decrypt(image.getData(), Envelope.decode(image.getEncryptionEnvelope()));
+    }
+
+    /**
+     * Decrypts chunk by chunk as the caller reads, so no plaintext copy of the whole image is made.
+     */
+    public InputStream openStream(ImageMetadata image) {
+        InputStream stored = new ByteArrayInputStream(image.getData());
+        if (image.getEncryptionEnvelope() == null) {
+            return stored;
+        }
+        return encryption.decrypt(stored, Envelope.decode(image.getEncryptionEnvelope()));
+    }
+
+    public long plaintextLength(ImageMetadata image) {
+        if (image.getEncryptionEnvelope() == null) {
+            return image.getData().length;
+        }
+        return Envelope.decode(image.getEncryptionEnvelope()).plaintextLength();
+    }
+}
@@ -0,0 +1,140 @@
+package org.trilgar.medimage.ssl.imaging.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.trilgar.medimage.ssl.crypto.Envelope;
+import org.trilgar.medimage.ssl.crypto.EnvelopeEncryption;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Re-wraps the data keys of images still wrapped with a retired key, {@code batchSize} rows at a time.
+ * Only {@code encryption_envelope} changes; the large object in {@code image_data} is neither read nor
+ * rewritten. The update only applies if the envelope is still the one that was read, so an image re-encoded
+ * meanwhile keeps its new envelope. Once a pass reports nothing left, the retired key can be dropped.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "storage.encryption.rotation.enabled", havingValue = "true")
+public class ImageKeyRotator implements SmartLifecycle {
+
+    private static final String CANDIDATES = """
+            SELECT id, encryption_envelope FROM images
+            WHERE encryption_key_id IS NOT NULL AND encryption_key_id <> ? AND id > ?
+            ORDER BY id LIMIT ?""";
+
+    private static final String REWRAP = """
+            UPDATE images SET encryption_envelope = ?, encryption_key_id = ?
+            WHERE id = ? AND encryption_envelope = ?""";
+
+    private record Candidate(UUID id, String envelope) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final EnvelopeEncryption encryption;
+    private final Duration interval;
+    private final int batchSize;
+    private final Counter rewrappedCounter;
+    private ScheduledExecutorService executor;
+    private volatile boolean running;
+
+    public ImageKeyRotator(JdbcTemplate jdbcTemplate,
+                           EnvelopeEncryption encryption,
+                           MeterRegistry meterRegistry,
+                           @Value("${storage.encryption.rotation.interval:1h}") Duration interval,
+                           @Value("${storage.encryption.rotation.batch-size:500}") int batchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.encryption = encryption;
+        this.interval = interval;
+        this.batchSize = batchSize;
+        this.rewrappedCounter = Counter.builder("storage.keys.rewrapped")
+                .description("Data keys re-wrapped with the active key")
+                .tag("store", "images")
+                .register(meterRegistry);
+    }
+
+    /**
+     * @return number of images re-wrapped
+     */
+    public int rotate() {
+        if (!encryption.hasRetiredKeys()) {
+            return 0;
+        }
+        String activeKeyId = encryption.activeKeyId();
+        UUID after = new UUID(Long.MIN_VALUE, Long.MIN_VALUE);
+        int total = 0;
+        List<Candidate> batch;
+        do {
+            batch = jdbcTemplate.query(CANDIDATES,
+                    (rs, rowNum) -> new Candidate(rs.getObject("id", UUID.class), rs.getString("encryption_envelope")),
+                    activeKeyId, after, batchSize);
+            for (Candidate candidate : batch) {
+                after = candidate.id();
+                total += rewrap(candidate, activeKeyId);
+            }
+        } while (batch.size() == batchSize && running);
+
+        if (total > 0) {
+            log.info("Re-wrapped data keys of {} images with '{}'", total, activeKeyId);
+        }
+        return total;
+    }
+
+    private int rewrap(Candidate candidate, String activeKeyId) {
+        try {
+            Envelope rewrapped = encryption.rewrap(Envelope.decode(candidate.envelope()));
+            int updated = jdbcTemplate.update(REWRAP, rewrapped.encode(), activeKeyId, candidate.id(),
+                    candidate.envelope());
+            rewrappedCounter.increment(updated);
+            return updated;
+        } catch (IllegalStateException | IllegalArgumentException e) {
+            // e.g. wrapped with a key no longer in the ring; left as is and reported on every pass
+            log.warn("Could not re-wrap data key of image {}: {}", candidate.id(), e.getMessage());
+            return 0;
+        }
+    }
+
+    private void runRotation() {
+        try {
+            rotate();
+        } catch (RuntimeException e) {
+            log.warn("Image key rotation failed: {}", e.getMessage());
+        }
+    }
+
+    @Override
+    public void start() {
+        if (!encryption.isEnabled()) {
+            log.warn("storage.encryption.rotation.enabled is set, but encryption is off; not rotating");
+            return;
+        }
+        executor = Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("image-key-rotator-"));
+        running = true;
+        executor.scheduleWithFixedDelay(this::runRotation, 0, interval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+}
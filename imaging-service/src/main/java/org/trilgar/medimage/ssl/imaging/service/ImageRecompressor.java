@@ -0,0 +1,64 @@
+package org.trilgar.medimage.ssl.imaging.service;
+
+import io.micrometer.observation.ObservationRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.trilgar.medimage.ssl.imaging.codec.ImageFormat;
+import org.trilgar.medimage.ssl.imaging.codec.PngTranscoder;
+import org.trilgar.medimage.ssl.imaging.model.ImageStoredEvent;
+import org.trilgar.medimage.ssl.imaging.repository.ImageRepository;
+import org.trilgar.medimage.ssl.metrics.PipelineObservations;
+
+import java.util.Optional;
+
+/**
+ * Re-encodes stored images to PNG once the upload transaction has committed. The upload already returned
+ * with the original bytes stored; the PNG replaces them only if it is smaller. Images {@link PngTranscoder}
+ * cannot carry over completely (several frames, text, resolution, colour profile) keep their original encoding.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class ImageRecompressor {
+
+    private final ImageRepository imageRepository;
+    private final PngTranscoder pngTranscoder;
+    private final ThreadPoolTaskExecutor imageEncodingExecutor;
+    private final ObservationRegistry observationRegistry;
+    private final ImageEncryption imageEncryption;
+
+    @TransactionalEventListener
+    public void onImageStored(ImageStoredEvent event) {
+        if (!event.format().isLosslessDecodable()) {
+            return;
+        }
+        try {
+            imageEncodingExecutor.execute(() -> recompress(event));
+        } catch (TaskRejectedException e) {
+            log.warn("Encoding queue full, image {} stays {}", event.imageId(), event.format());
+        }
+    }
+
+    private void recompress(ImageStoredEvent event) {
+        try {
+            Optional<byte[]> png = PipelineObservations.observe(observationRegistry, "image.encode",
+                    () -> pngTranscoder.toPng(event.data(), event.format()));
+            if (png.isEmpty() || png.get().length >= event.data().length) {
+                log.debug("Image {} kept as {}", event.imageId(), event.format());
+                return;
+            }
+            // the PNG gets a data key of its own; the event carries the plaintext, so nothing is decrypted here
+            ImageEncryption.Sealed sealed = imageEncryption.seal(png.get());
+            imageRepository.updateEncoding(event.imageId(), sealed.data(), ImageFormat.PNG.name(),
+                    (long) png.get().length, sealed.envelope(), sealed.keyId());
+            log.info("Image {} re-encoded from {} ({} bytes) to PNG ({} bytes)",
+                    event.imageId(), event.format(), event.data().length, png.get().length);
+        } catch (RuntimeException e) {
+            log.warn("Re-encoding image {} failed, keeping {}: {}", event.imageId(), event.format(), e.getMessage());
+        }
+    }
+}
@@ -1,13 +1,23 @@
 package org.trilgar.medimage.ssl.imaging.service;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.server.ResponseStatusException;
+import org.trilgar.medimage.ssl.imaging.codec.ImageFormat;
+import org.trilgar.medimage.ssl.imaging.codec.PngTranscoder;
 import org.trilgar.medimage.ssl.imaging.entity.ImageMetadata;
+import org.trilgar.medimage.ssl.imaging.model.ImageContent;
+import org.trilgar.medimage.ssl.imaging.model.ImageStoredEvent;
 import org.trilgar.medimage.ssl.imaging.repository.ImageRepository;
 import org.trilgar.medimage.ssl.imaging.service.api.ImagingService;
 
+import java.io.ByteArrayInputStream;
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 
 @Service
@@ -15,28 +25,70 @@ import java.util.UUID;
 public class ImagingServiceImpl implements ImagingService {
 
     private final ImageRepository imageRepository;
+    private final PngTranscoder pngTranscoder;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ImageEncryption imageEncryption;
 
+    /**
+     * Stores the bytes as sent (encrypted if enabled), tagged with the format detected from them. Re-encoding
+     * happens after commit in {@link ImageRecompressor}, so the upload does not wait for it.
+     */
     @Transactional
     @Override
     public ImageMetadata saveImage(UUID patientId, byte[] imageData, String modality) {
+        ImageFormat format = ImageFormat.detect(imageData);
         ImageMetadata metadata = new ImageMetadata();
         metadata.setPatientId(patientId);
-        metadata.setData(imageData);
+        imageEncryption.seal(metadata, imageData);
         metadata.setModality(modality);
-        metadata.setFormat("PNG");
-        return imageRepository.save(metadata);
+        metadata.setFormat(format.name());
+        metadata.setOriginalFormat(format.name());
+        metadata.setOriginalSize((long) imageData.length);
+        metadata.setStoredSize((long) imageData.length);
+        ImageMetadata saved = imageRepository.save(metadata);
+        eventPublisher.publishEvent(new ImageStoredEvent(saved.getId(), imageData, format));
+        return saved;
     }
 
     @Transactional(readOnly = true)
     @Override
     public byte[] getImageData(UUID imageId) {
         return imageRepository.findById(imageId)
-                .map(ImageMetadata::getData)
+                .map(imageEncryption::open)
                 .orElseThrow(() -> new RuntimeException("Image not found"));
     }
 
+    /**
+     * Serves the stored encoding when the client accepts it, otherwise PNG if it can be produced without
+     * loss. {@code acceptable} is expected in order of preference. The stored encoding is decrypted while the
+     * response is written.
+     */
+    @Transactional(readOnly = true)
+    @Override
+    public ImageContent getImageContent(UUID imageId, List<MediaType> acceptable) {
+        ImageMetadata image = imageRepository.findById(imageId)
+                .orElseThrow(() -> new RuntimeException("Image not found"));
+        ImageFormat stored = ImageFormat.fromName(image.getFormat());
+
+        for (MediaType mediaType : acceptable) {
+            if (mediaType.includes(stored.getMediaType())) {
+                return new ImageContent(imageEncryption.openStream(image), imageEncryption.plaintextLength(image),
+                        stored.getMediaType());
+            }
+            if (mediaType.includes(MediaType.IMAGE_PNG)) {
+                Optional<byte[]> png = pngTranscoder.toPng(imageEncryption.openStream(image), stored);
+                if (png.isPresent()) {
+                    return new ImageContent(new ByteArrayInputStream(png.get()), png.get().length,
+                            MediaType.IMAGE_PNG);
+                }
+            }
+        }
+        throw new ResponseStatusException(HttpStatus.NOT_ACCEPTABLE,
+                "Image is stored as " + stored.getMediaType() + " and cannot be converted to the accepted types");
+    }
+
     @Override
     public List<ImageMetadata> getImagesByPatient(UUID patientId) {
         return imageRepository.findAllByPatientId(patientId);
     }
-}
\ No newline at end of file
+}
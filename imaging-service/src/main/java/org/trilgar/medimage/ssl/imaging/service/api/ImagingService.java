@@ -1,6 +1,8 @@
 package org.trilgar.medimage.ssl.imaging.service.api;
 
+import org.springframework.http.MediaType;
 import org.trilgar.medimage.ssl.imaging.entity.ImageMetadata;
+import org.trilgar.medimage.ssl.imaging.model.ImageContent;
 
 import java.util.List;
 import java.util.UUID;
@@ -10,5 +12,7 @@ public interface ImagingService {
 
     byte[] getImageData(UUID imageId);
 
+    ImageContent getImageContent(UUID imageId, List<MediaType> acceptable);
+
     List<ImageMetadata> getImagesByPatient(UUID patientId);
 }
@@ -0,0 +1,18 @@
+-- Matches the schema Hibernate created under ddl-auto: update, so existing databases baseline onto it.
+
+CREATE TABLE IF NOT EXISTS images (
+    id              UUID         NOT NULL PRIMARY KEY,
+    patient_id      UUID         NOT NULL,
+    image_data      OID          NOT NULL,
+    modality        VARCHAR(255),
+    format          VARCHAR(255),
+    original_format VARCHAR(255),
+    original_size   BIGINT,
+    stored_size     BIGINT,
+    uploaded_at     TIMESTAMP(6)
+);
+
+-- added with lossless re-encoding; absent on databases last updated before it
+ALTER TABLE images ADD COLUMN IF NOT EXISTS original_format VARCHAR(255);
+ALTER TABLE images ADD COLUMN IF NOT EXISTS original_size BIGINT;
+ALTER TABLE images ADD COLUMN IF NOT EXISTS stored_size BIGINT;
@@ -0,0 +1,2 @@
+-- GET /api/images/patient/{patientId}
+CREATE INDEX IF NOT EXISTS idx_images_patient_uploaded ON images (patient_id, uploaded_at);
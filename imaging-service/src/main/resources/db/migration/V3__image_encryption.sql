@@ -0,0 +1,7 @@
+-- envelope of the data key image_data is encrypted with; NULL for images stored in plaintext
+ALTER TABLE images ADD COLUMN IF NOT EXISTS encryption_envelope VARCHAR(512);
+ALTER TABLE images ADD COLUMN IF NOT EXISTS encryption_key_id VARCHAR(64);
+
+-- key rotation: images still wrapped with a retired key
+CREATE INDEX IF NOT EXISTS idx_images_encryption_key ON images (encryption_key_id, id)
+    WHERE encryption_key_id IS NOT NULL;
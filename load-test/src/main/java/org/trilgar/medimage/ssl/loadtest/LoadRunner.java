@@ -0,0 +1,102 @@
+package org.trilgar.medimage.ssl.loadtest;
+
+import lombok.extern.slf4j.Slf4j;
+import org.trilgar.medimage.ssl.loadtest.driver.PipelineDriver;
+import org.trilgar.medimage.ssl.loadtest.driver.StageFailedException;
+import org.trilgar.medimage.ssl.loadtest.report.LatencyRecorder;
+import org.trilgar.medimage.ssl.loadtest.report.StepResult;
+import org.trilgar.medimage.ssl.loadtest.workload.ExaminationScenario;
+import org.trilgar.medimage.ssl.loadtest.workload.PoissonArrivals;
+import org.trilgar.medimage.ssl.loadtest.workload.Workload;
+
+import java.time.Duration;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Open-model generator: arrivals are scheduled by a Poisson process and each one runs on its own
+ * client thread, so a slow system does not slow the generator down (no coordinated omission).
+ * End-to-end latency is measured from the scheduled arrival time. Arrivals beyond
+ * {@code --max-in-flight} are shed and counted instead of started.
+ */
+@Slf4j
+public class LoadRunner {
+
+    private final LoadTestConfig config;
+    private final Workload workload;
+    private final PipelineDriver driver;
+    private final AtomicLong sequence = new AtomicLong();
+    private final ExecutorService clients;
+
+    public LoadRunner(LoadTestConfig config, Workload workload, PipelineDriver driver) {
+        this.config = config;
+        this.workload = workload;
+        this.driver = driver;
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.clients = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "load-client-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public StepResult runStep(int index, double rate) {
+        LatencyRecorder recorder = new LatencyRecorder();
+        PoissonArrivals arrivals = new PoissonArrivals(rate, new Random(config.seed() + index));
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicLong lastFinished = new AtomicLong();
+
+        log.info("Step {}: {} arrivals/s for {}s", index + 1, rate, config.stepDuration().toSeconds());
+        long start = System.nanoTime();
+        long end = start + config.stepDuration().toNanos();
+        long next = start;
+        while (next < end) {
+            long wait = next - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            ExaminationScenario scenario = workload.next(sequence.incrementAndGet(), next);
+            recorder.recordArrival();
+            if (inFlight.get() >= config.maxInFlight()) {
+                recorder.recordShed();
+            } else {
+                inFlight.incrementAndGet();
+                clients.execute(() -> runOne(scenario, recorder, inFlight, lastFinished));
+            }
+            next += arrivals.nextGapNanos();
+        }
+
+        long drainDeadline = System.nanoTime() + config.drainTimeout().toNanos();
+        while (inFlight.get() > 0 && System.nanoTime() < drainDeadline) {
+            LockSupport.parkNanos(10_000_000);
+        }
+        int unfinished = inFlight.get();
+        long finishedAt = unfinished > 0 ? System.nanoTime() : Math.max(lastFinished.get(), end);
+        return new StepResult(index, rate, config.stepDuration(), Duration.ofNanos(finishedAt - start), unfinished,
+                recorder.snapshot());
+    }
+
+    public void close() {
+        clients.shutdownNow();
+    }
+
+    private void runOne(ExaminationScenario scenario, LatencyRecorder recorder, AtomicInteger inFlight, AtomicLong lastFinished) {
+        try {
+            driver.run(scenario, recorder);
+            recorder.recordCompleted(scenario.urgent(), System.nanoTime() - scenario.scheduledAtNanos());
+        } catch (StageFailedException e) {
+            recorder.recordFailure(e.getStage());
+            log.debug("Examination {} failed", scenario.sequence(), e);
+        } catch (RuntimeException e) {
+            recorder.recordFailure(Stage.END_TO_END);
+            log.warn("Examination {} failed unexpectedly", scenario.sequence(), e);
+        } finally {
+            lastFinished.accumulateAndGet(System.nanoTime(), Math::max);
+            inFlight.decrementAndGet();
+        }
+    }
+}
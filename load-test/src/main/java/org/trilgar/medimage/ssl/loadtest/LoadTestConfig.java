@@ -0,0 +1,72 @@
+package org.trilgar.medimage.ssl.loadtest;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Command-line settings, given as {@code --name=value}. Defaults target the docker-compose stack.
+ */
+public record LoadTestConfig(
+        String driver,
+        URI patientUrl,
+        URI radiologyUrl,
+        URI notificationUrl,
+        List<Double> rates,
+        Duration stepDuration,
+        Duration drainTimeout,
+        Duration requestTimeout,
+        double urgentRatio,
+        String imageSizes,
+        String modality,
+        int maxInFlight,
+        Duration sloP99,
+        boolean stopAtSaturation,
+        String outputDir,
+        long seed,
+        int simAnalysisWorkers,
+        Duration simAnalysisTime,
+        int simResultWorkers,
+        double simBandwidthMbPerSecond
+) {
+
+    public static LoadTestConfig parse(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Expected --name=value but got: " + arg);
+            }
+            int separator = arg.indexOf('=');
+            options.put(arg.substring(2, separator), arg.substring(separator + 1));
+        }
+
+        return new LoadTestConfig(
+                options.getOrDefault("driver", "http"),
+                URI.create(options.getOrDefault("patient-url", "http://localhost:8080")),
+                URI.create(options.getOrDefault("radiology-url", "http://localhost:8081")),
+                URI.create(options.getOrDefault("notification-url", "http://localhost:8084")),
+                Arrays.stream(options.getOrDefault("rates", "0.2,0.5,1,2").split(","))
+                        .map(String::trim)
+                        .map(Double::parseDouble)
+                        .toList(),
+                Duration.ofSeconds(Long.parseLong(options.getOrDefault("step-seconds", "60"))),
+                Duration.ofSeconds(Long.parseLong(options.getOrDefault("drain-seconds", "120"))),
+                Duration.ofSeconds(Long.parseLong(options.getOrDefault("timeout-seconds", "120"))),
+                Double.parseDouble(options.getOrDefault("urgent-ratio", "0.2")),
+                options.getOrDefault("image-sizes", "256k:0.5,1m:0.35,4m:0.15"),
+                options.getOrDefault("modality", "XRAY"),
+                Integer.parseInt(options.getOrDefault("max-in-flight", "2000")),
+                Duration.ofMillis(Long.parseLong(options.getOrDefault("slo-p99-ms", "30000"))),
+                Boolean.parseBoolean(options.getOrDefault("stop-at-saturation", "true")),
+                options.getOrDefault("out", "load-test-results"),
+                Long.parseLong(options.getOrDefault("seed", "42")),
+                Integer.parseInt(options.getOrDefault("sim.analysis-workers", "1")),
+                Duration.ofMillis(Long.parseLong(options.getOrDefault("sim.analysis-ms", "2000"))),
+                Integer.parseInt(options.getOrDefault("sim.result-workers", "1")),
+                Double.parseDouble(options.getOrDefault("sim.bandwidth-mbps", "100"))
+        );
+    }
+}
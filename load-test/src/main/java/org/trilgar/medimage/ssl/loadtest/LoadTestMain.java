@@ -0,0 +1,56 @@
+package org.trilgar.medimage.ssl.loadtest;
+
+import lombok.extern.slf4j.Slf4j;
+import org.trilgar.medimage.ssl.loadtest.driver.HttpPipelineDriver;
+import org.trilgar.medimage.ssl.loadtest.driver.PipelineDriver;
+import org.trilgar.medimage.ssl.loadtest.driver.SimulatedPipelineDriver;
+import org.trilgar.medimage.ssl.loadtest.report.LoadTestReport;
+import org.trilgar.medimage.ssl.loadtest.report.StepResult;
+import org.trilgar.medimage.ssl.loadtest.workload.ImageSizeDistribution;
+import org.trilgar.medimage.ssl.loadtest.workload.Workload;
+
+import java.util.Random;
+
+/**
+ * Runs the configured arrival-rate steps one after another against the chosen driver and reports
+ * latencies per step, stopping after the first saturated step unless told otherwise.
+ */
+@Slf4j
+public class LoadTestMain {
+
+    public static void main(String[] args) throws Exception {
+        LoadTestConfig config = LoadTestConfig.parse(args);
+        Workload workload = new Workload(new Random(config.seed()), config.urgentRatio(),
+                ImageSizeDistribution.parse(config.imageSizes()), config.modality());
+        LoadTestReport report = new LoadTestReport(config, System.out);
+
+        try (PipelineDriver driver = createDriver(config, workload)) {
+            driver.start();
+            LoadRunner runner = new LoadRunner(config, workload, driver);
+            try {
+                for (int i = 0; i < config.rates().size(); i++) {
+                    StepResult step = runner.runStep(i, config.rates().get(i));
+                    report.add(step);
+                    if (config.stopAtSaturation() && step.saturated(config.sloP99())) {
+                        log.info("Step {} is saturated, skipping higher rates", i + 1);
+                        break;
+                    }
+                }
+            } finally {
+                runner.close();
+            }
+        }
+
+        report.printSummary();
+        report.write();
+        System.exit(0);
+    }
+
+    private static PipelineDriver createDriver(LoadTestConfig config, Workload workload) {
+        return switch (config.driver()) {
+            case "http" -> new HttpPipelineDriver(config, workload);
+            case "simulated" -> new SimulatedPipelineDriver(config);
+            default -> throw new IllegalArgumentException("Unknown driver " + config.driver() + ", expected http or simulated");
+        };
+    }
+}
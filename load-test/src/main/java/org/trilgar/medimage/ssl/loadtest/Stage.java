@@ -0,0 +1,17 @@
+package org.trilgar.medimage.ssl.loadtest;
+
+/**
+ * Hops of one examination through the platform, in the order a request passes them.
+ */
+public enum Stage {
+    /** {@code POST /api/patient/examine} until the response arrives. */
+    EXAMINE,
+    /** Examination response until the radiology task is visible (broker hop + radiology listener). */
+    TASK_VISIBLE,
+    /** {@code POST /api/radiology/scan} until the response arrives (S3 upload, task update, publish). */
+    SCAN_UPLOAD,
+    /** Scan response until the SSE notification arrives (analysis, result processing, archiving, fan-out). */
+    ANALYSIS_TO_NOTIFICATION,
+    /** Scheduled arrival time until the SSE notification arrives. */
+    END_TO_END
+}
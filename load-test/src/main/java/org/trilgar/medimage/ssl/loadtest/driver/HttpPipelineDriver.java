@@ -0,0 +1,205 @@
+package org.trilgar.medimage.ssl.loadtest.driver;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.trilgar.medimage.ssl.loadtest.LoadTestConfig;
+import org.trilgar.medimage.ssl.loadtest.Stage;
+import org.trilgar.medimage.ssl.loadtest.report.LatencyRecorder;
+import org.trilgar.medimage.ssl.loadtest.workload.ExaminationScenario;
+import org.trilgar.medimage.ssl.loadtest.workload.Workload;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Drives the real services over HTTP, the way a doctor and a radiologist would:
+ * create the examination, wait for the radiology task, upload the scan and wait for the SSE
+ * notification of the result.
+ */
+public class HttpPipelineDriver implements PipelineDriver {
+
+    private static final Pattern EXAMINATION_RESPONSE = Pattern.compile("patient: ([0-9a-fA-F-]{36})\\. ID: ([0-9a-fA-F-]{36})");
+    private static final Duration TASK_POLL_INTERVAL = Duration.ofMillis(50);
+
+    private final LoadTestConfig config;
+    private final Workload workload;
+    private final HttpClient httpClient;
+    private final NotificationStream notifications;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    public HttpPipelineDriver(LoadTestConfig config, Workload workload) {
+        this.config = config;
+        this.workload = workload;
+        this.httpClient = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(10))
+                .executor(Executors.newCachedThreadPool())
+                .build();
+        this.notifications = new NotificationStream(httpClient, config.notificationUrl());
+    }
+
+    @Override
+    public void start() throws InterruptedException {
+        notifications.start(30, TimeUnit.SECONDS);
+    }
+
+    @Override
+    public void run(ExaminationScenario scenario, LatencyRecorder recorder) {
+        long examineStart = System.nanoTime();
+        String[] ids = createExamination(scenario);
+        long examined = System.nanoTime();
+        recorder.record(Stage.EXAMINE, examined - examineStart);
+
+        UUID patientId = UUID.fromString(ids[0]);
+        UUID examinationId = UUID.fromString(ids[1]);
+
+        awaitTask(examinationId, examined);
+        long taskVisible = System.nanoTime();
+        recorder.record(Stage.TASK_VISIBLE, taskVisible - examined);
+
+        CompletableFuture<Long> notified = notifications.expect(examinationId);
+        try {
+            uploadScan(scenario, patientId);
+            long scanned = System.nanoTime();
+            recorder.record(Stage.SCAN_UPLOAD, scanned - taskVisible);
+
+            long notifiedAt = awaitNotification(notified);
+            recorder.record(Stage.ANALYSIS_TO_NOTIFICATION, notifiedAt - scanned);
+        } finally {
+            notifications.forget(examinationId);
+        }
+    }
+
+    @Override
+    public void close() {
+        notifications.close();
+    }
+
+    private String[] createExamination(ExaminationScenario scenario) {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("fullName", "Load Test " + scenario.sequence());
+        body.put("email", "load-test-" + scenario.sequence() + "@example.org");
+        body.put("dob", "1980-01-01");
+        body.put("modality", scenario.modality());
+        body.put("notes", "load-test");
+        body.put("isUrgent", scenario.urgent());
+
+        HttpRequest request = HttpRequest.newBuilder(config.patientUrl().resolve("/api/patient/examine"))
+                .timeout(config.requestTimeout())
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(toJson(body)))
+                .build();
+        String response = send(Stage.EXAMINE, request);
+
+        Matcher matcher = EXAMINATION_RESPONSE.matcher(response);
+        if (!matcher.find()) {
+            throw new StageFailedException(Stage.EXAMINE, "Unexpected response: " + response);
+        }
+        return new String[]{matcher.group(1), matcher.group(2)};
+    }
+
+    private void awaitTask(UUID examinationId, long since) {
+        HttpRequest request = HttpRequest.newBuilder(config.radiologyUrl().resolve("/api/radiology/tasks/" + examinationId))
+                .timeout(config.requestTimeout())
+                .GET()
+                .build();
+        long deadline = since + config.requestTimeout().toNanos();
+        while (System.nanoTime() < deadline) {
+            try {
+                if (httpClient.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() == 200) {
+                    return;
+                }
+                Thread.sleep(TASK_POLL_INTERVAL.toMillis());
+            } catch (IOException e) {
+                throw new StageFailedException(Stage.TASK_VISIBLE, e);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new StageFailedException(Stage.TASK_VISIBLE, e);
+            }
+        }
+        throw new StageFailedException(Stage.TASK_VISIBLE, "Task " + examinationId + " did not appear in time");
+    }
+
+    private void uploadScan(ExaminationScenario scenario, UUID patientId) {
+        String boundary = "load-test-" + UUID.randomUUID();
+        HttpRequest request = HttpRequest.newBuilder(config.radiologyUrl().resolve("/api/radiology/scan"))
+                .timeout(config.requestTimeout())
+                .header("Content-Type", "multipart/form-data; boundary=" + boundary)
+                .POST(HttpRequest.BodyPublishers.ofByteArray(
+                        multipart(boundary, patientId, scenario.modality(), workload.imageOf(scenario))))
+                .build();
+        send(Stage.SCAN_UPLOAD, request);
+    }
+
+    private long awaitNotification(CompletableFuture<Long> notified) {
+        try {
+            return notified.get(config.requestTimeout().toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            throw new StageFailedException(Stage.ANALYSIS_TO_NOTIFICATION, "No notification within " + config.requestTimeout());
+        } catch (ExecutionException e) {
+            throw new StageFailedException(Stage.ANALYSIS_TO_NOTIFICATION, e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new StageFailedException(Stage.ANALYSIS_TO_NOTIFICATION, e);
+        }
+    }
+
+    private String send(Stage stage, HttpRequest request) {
+        try {
+            HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() != 200) {
+                throw new StageFailedException(stage, "HTTP " + response.statusCode() + ": " + response.body());
+            }
+            return response.body();
+        } catch (IOException e) {
+            throw new StageFailedException(stage, e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new StageFailedException(stage, e);
+        }
+    }
+
+    private String toJson(Object body) {
+        try {
+            return objectMapper.writeValueAsString(body);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static byte[] multipart(String boundary, UUID patientId, String modality, byte[] image) {
+        ByteArrayOutputStream body = new ByteArrayOutputStream(image.length + 512);
+        writeField(body, boundary, "patientId", patientId.toString());
+        writeField(body, boundary, "modality", modality);
+        write(body, "--" + boundary + "\r\n"
+                + "Content-Disposition: form-data; name=\"file\"; filename=\"scan.png\"\r\n"
+                + "Content-Type: image/png\r\n\r\n");
+        body.writeBytes(image);
+        write(body, "\r\n--" + boundary + "--\r\n");
+        return body.toByteArray();
+    }
+
+    private static void writeField(ByteArrayOutputStream body, String boundary, String name, String value) {
+        write(body, "--" + boundary + "\r\n"
+                + "Content-Disposition: form-data; name=\"" + name + "\"\r\n\r\n"
+                + value + "\r\n");
+    }
+
+    private static void write(ByteArrayOutputStream body, String text) {
+        body.writeBytes(text.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,153 @@
+package org.trilgar.medimage.ssl.loadtest.driver;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * One unfiltered SSE subscription to the notification service, shared by all in-flight examinations.
+ * Each examination registers its request id before the scan is uploaded and gets a future that
+ * completes with the {@link System#nanoTime()} at which its notification arrived. Both single
+ * {@code notification} events and batched {@code notifications} arrays are understood; the stream
+ * reconnects with {@code Last-Event-ID} if it drops.
+ */
+@Slf4j
+class NotificationStream implements AutoCloseable {
+
+    private final HttpClient httpClient;
+    private final URI streamUri;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Map<UUID, CompletableFuture<Long>> pending = new ConcurrentHashMap<>();
+    private final CountDownLatch connected = new CountDownLatch(1);
+    private final Thread reader;
+    private volatile String lastEventId;
+    private volatile boolean closed;
+
+    NotificationStream(HttpClient httpClient, URI notificationUrl) {
+        this.httpClient = httpClient;
+        this.streamUri = notificationUrl.resolve("/api/notifications/stream");
+        this.reader = new Thread(this::readLoop, "sse-reader");
+        this.reader.setDaemon(true);
+    }
+
+    void start(long timeout, TimeUnit unit) throws InterruptedException {
+        reader.start();
+        if (!connected.await(timeout, unit)) {
+            throw new IllegalStateException("Could not open notification stream at " + streamUri);
+        }
+    }
+
+    CompletableFuture<Long> expect(UUID requestId) {
+        return pending.computeIfAbsent(requestId, id -> new CompletableFuture<>());
+    }
+
+    void forget(UUID requestId) {
+        pending.remove(requestId);
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        reader.interrupt();
+    }
+
+    private void readLoop() {
+        while (!closed) {
+            try {
+                HttpRequest.Builder request = HttpRequest.newBuilder(streamUri)
+                        .header("Accept", "text/event-stream")
+                        .GET();
+                if (lastEventId != null) {
+                    request.header("Last-Event-ID", lastEventId);
+                }
+                HttpResponse<Stream<String>> response = httpClient.send(request.build(), HttpResponse.BodyHandlers.ofLines());
+                if (response.statusCode() != 200) {
+                    throw new IOException("Notification stream answered " + response.statusCode());
+                }
+                connected.countDown();
+                try (Stream<String> lines = response.body()) {
+                    consume(lines.iterator());
+                }
+            } catch (InterruptedException e) {
+                return;
+            } catch (Exception e) {
+                if (!closed) {
+                    log.warn("Notification stream dropped ({}), reconnecting", e.getMessage());
+                    sleepBeforeReconnect();
+                }
+            }
+        }
+    }
+
+    private void consume(Iterator<String> lines) {
+        String event = "message";
+        StringBuilder data = new StringBuilder();
+        while (lines.hasNext() && !closed) {
+            String line = lines.next();
+            if (line.isEmpty()) {
+                if (!data.isEmpty()) {
+                    dispatch(event, data.toString());
+                }
+                event = "message";
+                data.setLength(0);
+            } else if (line.startsWith("event:")) {
+                event = line.substring(6).trim();
+            } else if (line.startsWith("id:")) {
+                lastEventId = line.substring(3).trim();
+            } else if (line.startsWith("data:")) {
+                if (!data.isEmpty()) {
+                    data.append('\n');
+                }
+                data.append(line.substring(5).stripLeading());
+            }
+        }
+    }
+
+    private void dispatch(String event, String data) {
+        long receivedAt = System.nanoTime();
+        try {
+            JsonNode payload = objectMapper.readTree(data);
+            if ("notifications".equals(event) && payload.isArray()) {
+                payload.forEach(item -> complete(item, receivedAt));
+            } else if ("notification".equals(event)) {
+                complete(payload, receivedAt);
+            }
+        } catch (IOException e) {
+            log.warn("Ignoring unparseable {} event: {}", event, e.getMessage());
+        }
+    }
+
+    private void complete(JsonNode notification, long receivedAt) {
+        JsonNode requestId = notification.get("requestId");
+        if (requestId == null || requestId.isNull()) {
+            return;
+        }
+        CompletableFuture<Long> future = pending.remove(UUID.fromString(requestId.asText()));
+        if (future != null) {
+            future.complete(receivedAt);
+        }
+    }
+
+    private void sleepBeforeReconnect() {
+        try {
+            Thread.sleep(1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            closed = true;
+        }
+    }
+}
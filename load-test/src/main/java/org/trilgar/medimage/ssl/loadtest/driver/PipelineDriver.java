@@ -0,0 +1,22 @@
+package org.trilgar.medimage.ssl.loadtest.driver;
+
+import org.trilgar.medimage.ssl.loadtest.report.LatencyRecorder;
+import org.trilgar.medimage.ssl.loadtest.workload.ExaminationScenario;
+
+/**
+ * Runs one examination through the pipeline and records the latency of each stage it passes.
+ * {@link #run} blocks until the completion notification arrives and is called concurrently by
+ * the load generator, one call per arrival.
+ */
+public interface PipelineDriver extends AutoCloseable {
+
+    void start() throws Exception;
+
+    /**
+     * @throws StageFailedException when a stage fails or times out; the caller counts it against that stage
+     */
+    void run(ExaminationScenario scenario, LatencyRecorder recorder);
+
+    @Override
+    void close();
+}
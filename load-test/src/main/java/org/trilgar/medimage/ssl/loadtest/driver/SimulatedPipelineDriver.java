@@ -0,0 +1,82 @@
+package org.trilgar.medimage.ssl.loadtest.driver;
+
+import org.trilgar.medimage.ssl.loadtest.LoadTestConfig;
+import org.trilgar.medimage.ssl.loadtest.Stage;
+import org.trilgar.medimage.ssl.loadtest.report.LatencyRecorder;
+import org.trilgar.medimage.ssl.loadtest.workload.ExaminationScenario;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-process stand-ins for the pipeline, to try out the harness and reason about capacity without
+ * the docker-compose stack. Each hop is a {@link SimulatedStage} whose worker count matches the
+ * current deployment (one listener consumer per queue, a 2s mock inference), with transfer times
+ * derived from the image size and {@code --sim.bandwidth-mbps}.
+ */
+public class SimulatedPipelineDriver implements PipelineDriver {
+
+    private static final int HTTP_THREADS = 200;
+
+    private final double bytesPerNano;
+    private final long analysisNanos;
+
+    private final SimulatedStage patientApi = new SimulatedStage("sim-patient-http", HTTP_THREADS);
+    private final SimulatedStage examinationListener = new SimulatedStage("sim-examination-listener", 1);
+    private final SimulatedStage radiologyApi = new SimulatedStage("sim-radiology-http", HTTP_THREADS);
+    private final SimulatedStage analysisListener;
+    private final SimulatedStage resultListener;
+    private final SimulatedStage notificationFanOut = new SimulatedStage("sim-notification", 1);
+
+    public SimulatedPipelineDriver(LoadTestConfig config) {
+        this.bytesPerNano = config.simBandwidthMbPerSecond() * 1024 * 1024 / TimeUnit.SECONDS.toNanos(1);
+        this.analysisNanos = config.simAnalysisTime().toNanos();
+        this.analysisListener = new SimulatedStage("sim-analysis-listener", config.simAnalysisWorkers());
+        this.resultListener = new SimulatedStage("sim-result-listener", config.simResultWorkers());
+    }
+
+    @Override
+    public void start() {
+    }
+
+    @Override
+    public void run(ExaminationScenario scenario, LatencyRecorder recorder) {
+        long transfer = (long) (scenario.imageBytes() / bytesPerNano);
+        long start = System.nanoTime();
+        try {
+            patientApi.process(millis(15));
+            long examined = System.nanoTime();
+            recorder.record(Stage.EXAMINE, examined - start);
+
+            examinationListener.process(millis(10));
+            long taskVisible = System.nanoTime();
+            recorder.record(Stage.TASK_VISIBLE, taskVisible - examined);
+
+            radiologyApi.process(millis(20) + transfer);
+            long scanned = System.nanoTime();
+            recorder.record(Stage.SCAN_UPLOAD, scanned - taskVisible);
+
+            // download + inference, then download + archive in the patient service, then SSE fan-out
+            analysisListener.process(transfer + analysisNanos);
+            resultListener.process(millis(30) + 2 * transfer);
+            notificationFanOut.process(millis(1));
+            recorder.record(Stage.ANALYSIS_TO_NOTIFICATION, System.nanoTime() - scanned);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new StageFailedException(Stage.END_TO_END, e);
+        }
+    }
+
+    @Override
+    public void close() {
+        patientApi.close();
+        examinationListener.close();
+        radiologyApi.close();
+        analysisListener.close();
+        resultListener.close();
+        notificationFanOut.close();
+    }
+
+    private static long millis(long value) {
+        return TimeUnit.MILLISECONDS.toNanos(value);
+    }
+}
@@ -0,0 +1,43 @@
+package org.trilgar.medimage.ssl.loadtest.driver;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A service stand-in: a fixed number of workers in front of an unbounded FIFO queue, like a
+ * listener container with {@code concurrency} consumers or a servlet thread pool. A call waits in
+ * the queue for a free worker and then holds it for the service time (with ±20% jitter).
+ */
+class SimulatedStage implements AutoCloseable {
+
+    private final ExecutorService workers;
+
+    SimulatedStage(String name, int workerCount) {
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(workerCount, runnable -> {
+            Thread thread = new Thread(runnable, name + "-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    void process(long serviceNanos) throws InterruptedException {
+        long jittered = (long) (serviceNanos * (0.8 + 0.4 * ThreadLocalRandom.current().nextDouble()));
+        try {
+            workers.submit(() -> {
+                Thread.sleep(jittered / 1_000_000, (int) (jittered % 1_000_000));
+                return null;
+            }).get();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    @Override
+    public void close() {
+        workers.shutdownNow();
+    }
+}
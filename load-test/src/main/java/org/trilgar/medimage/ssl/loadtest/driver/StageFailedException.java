@@ -0,0 +1,20 @@
+package org.trilgar.medimage.ssl.loadtest.driver;
+
+import lombok.Getter;
+import org.trilgar.medimage.ssl.loadtest.Stage;
+
+@Getter
+public class StageFailedException extends RuntimeException {
+
+    private final Stage stage;
+
+    public StageFailedException(Stage stage, String message) {
+        super(stage + ": " + message);
+        this.stage = stage;
+    }
+
+    public StageFailedException(Stage stage, Throwable cause) {
+        super(stage + ": " + cause.getMessage(), cause);
+        this.stage = stage;
+    }
+}
@@ -0,0 +1,111 @@
+package org.trilgar.medimage.ssl.loadtest.report;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.trilgar.medimage.ssl.loadtest.Stage;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per-step latency histograms (microseconds, 3 significant digits) for every {@link Stage}, plus
+ * end-to-end histograms split by urgent/routine and counters for failures per stage.
+ */
+public class LatencyRecorder {
+
+    private static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.HOURS.toMicros(1);
+
+    private final Map<Stage, Histogram> stages = new EnumMap<>(Stage.class);
+    private final Map<Stage, LongAdder> failures = new EnumMap<>(Stage.class);
+    private final Histogram urgentEndToEnd = newHistogram();
+    private final Histogram routineEndToEnd = newHistogram();
+    private final LongAdder arrivals = new LongAdder();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder shed = new LongAdder();
+
+    public LatencyRecorder() {
+        for (Stage stage : Stage.values()) {
+            stages.put(stage, newHistogram());
+            failures.put(stage, new LongAdder());
+        }
+    }
+
+    public void recordArrival() {
+        arrivals.increment();
+    }
+
+    public void record(Stage stage, long nanos) {
+        stages.get(stage).recordValue(toMicros(nanos));
+    }
+
+    public void recordCompleted(boolean urgent, long endToEndNanos) {
+        long micros = toMicros(endToEndNanos);
+        stages.get(Stage.END_TO_END).recordValue(micros);
+        (urgent ? urgentEndToEnd : routineEndToEnd).recordValue(micros);
+        completed.increment();
+    }
+
+    public void recordFailure(Stage stage) {
+        failures.get(stage).increment();
+    }
+
+    /**
+     * Counts an arrival that was not started because the in-flight limit was reached.
+     */
+    public void recordShed() {
+        shed.increment();
+    }
+
+    /**
+     * Copies the current state, so requests that finish after a step has been evaluated do not change its result.
+     */
+    public LatencyRecorder snapshot() {
+        LatencyRecorder copy = new LatencyRecorder();
+        stages.forEach((stage, histogram) -> copy.stages.get(stage).add(histogram));
+        failures.forEach((stage, count) -> copy.failures.get(stage).add(count.sum()));
+        copy.urgentEndToEnd.add(urgentEndToEnd);
+        copy.routineEndToEnd.add(routineEndToEnd);
+        copy.arrivals.add(arrivals.sum());
+        copy.completed.add(completed.sum());
+        copy.shed.add(shed.sum());
+        return copy;
+    }
+
+    public Histogram histogram(Stage stage) {
+        return stages.get(stage);
+    }
+
+    public Histogram endToEnd(boolean urgent) {
+        return urgent ? urgentEndToEnd : routineEndToEnd;
+    }
+
+    public long failures(Stage stage) {
+        return failures.get(stage).sum();
+    }
+
+    public long totalFailures() {
+        return failures.values().stream().mapToLong(LongAdder::sum).sum();
+    }
+
+    public long arrivals() {
+        return arrivals.sum();
+    }
+
+    public long completed() {
+        return completed.sum();
+    }
+
+    public long shed() {
+        return shed.sum();
+    }
+
+    private static Histogram newHistogram() {
+        return new ConcurrentHistogram(HIGHEST_TRACKABLE_MICROS, 3);
+    }
+
+    private static long toMicros(long nanos) {
+        return Math.min(Math.max(TimeUnit.NANOSECONDS.toMicros(nanos), 1), HIGHEST_TRACKABLE_MICROS);
+    }
+}
@@ -0,0 +1,148 @@
+package org.trilgar.medimage.ssl.loadtest.report;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.HdrHistogram.Histogram;
+import org.trilgar.medimage.ssl.loadtest.LoadTestConfig;
+import org.trilgar.medimage.ssl.loadtest.Stage;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Prints a percentile table per step and a saturation summary, and writes {@code summary.json} plus one
+ * HdrHistogram percentile distribution ({@code .hgrm}, milliseconds) per step and stage to the output
+ * directory. The {@code .hgrm} files can be plotted with the HdrHistogram plotter.
+ */
+public class LoadTestReport {
+
+    private static final double[] PERCENTILES = {50.0, 90.0, 99.0, 99.9};
+    private static final double MICROS_PER_MILLI = 1000.0;
+
+    private final LoadTestConfig config;
+    private final PrintStream out;
+    private final List<StepResult> steps = new ArrayList<>();
+
+    public LoadTestReport(LoadTestConfig config, PrintStream out) {
+        this.config = config;
+        this.out = out;
+    }
+
+    public void add(StepResult step) {
+        steps.add(step);
+        printStep(step);
+    }
+
+    public void printSummary() {
+        out.println();
+        out.println("Saturation summary (SLO: end-to-end p99 <= " + config.sloP99().toMillis() + " ms)");
+        StepResult lastSustainable = null;
+        StepResult firstSaturated = null;
+        for (StepResult step : steps) {
+            out.printf(Locale.ROOT, "  %8.2f/s offered  %8.2f/s arrived  %8.2f/s achieved  p99 %8d ms  errors %5.1f%%  %s%n",
+                    step.offeredRate(), step.arrivalRate(), step.achievedThroughput(), step.endToEndP99Millis(),
+                    step.errorRatio() * 100, step.saturated(config.sloP99()) ? "SATURATED" : "ok");
+            if (step.saturated(config.sloP99())) {
+                if (firstSaturated == null) {
+                    firstSaturated = step;
+                }
+            } else if (firstSaturated == null) {
+                lastSustainable = step;
+            }
+        }
+        if (firstSaturated == null) {
+            out.println("  Not saturated up to the highest offered rate.");
+        } else {
+            out.printf(Locale.ROOT, "  Saturation point between %s and %.2f/s.%n",
+                    lastSustainable == null ? "0" : String.format(Locale.ROOT, "%.2f/s", lastSustainable.offeredRate()),
+                    firstSaturated.offeredRate());
+        }
+    }
+
+    public void write() throws IOException {
+        Path directory = Path.of(config.outputDir());
+        Files.createDirectories(directory);
+
+        List<Map<String, Object>> summary = new ArrayList<>();
+        for (StepResult step : steps) {
+            Map<String, Object> stepSummary = new LinkedHashMap<>();
+            stepSummary.put("offeredRate", step.offeredRate());
+            stepSummary.put("arrivalRate", step.arrivalRate());
+            stepSummary.put("achievedThroughput", step.achievedThroughput());
+            stepSummary.put("elapsedMillis", step.elapsed().toMillis());
+            stepSummary.put("arrivals", step.latencies().arrivals());
+            stepSummary.put("completed", step.latencies().completed());
+            stepSummary.put("shed", step.latencies().shed());
+            stepSummary.put("unfinished", step.unfinished());
+            stepSummary.put("saturated", step.saturated(config.sloP99()));
+
+            Map<String, Object> stages = new LinkedHashMap<>();
+            for (Stage stage : Stage.values()) {
+                Histogram histogram = step.latencies().histogram(stage);
+                Map<String, Object> stageSummary = percentiles(histogram);
+                stageSummary.put("failed", step.latencies().failures(stage));
+                stages.put(stage.name(), stageSummary);
+                writeDistribution(directory.resolve("step-%d-%s.hgrm".formatted(step.index() + 1, stage.name().toLowerCase(Locale.ROOT))), histogram);
+            }
+            stages.put("END_TO_END_URGENT", percentiles(step.latencies().endToEnd(true)));
+            stages.put("END_TO_END_ROUTINE", percentiles(step.latencies().endToEnd(false)));
+            stepSummary.put("stages", stages);
+            summary.add(stepSummary);
+        }
+
+        Map<String, Object> document = new LinkedHashMap<>();
+        document.put("driver", config.driver());
+        document.put("sloP99Millis", config.sloP99().toMillis());
+        document.put("urgentRatio", config.urgentRatio());
+        document.put("imageSizes", config.imageSizes());
+        document.put("steps", summary);
+        new ObjectMapper().writerWithDefaultPrettyPrinter().writeValue(directory.resolve("summary.json").toFile(), document);
+        out.println("Results written to " + directory.toAbsolutePath());
+    }
+
+    private void printStep(StepResult step) {
+        LatencyRecorder latencies = step.latencies();
+        out.println();
+        out.printf(Locale.ROOT, "Step %d: offered %.2f/s, arrived %.2f/s, achieved %.2f/s over %ds | arrivals %d, completed %d, failed %d, shed %d, unfinished %d%n",
+                step.index() + 1, step.offeredRate(), step.arrivalRate(), step.achievedThroughput(), step.elapsed().toSeconds(),
+                latencies.arrivals(), latencies.completed(), latencies.totalFailures(), latencies.shed(), step.unfinished());
+        out.printf(Locale.ROOT, "  %-26s %8s %10s %10s %10s %10s %10s %7s%n",
+                "stage (ms)", "count", "p50", "p90", "p99", "p99.9", "max", "failed");
+        for (Stage stage : Stage.values()) {
+            printRow(stage.name(), latencies.histogram(stage), latencies.failures(stage));
+        }
+        printRow("  urgent", latencies.endToEnd(true), 0);
+        printRow("  routine", latencies.endToEnd(false), 0);
+    }
+
+    private void printRow(String name, Histogram histogram, long failed) {
+        out.printf(Locale.ROOT, "  %-26s %8d", name, histogram.getTotalCount());
+        for (double percentile : PERCENTILES) {
+            out.printf(Locale.ROOT, " %10.1f", histogram.getValueAtPercentile(percentile) / MICROS_PER_MILLI);
+        }
+        out.printf(Locale.ROOT, " %10.1f %7d%n", histogram.getMaxValue() / MICROS_PER_MILLI, failed);
+    }
+
+    private static Map<String, Object> percentiles(Histogram histogram) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("count", histogram.getTotalCount());
+        for (double percentile : PERCENTILES) {
+            result.put("p" + (percentile % 1 == 0 ? String.valueOf((int) percentile) : String.valueOf(percentile)) + "Millis",
+                    histogram.getValueAtPercentile(percentile) / MICROS_PER_MILLI);
+        }
+        result.put("maxMillis", histogram.getMaxValue() / MICROS_PER_MILLI);
+        return result;
+    }
+
+    private static void writeDistribution(Path file, Histogram histogram) throws IOException {
+        try (PrintStream stream = new PrintStream(Files.newOutputStream(file))) {
+            histogram.outputPercentileDistribution(stream, MICROS_PER_MILLI);
+        }
+    }
+}
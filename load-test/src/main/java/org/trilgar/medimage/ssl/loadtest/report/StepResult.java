@@ -0,0 +1,55 @@
+package org.trilgar.medimage.ssl.loadtest.report;
+
+import org.trilgar.medimage.ssl.loadtest.Stage;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Outcome of one arrival-rate step. Arrivals are generated during {@code window}; {@code elapsed} runs
+ * from the first arrival until the last request of the step finished (or the drain timeout expired),
+ * so a backlog that builds up during the step lowers the achieved throughput.
+ */
+public record StepResult(int index, double offeredRate, Duration window, Duration elapsed, long unfinished,
+                         LatencyRecorder latencies) {
+
+    /** Achieved throughput must stay within this fraction of the rate that actually arrived. */
+    private static final double MIN_THROUGHPUT_RATIO = 0.9;
+    /** Failed, shed and unfinished requests together must stay below this fraction of arrivals. */
+    private static final double MAX_ERROR_RATIO = 0.01;
+
+    /**
+     * Rate the Poisson process actually produced, which differs from {@code offeredRate} by chance on short steps.
+     */
+    public double arrivalRate() {
+        return latencies.arrivals() / seconds(window);
+    }
+
+    public double achievedThroughput() {
+        double seconds = seconds(elapsed);
+        return seconds == 0 ? 0 : latencies.completed() / seconds;
+    }
+
+    public double errorRatio() {
+        long arrivals = latencies.arrivals();
+        return arrivals == 0 ? 0 : (latencies.totalFailures() + latencies.shed() + unfinished) / (double) arrivals;
+    }
+
+    public long endToEndP99Millis() {
+        return latencies.histogram(Stage.END_TO_END).getValueAtPercentile(99.0) / 1000;
+    }
+
+    /**
+     * A step is past the saturation point when the system stops keeping up with the offered rate,
+     * starts failing requests, or its end-to-end p99 breaks the SLO.
+     */
+    public boolean saturated(Duration sloP99) {
+        return achievedThroughput() < arrivalRate() * MIN_THROUGHPUT_RATIO
+                || errorRatio() > MAX_ERROR_RATIO
+                || endToEndP99Millis() > sloP99.toMillis();
+    }
+
+    private static double seconds(Duration duration) {
+        return duration.toNanos() / (double) TimeUnit.SECONDS.toNanos(1);
+    }
+}
@@ -0,0 +1,8 @@
+package org.trilgar.medimage.ssl.loadtest.workload;
+
+/**
+ * One generated examination. {@code scheduledAtNanos} is when the open-model generator intended the
+ * request to start, so end-to-end latency includes any time spent waiting for a free client thread.
+ */
+public record ExaminationScenario(long sequence, boolean urgent, int imageBytes, String modality, long scheduledAtNanos) {
+}
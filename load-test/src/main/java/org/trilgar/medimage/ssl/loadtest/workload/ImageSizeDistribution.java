@@ -0,0 +1,63 @@
+package org.trilgar.medimage.ssl.loadtest.workload;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Discrete image-size mix parsed from {@code size:weight} pairs, e.g. {@code 256k:0.6,1m:0.3,8m:0.1}.
+ * Sizes accept {@code k}/{@code m} suffixes; weights do not have to add up to one.
+ */
+public class ImageSizeDistribution {
+
+    private final int[] sizes;
+    private final double[] cumulativeWeights;
+
+    private ImageSizeDistribution(int[] sizes, double[] cumulativeWeights) {
+        this.sizes = sizes;
+        this.cumulativeWeights = cumulativeWeights;
+    }
+
+    public static ImageSizeDistribution parse(String spec) {
+        List<Integer> parsedSizes = new ArrayList<>();
+        List<Double> weights = new ArrayList<>();
+        for (String entry : spec.split(",")) {
+            String[] parts = entry.trim().split(":");
+            parsedSizes.add(parseSize(parts[0]));
+            weights.add(parts.length > 1 ? Double.parseDouble(parts[1]) : 1.0);
+        }
+
+        double total = weights.stream().mapToDouble(Double::doubleValue).sum();
+        int[] sizes = new int[parsedSizes.size()];
+        double[] cumulative = new double[parsedSizes.size()];
+        double running = 0;
+        for (int i = 0; i < sizes.length; i++) {
+            sizes[i] = parsedSizes.get(i);
+            running += weights.get(i) / total;
+            cumulative[i] = running;
+        }
+        return new ImageSizeDistribution(sizes, cumulative);
+    }
+
+    public int sample(Random random) {
+        double point = random.nextDouble();
+        for (int i = 0; i < sizes.length; i++) {
+            if (point < cumulativeWeights[i]) {
+                return sizes[i];
+            }
+        }
+        return sizes[sizes.length - 1];
+    }
+
+    private static int parseSize(String value) {
+        String size = value.trim().toLowerCase(Locale.ROOT);
+        if (size.endsWith("m")) {
+            return Integer.parseInt(size.substring(0, size.length() - 1)) * 1024 * 1024;
+        }
+        if (size.endsWith("k")) {
+            return Integer.parseInt(size.substring(0, size.length() - 1)) * 1024;
+        }
+        return Integer.parseInt(size);
+    }
+}
@@ -0,0 +1,26 @@
+package org.trilgar.medimage.ssl.loadtest.workload;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Open-model arrival process: inter-arrival gaps are exponentially distributed, so arrivals keep
+ * coming at the offered rate no matter how slowly the system answers.
+ */
+public class PoissonArrivals {
+
+    private final Random random;
+    private final double meanGapNanos;
+
+    public PoissonArrivals(double ratePerSecond, Random random) {
+        if (ratePerSecond <= 0) {
+            throw new IllegalArgumentException("Arrival rate must be positive: " + ratePerSecond);
+        }
+        this.random = random;
+        this.meanGapNanos = TimeUnit.SECONDS.toNanos(1) / ratePerSecond;
+    }
+
+    public long nextGapNanos() {
+        return (long) (-Math.log(1.0 - random.nextDouble()) * meanGapNanos);
+    }
+}
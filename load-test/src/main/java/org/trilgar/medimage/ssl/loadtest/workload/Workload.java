@@ -0,0 +1,49 @@
+package org.trilgar.medimage.ssl.loadtest.workload;
+
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Draws the urgent/routine flag and image size of every arrival. Image payloads are generated once
+ * per size and shared, so the generator does not spend its own CPU on random bytes during a run.
+ */
+public class Workload {
+
+    private static final byte[] PNG_SIGNATURE = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'};
+
+    private final Random random;
+    private final double urgentRatio;
+    private final ImageSizeDistribution imageSizes;
+    private final String modality;
+    private final Map<Integer, byte[]> images = new ConcurrentHashMap<>();
+
+    public Workload(Random random, double urgentRatio, ImageSizeDistribution imageSizes, String modality) {
+        this.random = random;
+        this.urgentRatio = urgentRatio;
+        this.imageSizes = imageSizes;
+        this.modality = modality;
+    }
+
+    public ExaminationScenario next(long sequence, long scheduledAtNanos) {
+        return new ExaminationScenario(
+                sequence,
+                random.nextDouble() < urgentRatio,
+                imageSizes.sample(random),
+                modality,
+                scheduledAtNanos
+        );
+    }
+
+    /**
+     * Random bytes behind a PNG signature, so format sniffing on the server side sees a PNG.
+     */
+    public byte[] imageOf(ExaminationScenario scenario) {
+        return images.computeIfAbsent(scenario.imageBytes(), size -> {
+            byte[] image = new byte[Math.max(size, PNG_SIGNATURE.length)];
+            new Random(size).nextBytes(image);
+            System.arraycopy(PNG_SIGNATURE, 0, image, 0, PNG_SIGNATURE.length);
+            return image;
+        });
+    }
+}
@@ -1,22 +1,35 @@
 package org.trilgar.medimage.ssl.notification.config;
 
+import org.springframework.amqp.core.AnonymousQueue;
+import org.springframework.amqp.core.Base64UrlNamingStrategy;
+import org.springframework.amqp.core.Binding;
+import org.springframework.amqp.core.BindingBuilder;
+import org.springframework.amqp.core.FanoutExchange;
 import org.springframework.amqp.core.Queue;
-import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
 @Configuration
 public class RabbitConfig {
 
-    public static final String NOTIFICATION_QUEUE = "notification_queue";
+    public static final String NOTIFICATION_EXCHANGE = "notification_exchange";
 
     @Bean
-    public Queue notificationQueue() {
-        return new Queue(NOTIFICATION_QUEUE, true);
+    public FanoutExchange notificationExchange() {
+        return new FanoutExchange(NOTIFICATION_EXCHANGE, true, false);
     }
 
+    /**
+     * Exclusive, auto-delete queue owned by this instance. Every replica binds its own queue to the
+     * fanout exchange, so each one receives every event and serves only its local subscribers.
+     */
     @Bean
-    public Jackson2JsonMessageConverter converter() {
-        return new Jackson2JsonMessageConverter();
+    public Queue notificationInstanceQueue() {
+        return new AnonymousQueue(new Base64UrlNamingStrategy("notification.instance."));
     }
-}
\ No newline at end of file
+
+    @Bean
+    public Binding notificationInstanceBinding(Queue notificationInstanceQueue, FanoutExchange notificationExchange) {
+        return BindingBuilder.bind(notificationInstanceQueue).to(notificationExchange);
+    }
+}
@@ -3,20 +3,37 @@ package org.trilgar.medimage.ssl.notification.controller;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import org.trilgar.medimage.ssl.model.ResearchCompletedNotificationEvent;
+import org.trilgar.medimage.ssl.notification.model.DeliveryStatistics;
+import org.trilgar.medimage.ssl.notification.model.SubscriptionFilter;
+import org.trilgar.medimage.ssl.notification.service.DeliveryMetrics;
 import org.trilgar.medimage.ssl.notification.service.api.NotificationSubscriptionService;
 
+import java.util.Set;
+import java.util.UUID;
+
 @RestController
 @RequestMapping("/api/notifications")
 @RequiredArgsConstructor
 public class ResearchCompletedNotificationController {
     private final NotificationSubscriptionService<SseEmitter, ResearchCompletedNotificationEvent> subscriptionService;
+    private final DeliveryMetrics deliveryMetrics;
 
     @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
-    public SseEmitter streamNotifications() {
-        return subscriptionService.subscribe();
+    public SseEmitter streamNotifications(
+            @RequestParam(name = "patientId", required = false) Set<UUID> patientIds,
+            @RequestParam(name = "type", required = false) Set<String> types,
+            @RequestHeader(name = "Last-Event-ID", required = false) String lastEventId) {
+        return subscriptionService.subscribe(SubscriptionFilter.of(patientIds, types), lastEventId);
+    }
+
+    @GetMapping("/stats")
+    public DeliveryStatistics deliveryStatistics() {
+        return deliveryMetrics.snapshot();
     }
 }
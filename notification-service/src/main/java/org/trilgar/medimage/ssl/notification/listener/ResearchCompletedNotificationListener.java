@@ -5,8 +5,8 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.amqp.rabbit.annotation.RabbitListener;
 import org.springframework.stereotype.Component;
 import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.trilgar.medimage.ssl.messaging.dedup.MessageDeduplicator;
 import org.trilgar.medimage.ssl.model.ResearchCompletedNotificationEvent;
-import org.trilgar.medimage.ssl.notification.config.RabbitConfig;
 import org.trilgar.medimage.ssl.notification.service.api.NotificationSubscriptionService;
 
 @Component
@@ -14,11 +14,15 @@ import org.trilgar.medimage.ssl.notification.service.api.NotificationSubscriptio
 @RequiredArgsConstructor
 public class ResearchCompletedNotificationListener {
 
+    private static final String LISTENER_ID = "researchCompletedNotificationListener";
+
     private final NotificationSubscriptionService<SseEmitter, ResearchCompletedNotificationEvent> subscriptionService;
+    private final MessageDeduplicator deduplicator;
 
-    @RabbitListener(queues = RabbitConfig.NOTIFICATION_QUEUE)
+    @RabbitListener(id = LISTENER_ID, queues = "#{notificationInstanceQueue.name}")
     public void handleNotification(ResearchCompletedNotificationEvent event) {
-        log.info("Received event type: {}. Sending to all subscribers.", event.getType());
-        subscriptionService.sendNotification(event);
+        log.info("Received event type: {}. Sending to matching subscribers.", event.getType());
+        String eventKey = event.getRequestId() == null ? null : event.getRequestId() + ":" + event.getType();
+        deduplicator.process(LISTENER_ID, eventKey, () -> subscriptionService.sendNotification(event));
     }
 }
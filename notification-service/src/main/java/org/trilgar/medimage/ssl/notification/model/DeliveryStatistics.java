@@ -0,0 +1,12 @@
+package org.trilgar.medimage.ssl.notification.model;
+
+public record DeliveryStatistics(
+        int subscribers,
+        long queuedFrames,
+        long deliveredFrames,
+        long droppedFrames,
+        long coalescedFrames,
+        long overflowDisconnects,
+        long stalledDisconnects
+) {
+}
@@ -0,0 +1,39 @@
+package org.trilgar.medimage.ssl.notification.model;
+
+import org.trilgar.medimage.ssl.model.ResearchCompletedNotificationEvent;
+
+import java.util.Collection;
+import java.util.Locale;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * Describes which notifications a subscriber is interested in.
+ * Empty sets act as wildcards, so {@link #ALL} receives every event.
+ */
+public record SubscriptionFilter(Set<UUID> patientIds, Set<String> types) {
+
+    public static final SubscriptionFilter ALL = new SubscriptionFilter(Set.of(), Set.of());
+
+    public SubscriptionFilter {
+        patientIds = patientIds == null ? Set.of() : Set.copyOf(patientIds);
+        types = types == null ? Set.of() : types.stream()
+                .map(type -> type.toUpperCase(Locale.ROOT))
+                .collect(Collectors.toUnmodifiableSet());
+    }
+
+    public static SubscriptionFilter of(Collection<UUID> patientIds, Collection<String> types) {
+        return new SubscriptionFilter(
+                patientIds == null ? null : Set.copyOf(patientIds),
+                types == null ? null : Set.copyOf(types)
+        );
+    }
+
+    public boolean matches(ResearchCompletedNotificationEvent event) {
+        if (!patientIds.isEmpty() && !patientIds.contains(event.getPatientId())) {
+            return false;
+        }
+        return types.isEmpty() || (event.getType() != null && types.contains(event.getType().toUpperCase(Locale.ROOT)));
+    }
+}
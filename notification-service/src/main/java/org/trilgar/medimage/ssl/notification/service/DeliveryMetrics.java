@@ -0,0 +1,121 @@
+package org.trilgar.medimage.ssl.notification.service;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.stereotype.Component;
+import org.trilgar.medimage.ssl.notification.model.DeliveryStatistics;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Delivery counters for the SSE fan-out. Exposed through {@link #snapshot()} for the statistics endpoint and,
+ * once bound to a meter registry, as {@code notification.*} meters.
+ */
+@Component
+public class DeliveryMetrics implements MeterBinder {
+    private final AtomicInteger subscribers = new AtomicInteger();
+    private final AtomicLong queuedFrames = new AtomicLong();
+    private final LongAdder deliveredFrames = new LongAdder();
+    private final LongAdder droppedFrames = new LongAdder();
+    private final LongAdder coalescedFrames = new LongAdder();
+    private final LongAdder overflowDisconnects = new LongAdder();
+    private final LongAdder stalledDisconnects = new LongAdder();
+    private volatile DistributionSummary fanOut;
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("notification.subscribers", subscribers, AtomicInteger::get)
+                .description("Open SSE connections")
+                .register(registry);
+        Gauge.builder("notification.frames.queued", queuedFrames, AtomicLong::get)
+                .description("Frames waiting in subscriber queues")
+                .register(registry);
+        frameCounter(registry, "delivered", deliveredFrames);
+        frameCounter(registry, "dropped", droppedFrames);
+        frameCounter(registry, "coalesced", coalescedFrames);
+        FunctionCounter.builder("notification.overflow.disconnects", overflowDisconnects, LongAdder::sum)
+                .description("Subscribers disconnected because their queue overflowed")
+                .register(registry);
+        FunctionCounter.builder("notification.stalled.disconnects", stalledDisconnects, LongAdder::sum)
+                .description("Subscribers disconnected because a write exceeded the send timeout")
+                .register(registry);
+        fanOut = DistributionSummary.builder("notification.fanout.recipients")
+                .description("Subscribers matched per notification")
+                .publishPercentiles(0.5, 0.99)
+                .register(registry);
+    }
+
+    public void subscriberAdded() {
+        subscribers.incrementAndGet();
+    }
+
+    public void subscriberRemoved(int discardedFrames) {
+        subscribers.decrementAndGet();
+        queuedFrames.addAndGet(-discardedFrames);
+        droppedFrames.add(discardedFrames);
+    }
+
+    public void recordOffer(SseSubscriber.OfferResult result) {
+        switch (result) {
+            case QUEUED -> queuedFrames.incrementAndGet();
+            case COALESCED -> coalescedFrames.increment();
+            case DROPPED_OLDEST -> droppedFrames.increment();
+            case OVERFLOW -> overflowDisconnects.increment();
+            case CLOSED -> {
+            }
+        }
+    }
+
+    public void recordStalledDisconnect() {
+        stalledDisconnects.increment();
+    }
+
+    public void recordDelivered(int frames) {
+        queuedFrames.addAndGet(-frames);
+        deliveredFrames.add(frames);
+    }
+
+    public void recordFailed(int frames) {
+        queuedFrames.addAndGet(-frames);
+        droppedFrames.add(frames);
+    }
+
+    public void recordFanOut(int recipients) {
+        DistributionSummary summary = fanOut;
+        if (summary != null) {
+            summary.record(recipients);
+        }
+    }
+
+    public int getSubscribers() {
+        return subscribers.get();
+    }
+
+    public long getQueuedFrames() {
+        return queuedFrames.get();
+    }
+
+    public DeliveryStatistics snapshot() {
+        return new DeliveryStatistics(
+                subscribers.get(),
+                queuedFrames.get(),
+                deliveredFrames.sum(),
+                droppedFrames.sum(),
+                coalescedFrames.sum(),
+                overflowDisconnects.sum(),
+                stalledDisconnects.sum()
+        );
+    }
+
+    private static void frameCounter(MeterRegistry registry, String outcome, LongAdder frames) {
+        FunctionCounter.builder("notification.frames", frames, LongAdder::sum)
+                .description("SSE frames by outcome")
+                .tag("outcome", outcome)
+                .register(registry);
+    }
+}
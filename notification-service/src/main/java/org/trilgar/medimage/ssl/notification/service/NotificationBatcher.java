@@ -0,0 +1,91 @@
+package org.trilgar.medimage.ssl.notification.service;
+
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.trilgar.medimage.ssl.model.ResearchCompletedNotificationEvent;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Collects notifications for a short window and hands them over as one batch, either when the
+ * window expires or when {@code maxEvents} distinct requests are pending. Events for the same
+ * request id replace each other, so a burst of updates for one exam yields a single entry.
+ */
+public class NotificationBatcher {
+
+    private final long windowMillis;
+    private final int maxEvents;
+    private final Consumer<List<ResearchCompletedNotificationEvent>> sink;
+    private final ScheduledExecutorService timer =
+            Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("sse-batcher-"));
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private Map<Object, ResearchCompletedNotificationEvent> pending = new LinkedHashMap<>();
+    private long generation;
+
+    public NotificationBatcher(long windowMillis, int maxEvents, Consumer<List<ResearchCompletedNotificationEvent>> sink) {
+        this.windowMillis = windowMillis;
+        this.maxEvents = maxEvents;
+        this.sink = sink;
+    }
+
+    public void add(ResearchCompletedNotificationEvent event) {
+        lock.lock();
+        try {
+            Object key = event.getRequestId() != null ? event.getRequestId() : new Object();
+            pending.remove(key);
+            pending.put(key, event);
+
+            if (pending.size() >= maxEvents) {
+                flushLocked();
+            } else if (pending.size() == 1) {
+                long scheduledGeneration = generation;
+                timer.schedule(() -> flushIfGeneration(scheduledGeneration), windowMillis, TimeUnit.MILLISECONDS);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Delivers whatever is pending and stops the timer. Used on shutdown so a buffered batch is not lost.
+     */
+    public void close() {
+        lock.lock();
+        try {
+            flushLocked();
+        } finally {
+            lock.unlock();
+        }
+        timer.shutdown();
+    }
+
+    private void flushIfGeneration(long scheduledGeneration) {
+        lock.lock();
+        try {
+            if (generation == scheduledGeneration) {
+                flushLocked();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // the sink runs under the lock so batches are handed over in the order they were closed
+    private void flushLocked() {
+        generation++;
+        if (pending.isEmpty()) {
+            return;
+        }
+        List<ResearchCompletedNotificationEvent> batch = new ArrayList<>(pending.values());
+        pending = new LinkedHashMap<>();
+        sink.accept(batch);
+    }
+}
@@ -0,0 +1,92 @@
+package org.trilgar.medimage.ssl.notification.service;
+
+import org.trilgar.medimage.ssl.model.ResearchCompletedNotificationEvent;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Bounded ring buffer of the most recent notifications, used to replay what a reconnecting
+ * client missed. Not thread-safe: callers guard it with the dispatch lock so that appending
+ * an event and registering a replaying subscriber are mutually exclusive.
+ * <p>
+ * Event ids have the form {@code <epoch>-<sequence>}. The epoch is fixed per instance start,
+ * so an id issued by another instance or before a restart is recognised as foreign instead of
+ * being compared against an unrelated sequence.
+ */
+public class NotificationEventLog {
+
+    public record LoggedEvent(long sequence, ResearchCompletedNotificationEvent event, OutboundFrame frame) {
+    }
+
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+    private final LoggedEvent[] buffer;
+    private int head;
+    private int size;
+    private long nextSequence = 1;
+
+    public NotificationEventLog(int capacity) {
+        this.buffer = new LoggedEvent[capacity];
+    }
+
+    public long nextSequence() {
+        return nextSequence;
+    }
+
+    public String eventId(long sequence) {
+        return epoch + "-" + sequence;
+    }
+
+    public void append(LoggedEvent event) {
+        if (event.sequence() != nextSequence) {
+            throw new IllegalArgumentException("Expected sequence " + nextSequence + " but got " + event.sequence());
+        }
+        buffer[(head + size) % buffer.length] = event;
+        if (size < buffer.length) {
+            size++;
+        } else {
+            head = (head + 1) % buffer.length;
+        }
+        nextSequence++;
+    }
+
+    /**
+     * Parses an id previously issued by this log. Returns {@code -1} when the id is missing,
+     * malformed or belongs to a different epoch.
+     */
+    public long parseSequence(String eventId) {
+        if (eventId == null) {
+            return -1;
+        }
+        int separator = eventId.lastIndexOf('-');
+        if (separator <= 0 || !epoch.equals(eventId.substring(0, separator))) {
+            return -1;
+        }
+        try {
+            long sequence = Long.parseLong(eventId.substring(separator + 1));
+            return sequence < nextSequence ? sequence : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Returns {@code true} when events after {@code sequence} have already been evicted.
+     */
+    public boolean hasGapAfter(long sequence) {
+        return size > 0 && buffer[head].sequence() > sequence + 1;
+    }
+
+    public List<LoggedEvent> eventsAfter(long sequence) {
+        if (size == 0) {
+            return List.of();
+        }
+        long oldest = buffer[head].sequence();
+        int skip = (int) Math.max(0, Math.min(size, sequence + 1 - oldest));
+        List<LoggedEvent> result = new ArrayList<>(size - skip);
+        for (int i = skip; i < size; i++) {
+            result.add(buffer[(head + i) % buffer.length]);
+        }
+        return result;
+    }
+}
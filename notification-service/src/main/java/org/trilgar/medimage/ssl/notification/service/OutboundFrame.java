@@ -0,0 +1,14 @@
+package org.trilgar.medimage.ssl.notification.service;
+
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+
+import java.util.Set;
+
+/**
+ * A serialized SSE frame waiting in a subscriber queue. The same frame instance is shared
+ * by every subscriber it was dispatched to.
+ *
+ * @param coalesceKey frames with equal keys may replace each other under {@link OverflowPolicy#COALESCE}
+ */
+public record OutboundFrame(String coalesceKey, Set<ResponseBodyEmitter.DataWithMediaType> data) {
+}
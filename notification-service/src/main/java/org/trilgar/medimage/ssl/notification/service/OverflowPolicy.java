@@ -0,0 +1,16 @@
+package org.trilgar.medimage.ssl.notification.service;
+
+public enum OverflowPolicy {
+    /**
+     * Evict the oldest queued frame to make room for the new one.
+     */
+    DROP_OLDEST,
+    /**
+     * Replace a queued frame for the same request with the newer one; falls back to {@link #DROP_OLDEST}.
+     */
+    COALESCE,
+    /**
+     * Close the connection; the client is expected to reconnect.
+     */
+    DISCONNECT
+}
@@ -1,49 +1,373 @@
 package org.trilgar.medimage.ssl.notification.service;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
 import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import org.trilgar.medimage.ssl.model.ResearchCompletedNotificationEvent;
+import org.trilgar.medimage.ssl.notification.model.SubscriptionFilter;
 import org.trilgar.medimage.ssl.notification.service.api.NotificationSubscriptionService;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
 
 @Service
 @Slf4j
 public class ResearchCompltedNotificationSubscriptionService implements NotificationSubscriptionService<SseEmitter, ResearchCompletedNotificationEvent> {
 
-    private final List<SseEmitter> emitters = new CopyOnWriteArrayList<>();
+    private static final int MAX_FRAMES_PER_DRAIN = 32;
+
+    private final SubscriberIndex subscribers = new SubscriberIndex();
+    private final ReentrantLock dispatchLock = new ReentrantLock();
+    private final NotificationEventLog eventLog;
+    private final ObjectMapper objectMapper;
+    private final DeliveryMetrics metrics;
+    private final SubscriberCapacityGuard capacityGuard;
+    private final int queueCapacity;
+    private final OverflowPolicy overflowPolicy;
+    private final int writerThreads;
+    private final long sendTimeoutMillis;
+    private final ThreadPoolExecutor writers;
+    private final ScheduledThreadPoolExecutor sendDeadlines;
+    private final NotificationBatcher batcher;
+    private int stalledWriters;
+
+    public ResearchCompltedNotificationSubscriptionService(ObjectMapper objectMapper,
+                                                           DeliveryMetrics metrics,
+                                                           SubscriberCapacityGuard capacityGuard,
+                                                           @Value("${notifications.delivery.queue-capacity:256}") int queueCapacity,
+                                                           @Value("${notifications.delivery.overflow-policy:DROP_OLDEST}") OverflowPolicy overflowPolicy,
+                                                           @Value("${notifications.delivery.writer-threads:4}") int writerThreads,
+                                                           @Value("${notifications.delivery.send-timeout-ms:5000}") long sendTimeoutMillis,
+                                                           @Value("${notifications.replay.buffer-size:1024}") int replayBufferSize,
+                                                           @Value("${notifications.batching.enabled:false}") boolean batchingEnabled,
+                                                           @Value("${notifications.batching.window-ms:50}") long batchWindowMillis,
+                                                           @Value("${notifications.batching.max-events:100}") int batchMaxEvents) {
+        this.objectMapper = objectMapper;
+        this.metrics = metrics;
+        this.capacityGuard = capacityGuard;
+        this.queueCapacity = queueCapacity;
+        this.overflowPolicy = overflowPolicy;
+        this.writerThreads = writerThreads;
+        this.sendTimeoutMillis = sendTimeoutMillis;
+        this.writers = new ThreadPoolExecutor(writerThreads, writerThreads, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(), new CustomizableThreadFactory("sse-writer-"));
+        this.sendDeadlines = new ScheduledThreadPoolExecutor(1, new CustomizableThreadFactory("sse-send-deadline-"));
+        this.sendDeadlines.setRemoveOnCancelPolicy(true);
+        this.eventLog = new NotificationEventLog(replayBufferSize);
+        this.batcher = batchingEnabled
+                ? new NotificationBatcher(batchWindowMillis, batchMaxEvents, this::publishBatch)
+                : null;
+    }
 
     @Override
-    public SseEmitter subscribe() {
+    public SseEmitter subscribe(SubscriptionFilter filter, String lastEventId) {
+        capacityGuard.checkCanAccept(subscribers.size());
+
         SseEmitter emitter = new SseEmitter(Long.MAX_VALUE);
+        SseSubscriber subscriber = new SseSubscriber(emitter, filter, queueCapacity, overflowPolicy);
 
-        emitters.add(emitter);
-        log.info("Client connected. Total clients: {}", emitters.size());
-        emitter.onCompletion(() -> emitters.remove(emitter));
-        emitter.onTimeout(() -> emitters.remove(emitter));
-        emitter.onError((e) -> emitters.remove(emitter));
+        dispatchLock.lock();
+        try {
+            subscribers.add(subscriber);
+            if (lastEventId != null) {
+                replayMissed(subscriber, lastEventId);
+            }
+        } finally {
+            dispatchLock.unlock();
+        }
+        metrics.subscriberAdded();
+        capacityGuard.onSubscriberCountChanged(subscribers.size());
+        log.info("Client connected with filter {}. Total clients: {}", filter, subscribers.size());
+        emitter.onCompletion(() -> unsubscribe(subscriber));
+        emitter.onTimeout(() -> unsubscribe(subscriber));
+        emitter.onError((e) -> unsubscribe(subscriber));
 
         return emitter;
     }
 
+    /**
+     * Only serializes the event and enqueues it for matching subscribers; socket writes happen
+     * on the writer pool, so a slow client never holds up the Rabbit listener thread.
+     */
     @Override
     public void sendNotification(ResearchCompletedNotificationEvent event) {
-        log.info("Broadcasting notification for patient {}", event.getPatientId());
+        if (batcher != null) {
+            batcher.add(event);
+            return;
+        }
+
+        String payload = serialize(event);
+        if (payload == null) {
+            return;
+        }
+
+        dispatchLock.lock();
+        try {
+            NotificationEventLog.LoggedEvent logged = appendToLog(event, payload);
+
+            List<SseSubscriber> recipients = subscribers.match(event);
+            metrics.recordFanOut(recipients.size());
+            log.info("Queueing notification {} for patient {} to {} of {} clients",
+                    logged.sequence(), event.getPatientId(), recipients.size(), subscribers.size());
+            for (SseSubscriber subscriber : recipients) {
+                enqueue(subscriber, logged.frame());
+            }
+        } finally {
+            dispatchLock.unlock();
+        }
+    }
+
+    /**
+     * Delivers a coalesced batch as one {@code notifications} frame per subscriber, whose data is a
+     * JSON array of the events that subscriber is interested in. Subscribers that match the same
+     * subset of the batch share a single frame, so each distinct array is built only once.
+     */
+    private void publishBatch(List<ResearchCompletedNotificationEvent> events) {
+        List<String> payloads = new ArrayList<>(events.size());
+        List<ResearchCompletedNotificationEvent> serialized = new ArrayList<>(events.size());
+        for (ResearchCompletedNotificationEvent event : events) {
+            String payload = serialize(event);
+            if (payload != null) {
+                payloads.add(payload);
+                serialized.add(event);
+            }
+        }
+
+        dispatchLock.lock();
+        try {
+            List<NotificationEventLog.LoggedEvent> logged = new ArrayList<>(serialized.size());
+            Map<SseSubscriber, BitSet> matches = new IdentityHashMap<>();
+            for (int i = 0; i < serialized.size(); i++) {
+                ResearchCompletedNotificationEvent event = serialized.get(i);
+                logged.add(appendToLog(event, payloads.get(i)));
+                List<SseSubscriber> recipients = subscribers.match(event);
+                metrics.recordFanOut(recipients.size());
+                for (SseSubscriber subscriber : recipients) {
+                    matches.computeIfAbsent(subscriber, s -> new BitSet()).set(i);
+                }
+            }
 
-        for (SseEmitter emitter : emitters) {
-            try {
-                emitter.send(SseEmitter.event()
+            Map<BitSet, OutboundFrame> frames = new HashMap<>();
+            matches.forEach((subscriber, subset) ->
+                    enqueue(subscriber, frames.computeIfAbsent(subset, bits -> batchFrame(bits, payloads, logged))));
+            log.info("Queueing batch of {} notifications as {} distinct frames to {} clients",
+                    serialized.size(), frames.size(), matches.size());
+        } finally {
+            dispatchLock.unlock();
+        }
+    }
+
+    private NotificationEventLog.LoggedEvent appendToLog(ResearchCompletedNotificationEvent event, String payload) {
+        long sequence = eventLog.nextSequence();
+        OutboundFrame frame = new OutboundFrame(
+                String.valueOf(event.getRequestId()),
+                SseEmitter.event()
+                        .id(eventLog.eventId(sequence))
                         .name("notification")
-                        .data(event));
-            } catch (IOException e) {
-                log.error("Error while sending notification for patient {}. Unsubscribing failed subscription", event.getPatientId(), e);
-                emitters.remove(emitter);
+                        .data(payload, MediaType.APPLICATION_JSON)
+                        .build()
+        );
+        NotificationEventLog.LoggedEvent logged = new NotificationEventLog.LoggedEvent(sequence, event, frame);
+        eventLog.append(logged);
+        return logged;
+    }
+
+    private OutboundFrame batchFrame(BitSet subset, List<String> payloads, List<NotificationEventLog.LoggedEvent> logged) {
+        StringBuilder data = new StringBuilder().append('[');
+        for (int i = subset.nextSetBit(0); i >= 0; i = subset.nextSetBit(i + 1)) {
+            if (data.length() > 1) {
+                data.append(',');
+            }
+            data.append(payloads.get(i));
+        }
+        data.append(']');
+
+        return new OutboundFrame(null, SseEmitter.event()
+                .id(eventLog.eventId(logged.get(subset.length() - 1).sequence()))
+                .name("notifications")
+                .data(data.toString(), MediaType.APPLICATION_JSON)
+                .build());
+    }
+
+    private String serialize(ResearchCompletedNotificationEvent event) {
+        try {
+            return objectMapper.writeValueAsString(event);
+        } catch (JsonProcessingException e) {
+            log.error("Failed to serialize notification for patient {}", event.getPatientId(), e);
+            return null;
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (batcher != null) {
+            batcher.close();
+        }
+        writers.shutdown();
+        sendDeadlines.shutdownNow();
+    }
+
+    private void enqueue(SseSubscriber subscriber, OutboundFrame frame) {
+        SseSubscriber.OfferResult result = subscriber.offer(frame);
+        metrics.recordOffer(result);
+
+        if (result == SseSubscriber.OfferResult.OVERFLOW) {
+            log.warn("Outbound queue of client with filter {} is full. Disconnecting slow client", subscriber.getFilter());
+            unsubscribe(subscriber);
+            subscriber.getEmitter().complete();
+            return;
+        }
+        if (result != SseSubscriber.OfferResult.CLOSED) {
+            scheduleDrain(subscriber);
+        }
+    }
+
+    /**
+     * Queues everything the subscriber missed since {@code lastEventId}. When the id is unknown
+     * (another instance, a restart) or the missed events no longer fit into the log or the
+     * subscriber queue, a {@code resync} event tells the client to reload its state.
+     */
+    private void replayMissed(SseSubscriber subscriber, String lastEventId) {
+        long lastSequence = eventLog.parseSequence(lastEventId);
+        List<NotificationEventLog.LoggedEvent> missed = lastSequence < 0
+                ? List.of()
+                : eventLog.eventsAfter(lastSequence).stream()
+                .filter(logged -> subscriber.getFilter().matches(logged.event()))
+                .toList();
+
+        boolean complete = lastSequence >= 0 && !eventLog.hasGapAfter(lastSequence) && missed.size() < queueCapacity;
+        if (!complete) {
+            enqueue(subscriber, resyncFrame());
+            missed = missed.subList(Math.max(0, missed.size() - (queueCapacity - 1)), missed.size());
+        }
+        for (NotificationEventLog.LoggedEvent logged : missed) {
+            enqueue(subscriber, logged.frame());
+        }
+        log.info("Replaying {} missed notifications after {} (resync: {})", missed.size(), lastEventId, !complete);
+    }
+
+    private OutboundFrame resyncFrame() {
+        return new OutboundFrame(null, SseEmitter.event()
+                .id(eventLog.eventId(eventLog.nextSequence() - 1))
+                .name("resync")
+                .data("{}", MediaType.APPLICATION_JSON)
+                .build());
+    }
+
+    private void scheduleDrain(SseSubscriber subscriber) {
+        if (!subscriber.tryStartDrain()) {
+            return;
+        }
+        try {
+            writers.execute(() -> drain(subscriber));
+        } catch (RejectedExecutionException e) {
+            subscriber.finishDrain();
+        }
+    }
+
+    /**
+     * Writes everything queued for the subscriber (up to {@link #MAX_FRAMES_PER_DRAIN} frames) as one
+     * write with a single flush, instead of one flush per frame. A write still blocked after the send
+     * timeout evicts the subscriber, see {@link #sendTimedOut}.
+     */
+    private void drain(SseSubscriber subscriber) {
+        List<OutboundFrame> batch = new ArrayList<>(MAX_FRAMES_PER_DRAIN);
+        boolean sent = false;
+        try {
+            subscriber.drainTo(batch, MAX_FRAMES_PER_DRAIN);
+            if (!batch.isEmpty() && !subscriber.isClosed()) {
+                Set<ResponseBodyEmitter.DataWithMediaType> items = new LinkedHashSet<>();
+                for (OutboundFrame frame : batch) {
+                    items.addAll(frame.data());
+                }
+                ScheduledFuture<?> deadline = sendDeadlines.schedule(
+                        () -> sendTimedOut(subscriber), sendTimeoutMillis, TimeUnit.MILLISECONDS);
+                boolean stalled = false;
+                try {
+                    subscriber.getEmitter().send(items);
+                } finally {
+                    if (!deadline.cancel(false)) {
+                        stalled = true;
+                        adjustStalledWriters(-1);
+                    }
+                }
+                sent = true;
+                if (stalled) {
+                    // evicted while the write was blocked; the client reconnects and replays from its last id
+                    subscriber.getEmitter().complete();
+                }
             }
+        } catch (IOException | IllegalStateException e) {
+            log.error("Error while sending notification. Unsubscribing failed subscription", e);
+            unsubscribe(subscriber);
+        } finally {
+            if (sent) {
+                metrics.recordDelivered(batch.size());
+            } else {
+                metrics.recordFailed(batch.size());
+            }
+            subscriber.finishDrain();
+        }
+
+        // re-check after releasing the drain flag so a frame offered meanwhile is not stranded
+        if (subscriber.queueDepth() > 0) {
+            scheduleDrain(subscriber);
         }
     }
 
+    /**
+     * Runs when a write to the subscriber has been blocked for the send timeout. Tomcat keeps the writer
+     * thread until its own write timeout, so the subscriber is dropped (no more frames are queued for it)
+     * and the writer pool gets a replacement thread, up to {@code writerThreads} extra ones, so stalled
+     * clients cannot occupy every writer. The emitter itself is closed once the blocked write returns.
+     */
+    private void sendTimedOut(SseSubscriber subscriber) {
+        log.warn("Write to client with filter {} blocked for more than {} ms. Disconnecting stalled client",
+                subscriber.getFilter(), sendTimeoutMillis);
+        metrics.recordStalledDisconnect();
+        unsubscribe(subscriber);
+        adjustStalledWriters(1);
+    }
 
+    private synchronized void adjustStalledWriters(int delta) {
+        stalledWriters += delta;
+        int size = writerThreads + Math.min(Math.max(stalledWriters, 0), writerThreads);
+        if (size > writers.getMaximumPoolSize()) {
+            writers.setMaximumPoolSize(size);
+            writers.setCorePoolSize(size);
+        } else if (size < writers.getMaximumPoolSize()) {
+            writers.setCorePoolSize(size);
+            writers.setMaximumPoolSize(size);
+        }
+    }
+
+    private void unsubscribe(SseSubscriber subscriber) {
+        if (subscriber.close()) {
+            subscribers.remove(subscriber);
+            metrics.subscriberRemoved(subscriber.clear());
+            capacityGuard.onSubscriberCountChanged(subscribers.size());
+            log.info("Client disconnected. Total clients: {}", subscribers.size());
+        }
+    }
 }
@@ -0,0 +1,150 @@
+package org.trilgar.medimage.ssl.notification.service;
+
+import lombok.Getter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.trilgar.medimage.ssl.notification.model.SubscriptionFilter;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+
+public class SseSubscriber {
+
+    public enum OfferResult {
+        QUEUED,
+        COALESCED,
+        DROPPED_OLDEST,
+        OVERFLOW,
+        CLOSED
+    }
+
+    @Getter
+    private final SseEmitter emitter;
+    @Getter
+    private final SubscriptionFilter filter;
+    private final int capacity;
+    private final OverflowPolicy overflowPolicy;
+
+    private final ArrayDeque<OutboundFrame> queue = new ArrayDeque<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final AtomicBoolean closed = new AtomicBoolean(false);
+    private final AtomicBoolean draining = new AtomicBoolean(false);
+
+    public SseSubscriber(SseEmitter emitter, SubscriptionFilter filter, int capacity, OverflowPolicy overflowPolicy) {
+        this.emitter = emitter;
+        this.filter = filter;
+        this.capacity = capacity;
+        this.overflowPolicy = overflowPolicy;
+    }
+
+    public OfferResult offer(OutboundFrame frame) {
+        lock.lock();
+        try {
+            if (closed.get()) {
+                return OfferResult.CLOSED;
+            }
+            if (queue.size() < capacity) {
+                queue.addLast(frame);
+                return OfferResult.QUEUED;
+            }
+            switch (overflowPolicy) {
+                case DISCONNECT:
+                    return OfferResult.OVERFLOW;
+                case COALESCE:
+                    if (replaceSameKey(frame)) {
+                        return OfferResult.COALESCED;
+                    }
+                    // nothing to merge with, make room like DROP_OLDEST
+                default:
+                    queue.pollFirst();
+                    queue.addLast(frame);
+                    return OfferResult.DROPPED_OLDEST;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Moves up to {@code max} frames into {@code target} in FIFO order and returns how many were moved.
+     */
+    public int drainTo(List<OutboundFrame> target, int max) {
+        lock.lock();
+        try {
+            int moved = 0;
+            while (moved < max && !queue.isEmpty()) {
+                target.add(queue.pollFirst());
+                moved++;
+            }
+            return moved;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Drops every queued frame and returns how many were discarded. Called after {@link #close()},
+     * so no frame can be offered once the queue has been cleared.
+     */
+    public int clear() {
+        lock.lock();
+        try {
+            int size = queue.size();
+            queue.clear();
+            return size;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int queueDepth() {
+        lock.lock();
+        try {
+            return queue.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Claims the right to run the writer for this subscriber. At most one writer drains a
+     * subscriber at a time, which keeps frames in order without holding the queue lock during I/O.
+     */
+    public boolean tryStartDrain() {
+        return !closed.get() && draining.compareAndSet(false, true);
+    }
+
+    public void finishDrain() {
+        draining.set(false);
+    }
+
+    /**
+     * Marks the subscriber as closed. Returns {@code true} only for the first caller,
+     * so completion, timeout and error callbacks unregister it exactly once.
+     */
+    public boolean close() {
+        return closed.compareAndSet(false, true);
+    }
+
+    public boolean isClosed() {
+        return closed.get();
+    }
+
+    private boolean replaceSameKey(OutboundFrame frame) {
+        if (frame.coalesceKey() == null) {
+            return false;
+        }
+        for (Iterator<OutboundFrame> it = queue.iterator(); it.hasNext(); ) {
+            OutboundFrame queued = it.next();
+            if (Objects.equals(queued.coalesceKey(), frame.coalesceKey())) {
+                it.remove();
+                queue.addLast(frame);
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,55 @@
+package org.trilgar.medimage.ssl.notification.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.availability.AvailabilityChangeEvent;
+import org.springframework.boot.availability.ReadinessState;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Ties readiness to the number of open SSE connections. Above the readiness threshold the
+ * instance reports {@code REFUSING_TRAFFIC} so the load balancer steers new connections to
+ * other replicas; it becomes ready again once the count drops below 90% of the threshold.
+ * The hard limit rejects new streams outright.
+ */
+@Component
+@Slf4j
+public class SubscriberCapacityGuard {
+
+    private final ApplicationEventPublisher eventPublisher;
+    private final int maxSubscribers;
+    private final int readinessThreshold;
+    private final int readyAgainBelow;
+    private final AtomicBoolean refusing = new AtomicBoolean(false);
+
+    public SubscriberCapacityGuard(ApplicationEventPublisher eventPublisher,
+                                   @Value("${notifications.capacity.max-subscribers:10000}") int maxSubscribers,
+                                   @Value("${notifications.capacity.readiness-threshold:8000}") int readinessThreshold) {
+        this.eventPublisher = eventPublisher;
+        this.maxSubscribers = maxSubscribers;
+        this.readinessThreshold = readinessThreshold;
+        this.readyAgainBelow = (int) (readinessThreshold * 0.9);
+    }
+
+    public void checkCanAccept(int currentSubscribers) {
+        if (currentSubscribers >= maxSubscribers) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE,
+                    "Notification stream capacity reached on this instance");
+        }
+    }
+
+    public void onSubscriberCountChanged(int currentSubscribers) {
+        if (currentSubscribers >= readinessThreshold && refusing.compareAndSet(false, true)) {
+            log.warn("{} open streams, marking instance as not ready for new connections", currentSubscribers);
+            AvailabilityChangeEvent.publish(eventPublisher, this, ReadinessState.REFUSING_TRAFFIC);
+        } else if (currentSubscribers < readyAgainBelow && refusing.compareAndSet(true, false)) {
+            log.info("{} open streams, accepting new connections again", currentSubscribers);
+            AvailabilityChangeEvent.publish(eventPublisher, this, ReadinessState.ACCEPTING_TRAFFIC);
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package org.trilgar.medimage.ssl.notification.service;
+
+import org.trilgar.medimage.ssl.model.ResearchCompletedNotificationEvent;
+import org.trilgar.medimage.ssl.notification.model.SubscriptionFilter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Indexes subscribers by the most selective part of their filter, so an event only
+ * visits subscribers that can possibly match it instead of every open connection.
+ * <p>
+ * A subscriber is stored in exactly one bucket: by patient id when it filters on patients,
+ * otherwise by type when it filters on types, otherwise in the wildcard set. The buckets are
+ * therefore disjoint and {@link #match} never returns the same subscriber twice.
+ */
+public class SubscriberIndex {
+
+    private final Map<UUID, Set<SseSubscriber>> byPatient = new ConcurrentHashMap<>();
+    private final Map<String, Set<SseSubscriber>> byType = new ConcurrentHashMap<>();
+    private final Set<SseSubscriber> unfiltered = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger size = new AtomicInteger();
+
+    public void add(SseSubscriber subscriber) {
+        SubscriptionFilter filter = subscriber.getFilter();
+        if (!filter.patientIds().isEmpty()) {
+            filter.patientIds().forEach(patientId -> addTo(byPatient, patientId, subscriber));
+        } else if (!filter.types().isEmpty()) {
+            filter.types().forEach(type -> addTo(byType, type, subscriber));
+        } else {
+            unfiltered.add(subscriber);
+        }
+        size.incrementAndGet();
+    }
+
+    public void remove(SseSubscriber subscriber) {
+        SubscriptionFilter filter = subscriber.getFilter();
+        if (!filter.patientIds().isEmpty()) {
+            filter.patientIds().forEach(patientId -> removeFrom(byPatient, patientId, subscriber));
+        } else if (!filter.types().isEmpty()) {
+            filter.types().forEach(type -> removeFrom(byType, type, subscriber));
+        } else {
+            unfiltered.remove(subscriber);
+        }
+        size.decrementAndGet();
+    }
+
+    public List<SseSubscriber> match(ResearchCompletedNotificationEvent event) {
+        List<SseSubscriber> result = new ArrayList<>(unfiltered);
+
+        if (event.getPatientId() != null) {
+            Set<SseSubscriber> patientSubscribers = byPatient.get(event.getPatientId());
+            if (patientSubscribers != null) {
+                for (SseSubscriber subscriber : patientSubscribers) {
+                    if (subscriber.getFilter().matches(event)) {
+                        result.add(subscriber);
+                    }
+                }
+            }
+        }
+
+        if (event.getType() != null) {
+            Set<SseSubscriber> typeSubscribers = byType.get(event.getType().toUpperCase(Locale.ROOT));
+            if (typeSubscribers != null) {
+                result.addAll(typeSubscribers);
+            }
+        }
+        return result;
+    }
+
+    public int size() {
+        return size.get();
+    }
+
+    private static <K> void addTo(Map<K, Set<SseSubscriber>> index, K key, SseSubscriber subscriber) {
+        index.compute(key, (k, bucket) -> {
+            Set<SseSubscriber> target = bucket != null ? bucket : ConcurrentHashMap.newKeySet();
+            target.add(subscriber);
+            return target;
+        });
+    }
+
+    private static <K> void removeFrom(Map<K, Set<SseSubscriber>> index, K key, SseSubscriber subscriber) {
+        index.computeIfPresent(key, (k, bucket) -> {
+            bucket.remove(subscriber);
+            return bucket.isEmpty() ? null : bucket;
+        });
+    }
+}
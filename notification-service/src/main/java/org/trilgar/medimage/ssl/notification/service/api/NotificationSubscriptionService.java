@@ -1,7 +1,9 @@
 package org.trilgar.medimage.ssl.notification.service.api;
 
+import org.trilgar.medimage.ssl.notification.model.SubscriptionFilter;
+
 public interface NotificationSubscriptionService<T, N> {
-    T subscribe();
+    T subscribe(SubscriptionFilter filter, String lastEventId);
 
     void sendNotification(N event);
 }
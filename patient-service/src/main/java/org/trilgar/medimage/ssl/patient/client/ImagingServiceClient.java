@@ -1,60 +1,182 @@
 package org.trilgar.medimage.ssl.patient.client;
 
-import lombok.RequiredArgsConstructor;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.observation.ObservationRegistry;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.InputStreamResource;
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
 import org.springframework.util.LinkedMultiValueMap;
 import org.springframework.util.MultiValueMap;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestClientException;
 import org.springframework.web.client.RestTemplate;
+import org.trilgar.medimage.ssl.metrics.PipelineObservations;
+import org.trilgar.medimage.ssl.s3.api.ImageStream;
 
+import java.time.Clock;
+import java.time.Duration;
 import java.util.UUID;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 
+/**
+ * Archives images in imaging-service. Calls are limited by a bulkhead of
+ * {@code services.imaging.bulkhead.max-concurrent-calls} and pass through a {@link CircuitBreaker}; connection
+ * failures, timeouts and 5xx responses count as failures, 4xx responses do not. Every failure is reported as
+ * an {@link ImagingServiceException}.
+ */
 @Service
 @Slf4j
-@RequiredArgsConstructor
 public class ImagingServiceClient {
 
-    private final RestTemplate restTemplate = new RestTemplate();
+    private final RestTemplate restTemplate;
+    private final ObservationRegistry observationRegistry;
+    private final String imagingServiceUrl;
+    private final Semaphore bulkhead;
+    private final Duration bulkheadMaxWait;
+    private final CircuitBreaker circuitBreaker;
+    private final Counter bulkheadRejections;
+    private final Counter circuitRejections;
 
-    @Value("${services.imaging.url}")
-    private String imagingServiceUrl;
+    public ImagingServiceClient(RestTemplate imagingRestTemplate,
+                                ObservationRegistry observationRegistry,
+                                MeterRegistry meterRegistry,
+                                @Value("${services.imaging.url}") String imagingServiceUrl,
+                                @Value("${services.imaging.bulkhead.max-concurrent-calls:20}") int maxConcurrentCalls,
+                                @Value("${services.imaging.bulkhead.max-wait:2s}") Duration bulkheadMaxWait,
+                                @Value("${services.imaging.circuit-breaker.failure-threshold:5}") int failureThreshold,
+                                @Value("${services.imaging.circuit-breaker.open-duration:30s}") Duration openDuration) {
+        this.restTemplate = imagingRestTemplate;
+        this.observationRegistry = observationRegistry;
+        this.imagingServiceUrl = imagingServiceUrl;
+        this.bulkhead = new Semaphore(maxConcurrentCalls, true);
+        this.bulkheadMaxWait = bulkheadMaxWait;
+        this.circuitBreaker = new CircuitBreaker("imaging-service", failureThreshold, openDuration, Clock.systemUTC());
 
-    public UUID archiveImage(UUID patientId, byte[] imageData, String modality) {
-        try {
-            log.info("Archiving image for patient {} to ImagingService...", patientId);
+        Gauge.builder("imaging.client.circuit.state", circuitBreaker, breaker -> breaker.getState().ordinal())
+                .description("Circuit state towards imaging-service: 0 closed, 1 half-open, 2 open")
+                .register(meterRegistry);
+        Gauge.builder("imaging.client.bulkhead.available", bulkhead, Semaphore::availablePermits)
+                .description("Free slots for concurrent calls to imaging-service")
+                .register(meterRegistry);
+        this.bulkheadRejections = Counter.builder("imaging.client.rejected")
+                .tag("reason", "bulkhead_full")
+                .register(meterRegistry);
+        this.circuitRejections = Counter.builder("imaging.client.rejected")
+                .tag("reason", "circuit_open")
+                .register(meterRegistry);
+    }
 
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.MULTIPART_FORM_DATA);
+    public UUID archiveImage(UUID patientId, Supplier<ImageStream> image, String modality) {
+        return archiveImage(patientId, image, "archived-scan.png", modality);
+    }
 
-            ByteArrayResource fileResource = new ByteArrayResource(imageData) {
-                @Override
-                public String getFilename() {
-                    return "archived-scan.png";
+    /**
+     * Opens {@code image} only once the call holds a bulkhead slot and the circuit lets it through, so a
+     * refused call never opens an S3 connection, and closes it afterwards. A negative
+     * {@link ImageStream#contentLength()} sends the file without a length, chunked.
+     */
+    public UUID archiveImage(UUID patientId, Supplier<ImageStream> image, String filename, String modality) {
+        acquireBulkhead();
+        try {
+            if (!circuitBreaker.tryAcquirePermission()) {
+                circuitRejections.increment();
+                throw new ImagingServiceException("Circuit to imaging-service is open, archive call refused");
+            }
+            ImageStream source;
+            try {
+                source = image.get();
+            } catch (RuntimeException e) {
+                // not an imaging-service failure; a half-open trial is given back for the next call
+                circuitBreaker.releasePermission();
+                throw e;
+            }
+            try (source) {
+                log.info("Archiving image for patient {} to ImagingService...", patientId);
+                ImageResponse response = post(patientId, source, filename, modality);
+                if (response == null) {
+                    throw new ImagingServiceException("Empty response from imaging-service");
                 }
-            };
+                log.info("Image archived successfully. Image ID: {}, PatientId: {}", response.id(), response.patientId());
+                return response.id();
+            }
+        } finally {
+            bulkhead.release();
+        }
+    }
+
+    /**
+     * Records the outcome of every call that got a permission. Anything other than a response or a
+     * {@link RestClientException}, e.g. a body that cannot be written or a failing observation, says nothing
+     * about imaging-service; the permission is given back, so a half-open trial never stays taken.
+     */
+    private ImageResponse post(UUID patientId, ImageStream source, String filename, String modality) {
+        try {
+            HttpEntity<MultiValueMap<String, Object>> requestEntity = buildRequest(patientId, source, filename, modality);
+            ImageResponse response = PipelineObservations.observe(observationRegistry, "imaging.archive",
+                    () -> restTemplate.postForObject(imagingServiceUrl, requestEntity, ImageResponse.class));
+            circuitBreaker.onSuccess();
+            return response;
+        } catch (HttpClientErrorException e) {
+            circuitBreaker.onSuccess();
+            throw new ImagingServiceException("imaging-service rejected the image: " + e.getStatusCode(), e);
+        } catch (RestClientException e) {
+            circuitBreaker.onFailure();
+            throw new ImagingServiceException("Failed to archive image in imaging-service", e);
+        } catch (RuntimeException e) {
+            circuitBreaker.releasePermission();
+            throw new ImagingServiceException("Archive call to imaging-service failed", e);
+        } catch (Error e) {
+            circuitBreaker.releasePermission();
+            throw e;
+        }
+    }
 
-            MultiValueMap<String, Object> body = new LinkedMultiValueMap<>();
-            body.add("file", fileResource);
-            body.add("patientId", patientId.toString());
-            body.add("modality", modality);
+    private void acquireBulkhead() {
+        try {
+            if (!bulkhead.tryAcquire(bulkheadMaxWait.toMillis(), TimeUnit.MILLISECONDS)) {
+                bulkheadRejections.increment();
+                throw new ImagingServiceException("Too many concurrent calls to imaging-service");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ImagingServiceException("Interrupted while waiting for an imaging-service slot", e);
+        }
+    }
 
-            HttpEntity<MultiValueMap<String, Object>> requestEntity = new HttpEntity<>(body, headers);
+    /**
+     * The S3 body is written straight into the multipart request. The resource reports the known length
+     * itself, since the default implementation would read the stream to count it.
+     */
+    private HttpEntity<MultiValueMap<String, Object>> buildRequest(UUID patientId, ImageStream image, String filename,
+                                                                   String modality) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.MULTIPART_FORM_DATA);
 
-            ImageResponse response = restTemplate.postForObject(imagingServiceUrl, requestEntity, ImageResponse.class);
+        InputStreamResource fileResource = new InputStreamResource(image.content()) {
+            @Override
+            public String getFilename() {
+                return filename;
+            }
 
-            if (response != null) {
-                log.info("Image archived successfully. Image ID: {}, PatientId: {}", response.id(), response.patientId());
-                return response.id();
+            @Override
+            public long contentLength() {
+                return image.contentLength();
             }
-        } catch (Exception e) {
-            log.error("Failed to archive image in ImagingService", e);
-        }
-        return null;
+        };
+
+        MultiValueMap<String, Object> body = new LinkedMultiValueMap<>();
+        body.add("file", fileResource);
+        body.add("patientId", patientId.toString());
+        body.add("modality", modality);
+        return new HttpEntity<>(body, headers);
     }
 
     private record ImageResponse(UUID id, String patientId, String modality) {
@@ -0,0 +1,12 @@
+package org.trilgar.medimage.ssl.patient.client;
+
+public class ImagingServiceException extends RuntimeException {
+
+    public ImagingServiceException(String message) {
+        super(message);
+    }
+
+    public ImagingServiceException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,83 @@
+package org.trilgar.medimage.ssl.patient.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.httpcomponents.hc5.PoolingHttpClientConnectionManagerMetricsBinder;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.http.io.SocketConfig;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.web.client.RestTemplate;
+
+import java.time.Duration;
+
+/**
+ * Pooled HTTP client for calls to imaging-service. Connections are kept alive and reused, capped at
+ * {@code services.imaging.max-connections}, and dropped after {@code keep-alive} of idleness, which is kept
+ * below Tomcat's 20 s keep-alive timeout so the pool does not hand out connections the server already closed.
+ */
+@Configuration
+public class ImagingClientConfig {
+
+    @Bean(destroyMethod = "close")
+    public PoolingHttpClientConnectionManager imagingConnectionManager(
+            @Value("${services.imaging.max-connections:20}") int maxConnections,
+            @Value("${services.imaging.connect-timeout:2s}") Duration connectTimeout,
+            @Value("${services.imaging.read-timeout:30s}") Duration readTimeout,
+            MeterRegistry meterRegistry) {
+        PoolingHttpClientConnectionManager connectionManager = PoolingHttpClientConnectionManagerBuilder.create()
+                .setMaxConnTotal(maxConnections)
+                .setMaxConnPerRoute(maxConnections)
+                .setDefaultSocketConfig(SocketConfig.custom()
+                        .setTcpNoDelay(true)
+                        .setSoKeepAlive(true)
+                        .build())
+                .setDefaultConnectionConfig(ConnectionConfig.custom()
+                        .setConnectTimeout(Timeout.of(connectTimeout))
+                        .setSocketTimeout(Timeout.of(readTimeout))
+                        .setValidateAfterInactivity(TimeValue.ofSeconds(5))
+                        .build())
+                .build();
+        new PoolingHttpClientConnectionManagerMetricsBinder(connectionManager, "imaging-service")
+                .bindTo(meterRegistry);
+        return connectionManager;
+    }
+
+    @Bean(destroyMethod = "close")
+    public CloseableHttpClient imagingHttpClient(
+            PoolingHttpClientConnectionManager imagingConnectionManager,
+            @Value("${services.imaging.pool-timeout:5s}") Duration poolTimeout,
+            @Value("${services.imaging.read-timeout:30s}") Duration readTimeout,
+            @Value("${services.imaging.keep-alive:15s}") Duration keepAlive) {
+        return HttpClients.custom()
+                .setConnectionManager(imagingConnectionManager)
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setConnectionRequestTimeout(Timeout.of(poolTimeout))
+                        .setResponseTimeout(Timeout.of(readTimeout))
+                        .build())
+                .setKeepAliveStrategy((response, context) -> TimeValue.of(keepAlive))
+                .evictExpiredConnections()
+                .evictIdleConnections(TimeValue.of(keepAlive))
+                .build();
+    }
+
+    /**
+     * The builder keeps Boot's observation setup, so requests still carry the trace context and are timed
+     * as {@code http.client.requests}. The request factory streams request bodies instead of buffering them.
+     */
+    @Bean
+    public RestTemplate imagingRestTemplate(RestTemplateBuilder restTemplateBuilder, CloseableHttpClient imagingHttpClient) {
+        return restTemplateBuilder
+                .requestFactory(() -> new HttpComponentsClientHttpRequestFactory(imagingHttpClient))
+                .build();
+    }
+}
@@ -1,34 +1,36 @@
 package org.trilgar.medimage.ssl.patient.config;
 
+import org.springframework.amqp.core.FanoutExchange;
+import org.springframework.amqp.core.Declarables;
 import org.springframework.amqp.core.Queue;
-import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.trilgar.medimage.ssl.messaging.retry.RetryTopology;
 
 @Configuration
 public class RabbitConfig {
 
     public static final String RISK_QUEUE = "risk_assessment_queue";
     public static final String EXAM_REQUEST_QUEUE = "examination_requests_queue";
-    public static final String NOTIFICATION_QUEUE = "notification_queue";
+    public static final String NOTIFICATION_EXCHANGE = "notification_exchange";
 
     @Bean
     public Queue riskQueue() {
-        return new Queue(RISK_QUEUE, true);
+        return RetryTopology.workQueue(RISK_QUEUE);
     }
 
     @Bean
-    public Queue examRequestQueue() {
-        return new Queue(EXAM_REQUEST_QUEUE, true);
+    public Declarables riskRetryTopology(RetryTopology retryTopology) {
+        return retryTopology.declarablesFor(RISK_QUEUE);
     }
 
     @Bean
-    public Jackson2JsonMessageConverter converter() {
-        return new Jackson2JsonMessageConverter();
+    public Queue examRequestQueue() {
+        return RetryTopology.workQueue(EXAM_REQUEST_QUEUE);
     }
 
     @Bean
-    public Queue notificationQueue() {
-        return new Queue(NOTIFICATION_QUEUE, true);
+    public FanoutExchange notificationExchange() {
+        return new FanoutExchange(NOTIFICATION_EXCHANGE, true, false);
     }
 }
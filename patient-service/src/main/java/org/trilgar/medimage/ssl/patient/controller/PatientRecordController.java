@@ -2,13 +2,19 @@ package org.trilgar.medimage.ssl.patient.controller;
 
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import org.trilgar.medimage.ssl.patient.entity.Examination;
 import org.trilgar.medimage.ssl.patient.entity.Patient;
 import org.trilgar.medimage.ssl.patient.model.CreateExaminationRequest;
+import org.trilgar.medimage.ssl.patient.model.ExaminationPage;
+import org.trilgar.medimage.ssl.patient.model.ExaminationView;
+import org.trilgar.medimage.ssl.patient.service.api.ExaminationQueryService;
 import org.trilgar.medimage.ssl.patient.service.api.PatientService;
 
 import java.util.UUID;
@@ -19,6 +25,7 @@ import java.util.UUID;
 public class PatientRecordController {
 
     private final PatientService patientService;
+    private final ExaminationQueryService examinationQueryService;
 
     @PostMapping("/examine")
     public ResponseEntity<String> createExamination(@RequestBody CreateExaminationRequest request) {
@@ -33,4 +40,16 @@ public class PatientRecordController {
 
         return ResponseEntity.ok("Examination created for patient: %s. ID: %s".formatted(examination.getPatient().getId(), examination.getId()));
     }
+
+    @GetMapping("/examinations/{examinationId}")
+    public ExaminationView getExamination(@PathVariable("examinationId") UUID examinationId) {
+        return examinationQueryService.getExamination(examinationId);
+    }
+
+    @GetMapping("/{patientId}/examinations")
+    public ExaminationPage getPatientExaminations(@PathVariable("patientId") UUID patientId,
+                                                  @RequestParam(value = "page", defaultValue = "0") int page,
+                                                  @RequestParam(value = "size", defaultValue = "20") int size) {
+        return examinationQueryService.getPatientExaminations(patientId, page, size);
+    }
 }
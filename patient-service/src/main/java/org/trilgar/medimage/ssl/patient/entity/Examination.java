@@ -3,7 +3,9 @@ package org.trilgar.medimage.ssl.patient.entity;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
 
 import java.time.LocalDateTime;
 import java.util.UUID;
@@ -16,9 +18,11 @@ public class Examination {
     @Id
     private UUID id;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "patient_id")
     @JsonIgnore
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
     private Patient patient;
 
     private String modality;
@@ -29,6 +33,17 @@ public class Examination {
     private Boolean isCritical;
     private UUID imagingStorageId;
 
+    /**
+     * Staging key of the image (or series manifest) still to be archived; {@code null} once imaging-service
+     * holds the copy. See {@code ExaminationArchiver}.
+     */
+    @JsonIgnore
+    private String archiveSourceKey;
+    @JsonIgnore
+    private UUID seriesId;
+    @JsonIgnore
+    private LocalDateTime archiveRetryAt;
+
     private String status;
 
     private LocalDateTime createdAt;
@@ -3,6 +3,7 @@ package org.trilgar.medimage.ssl.patient.listener;
 import lombok.RequiredArgsConstructor;
 import org.springframework.amqp.rabbit.annotation.RabbitListener;
 import org.springframework.stereotype.Component;
+import org.trilgar.medimage.ssl.messaging.dedup.MessageDeduplicator;
 import org.trilgar.medimage.ssl.model.RiskAssessmentResult;
 import org.trilgar.medimage.ssl.patient.config.RabbitConfig;
 import org.trilgar.medimage.ssl.patient.service.api.PatientService;
@@ -11,10 +12,14 @@ import org.trilgar.medimage.ssl.patient.service.api.PatientService;
 @RequiredArgsConstructor
 public class AnalysisResultListener {
 
+    private static final String LISTENER_ID = "analysisResultListener";
+
     private final PatientService orchestrator;
+    private final MessageDeduplicator deduplicator;
 
-    @RabbitListener(queues = RabbitConfig.RISK_QUEUE)
+    @RabbitListener(id = LISTENER_ID, queues = RabbitConfig.RISK_QUEUE)
     public void onRiskAssessment(RiskAssessmentResult result) {
-        orchestrator.processAnalysisResult(result);
+        deduplicator.process(LISTENER_ID, result.getRequestId(),
+                () -> orchestrator.processAnalysisResult(result));
     }
 }
@@ -0,0 +1,6 @@
+package org.trilgar.medimage.ssl.patient.model;
+
+import java.util.List;
+
+public record ExaminationPage(List<ExaminationView> items, int page, int size, long totalItems) {
+}
@@ -0,0 +1,21 @@
+package org.trilgar.medimage.ssl.patient.model;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Read-side projection of an examination, selected directly by JPQL so no entity or patient is loaded.
+ */
+public record ExaminationView(
+        UUID id,
+        UUID patientId,
+        String modality,
+        String status,
+        Double riskScore,
+        String diagnosis,
+        Boolean isCritical,
+        UUID imagingStorageId,
+        LocalDateTime createdAt,
+        LocalDateTime completedAt
+) {
+}
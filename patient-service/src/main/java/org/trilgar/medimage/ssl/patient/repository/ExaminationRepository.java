@@ -1,9 +1,30 @@
 package org.trilgar.medimage.ssl.patient.repository;
 
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.trilgar.medimage.ssl.patient.entity.Examination;
+import org.trilgar.medimage.ssl.patient.model.ExaminationView;
 
+import java.util.Optional;
 import java.util.UUID;
 
 public interface ExaminationRepository extends JpaRepository<Examination, UUID> {
+
+    @Query("""
+            SELECT new org.trilgar.medimage.ssl.patient.model.ExaminationView(
+                e.id, e.patient.id, e.modality, e.status, e.riskScore, e.diagnosis, e.isCritical,
+                e.imagingStorageId, e.createdAt, e.completedAt)
+            FROM Examination e WHERE e.id = :id""")
+    Optional<ExaminationView> findViewById(@Param("id") UUID id);
+
+    @Query(value = """
+            SELECT new org.trilgar.medimage.ssl.patient.model.ExaminationView(
+                e.id, e.patient.id, e.modality, e.status, e.riskScore, e.diagnosis, e.isCritical,
+                e.imagingStorageId, e.createdAt, e.completedAt)
+            FROM Examination e WHERE e.patient.id = :patientId ORDER BY e.createdAt DESC""",
+            countQuery = "SELECT count(e) FROM Examination e WHERE e.patient.id = :patientId")
+    Page<ExaminationView> findViewsByPatientId(@Param("patientId") UUID patientId, Pageable pageable);
 }
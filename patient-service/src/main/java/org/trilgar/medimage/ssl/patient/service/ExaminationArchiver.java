@@ -0,0 +1,202 @@
+package org.trilgar.medimage.ssl.patient.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.trilgar.medimage.ssl.model.SeriesManifest;
+import org.trilgar.medimage.ssl.patient.client.ImagingServiceClient;
+import org.trilgar.medimage.ssl.patient.entity.Examination;
+import org.trilgar.medimage.ssl.s3.api.S3StorageService;
+import org.trilgar.medimage.ssl.staging.StagedObjectTracker;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Copies the staged image of a completed examination, or its series as one ZIP, to imaging-service. The copy is
+ * streamed outside any transaction; a short one afterwards stores the archive id, clears
+ * {@code archive_source_key} and marks the staged object {@code ARCHIVED}.
+ * <p>
+ * An examination whose archive failed keeps {@code archive_source_key}, so its staged object stays
+ * {@code ANALYZED}. Every {@code retryInterval} those examinations are claimed {@code batchSize} at a time by
+ * moving {@code archive_retry_at} one interval ahead, so other replicas pass over them, and archived again.
+ */
+@Slf4j
+@Component
+public class ExaminationArchiver implements SmartLifecycle {
+
+    private static final String CLAIM = """
+            UPDATE examinations SET archive_retry_at = ?
+            WHERE id IN (
+                SELECT id FROM examinations
+                WHERE archive_source_key IS NOT NULL AND archive_retry_at < ?
+                ORDER BY archive_retry_at LIMIT ? FOR UPDATE SKIP LOCKED)
+            RETURNING id, patient_id, modality, archive_source_key, series_id""";
+
+    private static final String MARK_ARCHIVED = """
+            UPDATE examinations SET imaging_storage_id = ?, archive_source_key = NULL, archive_retry_at = NULL
+            WHERE id = ?""";
+
+    public record PendingArchive(UUID examinationId, UUID patientId, String modality, String sourceKey,
+                                 UUID seriesId) {
+
+        public static PendingArchive of(Examination exam, UUID patientId) {
+            return new PendingArchive(exam.getId(), patientId, exam.getModality(), exam.getArchiveSourceKey(),
+                    exam.getSeriesId());
+        }
+
+        /**
+         * The key {@code staged_objects} tracks: the series prefix for a series, the image key otherwise.
+         */
+        public String stagedKey() {
+            return seriesId != null ? SeriesManifest.prefixOf(sourceKey) : sourceKey;
+        }
+    }
+
+    private final ImagingServiceClient imagingClient;
+    private final SeriesArchiveStreamer seriesArchiveStreamer;
+    private final S3StorageService s3Service;
+    private final StagedObjectTracker stagedObjects;
+    private final ExaminationReadCache readCache;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final Duration retryInterval;
+    private final int batchSize;
+    private final Counter failedCounter;
+    private ScheduledExecutorService executor;
+    private volatile boolean running;
+
+    public ExaminationArchiver(ImagingServiceClient imagingClient,
+                               SeriesArchiveStreamer seriesArchiveStreamer,
+                               S3StorageService s3Service,
+                               StagedObjectTracker stagedObjects,
+                               ExaminationReadCache readCache,
+                               JdbcTemplate jdbcTemplate,
+                               TransactionTemplate transactionTemplate,
+                               MeterRegistry meterRegistry,
+                               @Value("${patient.archive.retry-interval:5m}") Duration retryInterval,
+                               @Value("${patient.archive.batch-size:100}") int batchSize) {
+        this.imagingClient = imagingClient;
+        this.seriesArchiveStreamer = seriesArchiveStreamer;
+        this.s3Service = s3Service;
+        this.stagedObjects = stagedObjects;
+        this.readCache = readCache;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.retryInterval = retryInterval;
+        this.batchSize = batchSize;
+        this.failedCounter = Counter.builder("patient.archive.failed")
+                .description("Archive copies to imaging-service that failed and are retried later")
+                .register(meterRegistry);
+    }
+
+    /**
+     * When the first attempt for a newly completed examination may be retried, should it fail or the service
+     * stop before recording its outcome.
+     */
+    public LocalDateTime nextRetry() {
+        return LocalDateTime.now().plus(retryInterval);
+    }
+
+    /**
+     * @return whether imaging-service now holds the copy; on failure the examination is retried later
+     */
+    public boolean archive(PendingArchive pending) {
+        try {
+            UUID pacsId = pending.seriesId() != null
+                    // one archive entry per study, streamed slice by slice
+                    ? imagingClient.archiveImage(pending.patientId(),
+                    () -> seriesArchiveStreamer.open(pending.sourceKey()),
+                    "series-" + pending.seriesId() + ".zip", pending.modality())
+                    : imagingClient.archiveImage(pending.patientId(), () -> s3Service.openImage(pending.sourceKey()),
+                    pending.modality());
+            transactionTemplate.executeWithoutResult(status -> {
+                jdbcTemplate.update(MARK_ARCHIVED, pacsId, pending.examinationId());
+                // the staging copy may only be deleted once imaging-service holds the archive copy
+                stagedObjects.archived(pending.stagedKey());
+            });
+            readCache.evict(pending.examinationId(), pending.patientId());
+            return true;
+        } catch (RuntimeException e) {
+            failedCounter.increment();
+            log.warn("Archive copy of examination {} failed, retrying in {}: {}",
+                    pending.examinationId(), retryInterval, e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * @return number of examinations archived
+     */
+    public int retryPending() {
+        int total = 0;
+        List<PendingArchive> claimed;
+        do {
+            claimed = claim();
+            for (PendingArchive pending : claimed) {
+                if (archive(pending)) {
+                    total++;
+                }
+            }
+        } while (claimed.size() == batchSize && running);
+
+        if (total > 0) {
+            log.info("Archived {} examinations on retry", total);
+        }
+        return total;
+    }
+
+    /**
+     * A single statement, so the row locks are held only while the claim is written.
+     */
+    private List<PendingArchive> claim() {
+        Instant now = Instant.now();
+        return jdbcTemplate.query(CLAIM,
+                (rs, rowNum) -> new PendingArchive(rs.getObject("id", UUID.class),
+                        rs.getObject("patient_id", UUID.class), rs.getString("modality"),
+                        rs.getString("archive_source_key"), rs.getObject("series_id", UUID.class)),
+                Timestamp.from(now.plus(retryInterval)), Timestamp.from(now), batchSize);
+    }
+
+    private void runRetry() {
+        try {
+            retryPending();
+        } catch (RuntimeException e) {
+            log.warn("Retrying archive copies failed: {}", e.getMessage());
+        }
+    }
+
+    @Override
+    public void start() {
+        executor = Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("archive-retry-"));
+        running = true;
+        executor.scheduleWithFixedDelay(this::runRetry, retryInterval.toMillis(), retryInterval.toMillis(),
+                TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+}
@@ -0,0 +1,48 @@
+package org.trilgar.medimage.ssl.patient.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.server.ResponseStatusException;
+import org.trilgar.medimage.ssl.patient.model.ExaminationPage;
+import org.trilgar.medimage.ssl.patient.model.ExaminationView;
+import org.trilgar.medimage.ssl.patient.repository.ExaminationRepository;
+import org.trilgar.medimage.ssl.patient.service.api.ExaminationQueryService;
+
+import java.util.UUID;
+
+@Service
+@RequiredArgsConstructor
+public class ExaminationQueryServiceImpl implements ExaminationQueryService {
+
+    static final int MAX_PAGE_SIZE = 100;
+
+    private final ExaminationRepository examinationRepository;
+    private final ExaminationReadCache readCache;
+
+    @Transactional(readOnly = true)
+    @Override
+    public ExaminationView getExamination(UUID examinationId) {
+        ExaminationView view = readCache.getExamination(examinationId,
+                id -> examinationRepository.findViewById(id).orElse(null));
+        if (view == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Examination not found: " + examinationId);
+        }
+        return view;
+    }
+
+    @Transactional(readOnly = true)
+    @Override
+    public ExaminationPage getPatientExaminations(UUID patientId, int page, int size) {
+        int pageSize = Math.min(Math.max(size, 1), MAX_PAGE_SIZE);
+        int pageNumber = Math.max(page, 0);
+        return readCache.getPatientPage(patientId, pageNumber, pageSize, key -> {
+            Page<ExaminationView> result = examinationRepository.findViewsByPatientId(
+                    key.patientId(), PageRequest.of(key.page(), key.size()));
+            return new ExaminationPage(result.getContent(), key.page(), key.size(), result.getTotalElements());
+        });
+    }
+}
@@ -0,0 +1,83 @@
+package org.trilgar.medimage.ssl.patient.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.trilgar.medimage.ssl.patient.model.ExaminationPage;
+import org.trilgar.medimage.ssl.patient.model.ExaminationView;
+
+import java.time.Duration;
+import java.util.UUID;
+import java.util.function.Function;
+
+/**
+ * Bounded in-process caches for the read API: single examinations by id (status polling) and pages of a
+ * patient's examinations. Writers call {@link #evict}; inside a transaction the entries are dropped after
+ * commit, so a read racing the write cannot put the old state back. The expiry bounds staleness when
+ * another instance made the change. Hit ratios are exported as {@code cache.gets{cache, result}}.
+ */
+@Slf4j
+@Component
+public class ExaminationReadCache {
+
+    private final Cache<UUID, ExaminationView> examinations;
+    private final Cache<PageKey, ExaminationPage> patientPages;
+
+    public ExaminationReadCache(@Value("${patient.cache.examinations.max-size:10000}") long examinationsMaxSize,
+                                @Value("${patient.cache.pages.max-size:2000}") long pagesMaxSize,
+                                @Value("${patient.cache.expire-after-write:60s}") Duration expireAfterWrite,
+                                MeterRegistry meterRegistry) {
+        this.examinations = Caffeine.newBuilder()
+                .maximumSize(examinationsMaxSize)
+                .expireAfterWrite(expireAfterWrite)
+                .recordStats()
+                .build();
+        this.patientPages = Caffeine.newBuilder()
+                .maximumSize(pagesMaxSize)
+                .expireAfterWrite(expireAfterWrite)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, examinations, "examinations");
+        CaffeineCacheMetrics.monitor(meterRegistry, patientPages, "patient-examination-pages");
+    }
+
+    public ExaminationView getExamination(UUID examinationId, Function<UUID, ExaminationView> loader) {
+        return examinations.get(examinationId, loader);
+    }
+
+    public ExaminationPage getPatientPage(UUID patientId, int page, int size, Function<PageKey, ExaminationPage> loader) {
+        return patientPages.get(new PageKey(patientId, page, size), loader);
+    }
+
+    public void evict(UUID examinationId, UUID patientId) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    evictNow(examinationId, patientId);
+                }
+            });
+        } else {
+            evictNow(examinationId, patientId);
+        }
+    }
+
+    private void evictNow(UUID examinationId, UUID patientId) {
+        if (examinationId != null) {
+            examinations.invalidate(examinationId);
+        }
+        if (patientId != null) {
+            patientPages.asMap().keySet().removeIf(key -> key.patientId().equals(patientId));
+        }
+        log.debug("Evicted cached reads for examination {} of patient {}", examinationId, patientId);
+    }
+
+    public record PageKey(UUID patientId, int page, int size) {
+    }
+}
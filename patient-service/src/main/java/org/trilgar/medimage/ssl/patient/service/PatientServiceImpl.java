@@ -12,12 +12,12 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
-import org.trilgar.medimage.ssl.patient.client.ImagingServiceClient;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.trilgar.medimage.ssl.patient.repository.ExaminationRepository;
 import org.trilgar.medimage.ssl.patient.repository.PatientRepository;
 import org.trilgar.medimage.ssl.patient.service.api.NotificationSender;
 import org.trilgar.medimage.ssl.patient.service.api.PatientService;
-import org.trilgar.medimage.ssl.s3.api.S3StorageService;
+import org.trilgar.medimage.ssl.staging.StagedObjectTracker;
 
 import java.time.LocalDateTime;
 
@@ -30,9 +30,11 @@ public class PatientServiceImpl implements PatientService {
     private final ExaminationRepository examinationRepository;
     private final RabbitTemplate rabbitTemplate;
 
-    private final S3StorageService s3Service;
-    private final ImagingServiceClient imagingClient;
     private final NotificationSender<RiskAssessmentResult> notificationSender;
+    private final ExaminationReadCache readCache;
+    private final ExaminationArchiver examinationArchiver;
+    private final StagedObjectTracker stagedObjects;
+    private final TransactionTemplate transactionTemplate;
 
     @Transactional
     @Override
@@ -50,6 +52,7 @@ public class PatientServiceImpl implements PatientService {
         exam.setCreatedAt(LocalDateTime.now());
 
         examinationRepository.save(exam);
+        readCache.evict(exam.getId(), patient.getId());
 
         PatientExaminationRequest request = new PatientExaminationRequest(
                 exam.getId(),
@@ -67,11 +70,27 @@ public class PatientServiceImpl implements PatientService {
         return exam;
     }
 
-    @Transactional
+    /**
+     * Records the result in one short transaction, then archives the image outside of it, so no database
+     * connection is held while the image streams to imaging-service. A failed archive is retried by
+     * {@link ExaminationArchiver}.
+     */
     @Override
     public void processAnalysisResult(RiskAssessmentResult result) {
         log.info("Processing analysis result for Request {}", result.getRequestId());
 
+        Examination exam = transactionTemplate.execute(status -> recordResult(result));
+        if (exam.getArchiveSourceKey() != null
+                && !examinationArchiver.archive(ExaminationArchiver.PendingArchive.of(exam, result.getPatientId()))) {
+            log.warn("Examination {} completed without archive copy for now", exam.getId());
+        } else {
+            log.info("Examination {} completed and archived.", exam.getId());
+        }
+
+        notificationSender.sendCompletionNotification(result);
+    }
+
+    private Examination recordResult(RiskAssessmentResult result) {
         Examination exam = examinationRepository.findById(result.getRequestId())
                 .orElseThrow(() -> new RuntimeException("Examination not found"));
 
@@ -81,20 +100,16 @@ public class PatientServiceImpl implements PatientService {
         exam.setCompletedAt(LocalDateTime.now());
         exam.setStatus("COMPLETED");
 
-        if (result.getS3ObjectKey() != null) {
-            byte[] imageData = s3Service.downloadImage(result.getS3ObjectKey());
-
-            UUID pacsId = imagingClient.archiveImage(
-                    result.getPatientId(),
-                    imageData,
-                    exam.getModality()
-            );
-            exam.setImagingStorageId(pacsId);
+        // a redelivered result must not archive the image a second time
+        if (result.getS3ObjectKey() != null && exam.getImagingStorageId() == null) {
+            exam.setArchiveSourceKey(result.getS3ObjectKey());
+            exam.setSeriesId(result.getSeriesId());
+            exam.setArchiveRetryAt(examinationArchiver.nextRetry());
+            stagedObjects.analyzed(ExaminationArchiver.PendingArchive.of(exam, result.getPatientId()).stagedKey());
         }
 
         examinationRepository.save(exam);
-        log.info("Examination {} completed and archived.", exam.getId());
-
-        notificationSender.sendCompletionNotification(result);
+        readCache.evict(exam.getId(), exam.getPatient().getId());
+        return exam;
     }
 }
@@ -6,6 +6,7 @@ import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.stereotype.Service;
 import org.trilgar.medimage.ssl.model.ResearchCompletedNotificationEvent;
 import org.trilgar.medimage.ssl.model.RiskAssessmentResult;
+import org.trilgar.medimage.ssl.patient.config.RabbitConfig;
 import org.trilgar.medimage.ssl.patient.service.api.NotificationSender;
 
 @Service
@@ -15,8 +16,6 @@ public class RiskAssessmentNotificationSender implements NotificationSender<Risk
 
     private final RabbitTemplate rabbitTemplate;
 
-    private static final String NOTIFICATION_QUEUE = "notification_queue";
-
     @Override
     public void sendCompletionNotification(RiskAssessmentResult result) {
         log.info("Sending notification for patient {}", result.getPatientId());
@@ -33,6 +32,6 @@ public class RiskAssessmentNotificationSender implements NotificationSender<Risk
                 result.getRiskScore()
         );
 
-        rabbitTemplate.convertAndSend(NOTIFICATION_QUEUE, event);
+        rabbitTemplate.convertAndSend(RabbitConfig.NOTIFICATION_EXCHANGE, "", event);
     }
 }
@@ -0,0 +1,134 @@
+package org.trilgar.medimage.ssl.patient.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.trilgar.medimage.ssl.model.SeriesManifest;
+import org.trilgar.medimage.ssl.s3.api.ImageStream;
+import org.trilgar.medimage.ssl.s3.api.S3StorageService;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.io.UncheckedIOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Packs a series into one ZIP (manifest plus slices) that is produced while it is read: a background thread
+ * copies one slice at a time from S3 into a pipe, so neither the series nor the archive is held in memory and
+ * the length is unknown up front. A failure on the writing side surfaces as an {@link IOException} on read
+ * instead of a silently truncated archive.
+ */
+@Slf4j
+@Component
+public class SeriesArchiveStreamer {
+    private static final int PIPE_BUFFER_SIZE = 64 * 1024;
+
+    private final S3StorageService s3Service;
+    private final ObjectMapper objectMapper;
+    private final ExecutorService executor = Executors.newCachedThreadPool(new CustomizableThreadFactory("series-zip-"));
+
+    public SeriesArchiveStreamer(S3StorageService s3Service, ObjectMapper objectMapper) {
+        this.s3Service = s3Service;
+        this.objectMapper = objectMapper;
+    }
+
+    public ImageStream open(String manifestKey) {
+        byte[] manifestJson;
+        try (ImageStream manifestStream = s3Service.openImage(manifestKey)) {
+            manifestJson = manifestStream.content().readAllBytes();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        SeriesManifest manifest = parse(manifestJson);
+
+        PipedInputStream pipe = new PipedInputStream(PIPE_BUFFER_SIZE);
+        PipedOutputStream sink;
+        try {
+            sink = new PipedOutputStream(pipe);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        AtomicReference<Exception> failure = new AtomicReference<>();
+        executor.execute(() -> write(manifest, manifestJson, sink, failure));
+        return new ImageStream(new FailurePropagatingStream(pipe, failure), -1);
+    }
+
+    private void write(SeriesManifest manifest, byte[] manifestJson, PipedOutputStream sink,
+                       AtomicReference<Exception> failure) {
+        ZipOutputStream zip = new ZipOutputStream(sink);
+        try {
+            zip.setLevel(Deflater.BEST_SPEED);
+            zip.putNextEntry(new ZipEntry("manifest.json"));
+            zip.write(manifestJson);
+            zip.closeEntry();
+            for (String sliceKey : manifest.getSliceKeys()) {
+                try (ImageStream slice = s3Service.openImage(sliceKey)) {
+                    zip.putNextEntry(new ZipEntry(sliceKey.substring(sliceKey.lastIndexOf('/') + 1)));
+                    slice.content().transferTo(zip);
+                    zip.closeEntry();
+                }
+            }
+            zip.finish();
+        } catch (Exception e) {
+            // set before the pipe is closed, so the reader sees it instead of a clean end of stream;
+            // the reader closing the pipe early ends up here as well
+            failure.set(e);
+            log.debug("Streaming series {} stopped: {}", manifest.getSeriesId(), e.getMessage());
+        } finally {
+            try {
+                zip.close();
+            } catch (IOException e) {
+                log.debug("Closing series archive pipe failed: {}", e.getMessage());
+            }
+        }
+    }
+
+    private SeriesManifest parse(byte[] json) {
+        try {
+            return objectMapper.readValue(json, SeriesManifest.class);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private static final class FailurePropagatingStream extends FilterInputStream {
+        private final AtomicReference<Exception> failure;
+
+        private FailurePropagatingStream(InputStream in, AtomicReference<Exception> failure) {
+            super(in);
+            this.failure = failure;
+        }
+
+        @Override
+        public int read() throws IOException {
+            return checked(super.read());
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            return checked(super.read(b, off, len));
+        }
+
+        private int checked(int result) throws IOException {
+            if (result < 0 && failure.get() != null) {
+                throw new IOException("Series archive is incomplete", failure.get());
+            }
+            return result;
+        }
+    }
+}
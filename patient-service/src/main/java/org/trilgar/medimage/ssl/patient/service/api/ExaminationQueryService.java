@@ -0,0 +1,11 @@
+package org.trilgar.medimage.ssl.patient.service.api;
+
+import org.trilgar.medimage.ssl.patient.model.ExaminationPage;
+import org.trilgar.medimage.ssl.patient.model.ExaminationView;
+
+import java.util.UUID;
+
+public interface ExaminationQueryService {
+    ExaminationView getExamination(UUID examinationId);
+    ExaminationPage getPatientExaminations(UUID patientId, int page, int size);
+}
@@ -0,0 +1,31 @@
+-- Matches the schema Hibernate created under ddl-auto: update, so existing databases baseline onto it.
+
+CREATE TABLE IF NOT EXISTS patients (
+    id            UUID NOT NULL PRIMARY KEY,
+    full_name     VARCHAR(255),
+    email         VARCHAR(255),
+    date_of_birth DATE
+);
+
+CREATE TABLE IF NOT EXISTS examinations (
+    id                 UUID NOT NULL PRIMARY KEY,
+    patient_id         UUID CONSTRAINT fk_examinations_patient REFERENCES patients (id),
+    modality           VARCHAR(255),
+    doctor_notes       VARCHAR(255),
+    risk_score         DOUBLE PRECISION,
+    diagnosis          VARCHAR(255),
+    is_critical        BOOLEAN,
+    imaging_storage_id UUID,
+    status             VARCHAR(255),
+    created_at         TIMESTAMP(6),
+    completed_at       TIMESTAMP(6)
+);
+
+-- shared with radiology-service, see JdbcProcessedMessageStore
+CREATE TABLE IF NOT EXISTS processed_messages (
+    consumer     VARCHAR(100) NOT NULL,
+    message_key  VARCHAR(200) NOT NULL,
+    processed_at TIMESTAMP    NOT NULL,
+    PRIMARY KEY (consumer, message_key)
+);
+CREATE INDEX IF NOT EXISTS idx_processed_messages_processed_at ON processed_messages (processed_at);
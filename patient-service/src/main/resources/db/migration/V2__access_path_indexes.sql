@@ -0,0 +1,2 @@
+-- examination history of a patient, newest first; also serves lookups by patient_id alone
+CREATE INDEX IF NOT EXISTS idx_examinations_patient_created ON examinations (patient_id, created_at);
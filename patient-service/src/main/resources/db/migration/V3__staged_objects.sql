@@ -0,0 +1,10 @@
+-- Lifecycle of the objects in the staging bucket, see StagedObjectTracker. Shared with radiology-service.
+-- A series is one row for its key prefix (is_prefix).
+CREATE TABLE IF NOT EXISTS staged_objects (
+    object_key  VARCHAR(512) NOT NULL PRIMARY KEY,
+    is_prefix   BOOLEAN      NOT NULL DEFAULT FALSE,
+    status      VARCHAR(16)  NOT NULL CHECK (status IN ('UPLOADED', 'ANALYZED', 'ARCHIVED')),
+    uploaded_at TIMESTAMP    NOT NULL,
+    updated_at  TIMESTAMP    NOT NULL
+);
+CREATE INDEX IF NOT EXISTS idx_staged_objects_status_updated ON staged_objects (status, updated_at);
@@ -0,0 +1,7 @@
+-- Set while imaging-service does not hold the archive copy of a completed examination yet; ExaminationArchiver
+-- retries the archive from here once archive_retry_at has passed, and clears the columns when it succeeds.
+ALTER TABLE examinations ADD COLUMN IF NOT EXISTS archive_source_key VARCHAR(512);
+ALTER TABLE examinations ADD COLUMN IF NOT EXISTS series_id UUID;
+ALTER TABLE examinations ADD COLUMN IF NOT EXISTS archive_retry_at TIMESTAMP(6);
+CREATE INDEX IF NOT EXISTS idx_examinations_pending_archive ON examinations (archive_retry_at)
+    WHERE archive_source_key IS NOT NULL;
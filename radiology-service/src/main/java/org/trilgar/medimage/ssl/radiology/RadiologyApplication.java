@@ -3,10 +3,15 @@ package org.trilgar.medimage.ssl.radiology;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.context.annotation.Import;
+import org.trilgar.medimage.ssl.messaging.config.CommonMessagingConfig;
+import org.trilgar.medimage.ssl.persistence.config.CommonDataAccessConfig;
 import org.trilgar.medimage.ssl.s3.config.CommonS3Config;
+import org.trilgar.medimage.ssl.staging.config.CommonStagingConfig;
+import org.trilgar.medimage.ssl.tracing.config.CommonTracingConfig;
 
 @SpringBootApplication
-@Import(CommonS3Config.class)
+@Import({CommonS3Config.class, CommonMessagingConfig.class, CommonDataAccessConfig.class, CommonTracingConfig.class,
+        CommonStagingConfig.class})
 public class RadiologyApplication {
     public static void main(String[] args) {
         SpringApplication.run(RadiologyApplication.class, args);
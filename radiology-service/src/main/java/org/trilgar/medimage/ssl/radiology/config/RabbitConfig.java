@@ -1,29 +1,36 @@
 package org.trilgar.medimage.ssl.radiology.config;
 
+import org.springframework.amqp.core.Declarables;
 import org.springframework.amqp.core.Queue;
-import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.trilgar.medimage.ssl.messaging.retry.RetryTopology;
 
 
 @Configuration
 public class RabbitConfig {
 
     public static final String ANALYSIS_QUEUE = "analysis_queue";
+    public static final String SERIES_ANALYSIS_QUEUE = "series_analysis_queue";
     public static final String EXAMINATION_REQUESTS_QUEUE = "examination_requests_queue";
 
     @Bean
     public Queue analysisQueue() {
-        return new Queue(ANALYSIS_QUEUE, true);
+        return RetryTopology.workQueue(ANALYSIS_QUEUE);
+    }
+
+    @Bean
+    public Queue seriesAnalysisQueue() {
+        return RetryTopology.workQueue(SERIES_ANALYSIS_QUEUE);
     }
 
     @Bean
     public Queue examinationRequestsQueue() {
-        return new Queue(EXAMINATION_REQUESTS_QUEUE, true);
+        return RetryTopology.workQueue(EXAMINATION_REQUESTS_QUEUE);
     }
 
     @Bean
-    public Jackson2JsonMessageConverter producerJackson2MessageConverter() {
-        return new Jackson2JsonMessageConverter();
+    public Declarables examinationRequestsRetryTopology(RetryTopology retryTopology) {
+        return retryTopology.declarablesFor(EXAMINATION_REQUESTS_QUEUE);
     }
 }
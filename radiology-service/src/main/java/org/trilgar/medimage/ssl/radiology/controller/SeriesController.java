@@ -0,0 +1,51 @@
+package org.trilgar.medimage.ssl.radiology.controller;
+
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.trilgar.medimage.ssl.model.SeriesManifest;
+import org.trilgar.medimage.ssl.radiology.entity.SeriesUpload;
+import org.trilgar.medimage.ssl.radiology.service.api.SeriesIngestionService;
+
+import java.io.IOException;
+import java.util.UUID;
+
+/**
+ * Slice-by-slice upload of multi-frame studies: open a series, {@code PUT} every slice as the raw request
+ * body, then complete it with the number of slices.
+ */
+@RestController
+@RequestMapping("/api/radiology/series")
+@RequiredArgsConstructor
+public class SeriesController {
+    private final SeriesIngestionService seriesService;
+
+    @PostMapping
+    public SeriesUpload openSeries(@RequestParam("patientId") UUID patientId,
+                                   @RequestParam("modality") String modality) {
+        return seriesService.openSeries(patientId, modality);
+    }
+
+    /**
+     * The body goes to S3 as it is read, so the length has to be known up front.
+     */
+    @PutMapping("/{id}/slices/{index}")
+    public ResponseEntity<String> uploadSlice(@PathVariable UUID id,
+                                              @PathVariable int index,
+                                              HttpServletRequest request) throws IOException {
+        long contentLength = request.getContentLengthLong();
+        if (contentLength < 0) {
+            return ResponseEntity.status(HttpStatus.LENGTH_REQUIRED).body("Content-Length is required");
+        }
+        seriesService.storeSlice(id, index, request.getInputStream(), contentLength);
+        return ResponseEntity.ok("Slice " + index + " stored");
+    }
+
+    @PostMapping("/{id}/complete")
+    public SeriesManifest completeSeries(@PathVariable UUID id,
+                                         @RequestParam("sliceCount") int sliceCount) {
+        return seriesService.completeSeries(id, sliceCount);
+    }
+}
@@ -33,6 +33,13 @@ public class ExaminationTask {
 
     private boolean isUrgent;
 
+    /**
+     * Set by {@code ExaminationTaskArchiver} once a finished task leaves the hot partition; never written
+     * through JPA, so saving a stale copy cannot move a task back.
+     */
+    @Column(insertable = false, updatable = false)
+    private boolean archived;
+
     public enum TaskStatus {
         PENDING,
         COMPLETED,
@@ -0,0 +1,40 @@
+package org.trilgar.medimage.ssl.radiology.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+@Entity
+@Table(name = "series_uploads")
+@Data
+@NoArgsConstructor
+public class SeriesUpload {
+    @Id
+    private UUID id;
+
+    private UUID taskId;
+    private UUID patientId;
+    private String modality;
+
+    @Enumerated(EnumType.STRING)
+    private SeriesStatus status;
+
+    /**
+     * Set once analysis was published for the series: by the first stored slice, or by the completion if that
+     * publish failed.
+     */
+    private boolean analysisRequested;
+
+    private Integer sliceCount;
+
+    private LocalDateTime createdAt;
+    private LocalDateTime completedAt;
+
+    public enum SeriesStatus {
+        UPLOADING,
+        COMPLETED
+    }
+}
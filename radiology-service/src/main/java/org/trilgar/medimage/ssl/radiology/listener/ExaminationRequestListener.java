@@ -4,6 +4,7 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.amqp.rabbit.annotation.RabbitListener;
 import org.springframework.stereotype.Service;
+import org.trilgar.medimage.ssl.messaging.dedup.MessageDeduplicator;
 import org.trilgar.medimage.ssl.model.PatientExaminationRequest;
 import org.trilgar.medimage.ssl.radiology.service.api.ExaminationTaskService;
 
@@ -11,12 +12,17 @@ import org.trilgar.medimage.ssl.radiology.service.api.ExaminationTaskService;
 @Slf4j
 @RequiredArgsConstructor
 public class ExaminationRequestListener {
+    private static final String LISTENER_ID = "examinationRequestListener";
+
     private final ExaminationTaskService examinationTaskService;
+    private final MessageDeduplicator deduplicator;
 
-    @RabbitListener(queues = "examination_requests_queue")
+    @RabbitListener(id = LISTENER_ID, queues = "examination_requests_queue")
     public void handleDoctorRequest(PatientExaminationRequest request) {
         log.info("Received examination request for patient: {}", request.getPatientId());
-        examinationTaskService.createTask(request);
-        log.info("Task created. Radiologist can now see it.");
+        deduplicator.process(LISTENER_ID, request.getRequestId(), () -> {
+            examinationTaskService.createTask(request);
+            log.info("Task created. Radiologist can now see it.");
+        });
     }
 }
@@ -8,7 +8,8 @@ import java.util.Optional;
 import java.util.UUID;
 
 public interface ExaminationTaskRepository extends JpaRepository<ExaminationTask, UUID> {
-    Optional<ExaminationTask> findFirstByPatientIdAndStatus(UUID patientId, ExaminationTask.TaskStatus status);
+    // archived = false restricts these to the hot partition; pending tasks are never archived
+    Optional<ExaminationTask> findFirstByPatientIdAndStatusAndArchivedFalse(UUID patientId, ExaminationTask.TaskStatus status);
 
-    List<ExaminationTask> findAllByStatusOrderByCreatedAtAsc(ExaminationTask.TaskStatus status);
+    List<ExaminationTask> findAllByStatusAndArchivedFalseOrderByCreatedAtAsc(ExaminationTask.TaskStatus status);
 }
@@ -0,0 +1,39 @@
+package org.trilgar.medimage.ssl.radiology.repository;
+
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+import org.trilgar.medimage.ssl.radiology.entity.SeriesUpload;
+
+import java.util.Optional;
+import java.util.UUID;
+
+public interface SeriesUploadRepository extends JpaRepository<SeriesUpload, UUID> {
+
+    /**
+     * Holds the row until the calling transaction ends, so concurrent completes of one series run one after another.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM SeriesUpload s WHERE s.id = :id")
+    Optional<SeriesUpload> findForUpdate(@Param("id") UUID id);
+
+    /**
+     * @return 1 for exactly one caller per series, however many slices arrive concurrently
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE SeriesUpload s SET s.analysisRequested = true WHERE s.id = :id AND s.analysisRequested = false")
+    int markAnalysisRequested(@Param("id") UUID id);
+
+    /**
+     * Lets a later slice or the completion request analysis again when publishing failed.
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE SeriesUpload s SET s.analysisRequested = false WHERE s.id = :id")
+    int clearAnalysisRequested(@Param("id") UUID id);
+}
@@ -0,0 +1,137 @@
+package org.trilgar.medimage.ssl.radiology.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Moves tasks that finished more than {@code retention} ago from the hot partition of {@code examination_tasks}
+ * into the monthly archive partitions, {@code batchSize} rows per transaction. The monthly partitions for the
+ * rows about to move are created first. {@code SKIP LOCKED} lets several replicas run this at the same time.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "radiology.archive.enabled", havingValue = "true", matchIfMissing = true)
+public class ExaminationTaskArchiver implements SmartLifecycle {
+
+    private static final String FINISHED = """
+            NOT archived AND status IN ('COMPLETED', 'CANCELLED') AND completed_at < ?""";
+
+    private static final String CANDIDATE_RANGE =
+            "SELECT min(created_at) AS first, max(created_at) AS last FROM examination_tasks WHERE " + FINISHED;
+
+    private static final String MOVE_BATCH = """
+            UPDATE examination_tasks SET archived = TRUE
+            WHERE NOT archived AND id IN (
+                SELECT id FROM examination_tasks WHERE %s
+                ORDER BY completed_at LIMIT ? FOR UPDATE SKIP LOCKED)""".formatted(FINISHED);
+
+    private static final String CREATE_PARTITION = """
+            CREATE TABLE IF NOT EXISTS examination_tasks_archive_%d_%02d PARTITION OF examination_tasks_archive
+            FOR VALUES FROM ('%s') TO ('%s')""";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Duration interval;
+    private final Duration retention;
+    private final int batchSize;
+    private final Counter archivedCounter;
+    private ScheduledExecutorService executor;
+    private volatile boolean running;
+
+    public ExaminationTaskArchiver(JdbcTemplate jdbcTemplate,
+                                   MeterRegistry meterRegistry,
+                                   @Value("${radiology.archive.interval:1h}") Duration interval,
+                                   @Value("${radiology.archive.retention:1d}") Duration retention,
+                                   @Value("${radiology.archive.batch-size:1000}") int batchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.interval = interval;
+        this.retention = retention;
+        this.batchSize = batchSize;
+        this.archivedCounter = Counter.builder("radiology.tasks.archived")
+                .description("Finished examination tasks moved to the archive partitions")
+                .register(meterRegistry);
+    }
+
+    /**
+     * @return number of tasks moved
+     */
+    public int archive() {
+        Timestamp cutoff = Timestamp.valueOf(LocalDateTime.now().minus(retention));
+        Map<String, Object> range = jdbcTemplate.queryForMap(CANDIDATE_RANGE, cutoff);
+        if (range.get("first") == null) {
+            return 0;
+        }
+        YearMonth last = YearMonth.from(((Timestamp) range.get("last")).toLocalDateTime());
+        for (YearMonth month = YearMonth.from(((Timestamp) range.get("first")).toLocalDateTime());
+             !month.isAfter(last); month = month.plusMonths(1)) {
+            createPartition(month);
+        }
+
+        int total = 0;
+        int moved;
+        do {
+            moved = jdbcTemplate.update(MOVE_BATCH, cutoff, batchSize);
+            total += moved;
+            archivedCounter.increment(moved);
+        } while (moved == batchSize && running);
+
+        if (total > 0) {
+            log.info("Archived {} examination tasks finished before {}", total, cutoff);
+        }
+        return total;
+    }
+
+    private void createPartition(YearMonth month) {
+        try {
+            jdbcTemplate.execute(CREATE_PARTITION.formatted(month.getYear(), month.getMonthValue(),
+                    month.atDay(1), month.plusMonths(1).atDay(1)));
+        } catch (DataAccessException e) {
+            // e.g. the default partition already holds rows of that month; they still land in the default one
+            log.warn("Could not create archive partition for {}: {}", month, e.getMessage());
+        }
+    }
+
+    private void runArchive() {
+        try {
+            archive();
+        } catch (RuntimeException e) {
+            log.warn("Examination task archiving failed: {}", e.getMessage());
+        }
+    }
+
+    @Override
+    public void start() {
+        executor = Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("task-archiver-"));
+        running = true;
+        executor.scheduleWithFixedDelay(this::runArchive, 0, interval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+}
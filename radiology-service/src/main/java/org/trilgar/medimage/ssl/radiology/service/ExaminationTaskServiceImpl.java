@@ -21,7 +21,7 @@ public class ExaminationTaskServiceImpl implements ExaminationTaskService {
 
     @Override
     public List<ExaminationTask> getPendingTasks() {
-        return repository.findAllByStatusOrderByCreatedAtAsc(ExaminationTask.TaskStatus.PENDING);
+        return repository.findAllByStatusAndArchivedFalseOrderByCreatedAtAsc(ExaminationTask.TaskStatus.PENDING);
     }
 
     @Override
@@ -51,13 +51,30 @@ public class ExaminationTaskServiceImpl implements ExaminationTaskService {
     }
 
     @Override
-    @Transactional
-    public ExaminationTask completeTask(UUID patientId, String resultS3Key) {
-        ExaminationTask task = repository.findFirstByPatientIdAndStatus(
+    public ExaminationTask getPendingTask(UUID patientId) {
+        return repository.findFirstByPatientIdAndStatusAndArchivedFalse(
                 patientId,
                 ExaminationTask.TaskStatus.PENDING
         ).orElseThrow(() -> new RuntimeException("No pending task found for patient " + patientId));
+    }
+
+    @Override
+    @Transactional
+    public ExaminationTask completeTask(UUID patientId, String resultS3Key) {
+        return complete(getPendingTask(patientId), resultS3Key);
+    }
+
+    @Override
+    @Transactional
+    public ExaminationTask completeTaskById(UUID taskId, String resultS3Key) {
+        ExaminationTask task = getTaskById(taskId);
+        if (task.getStatus() != ExaminationTask.TaskStatus.PENDING) {
+            throw new RuntimeException("Task " + taskId + " is " + task.getStatus());
+        }
+        return complete(task, resultS3Key);
+    }
 
+    private ExaminationTask complete(ExaminationTask task, String resultS3Key) {
         task.setStatus(ExaminationTask.TaskStatus.COMPLETED);
         task.setS3KeyResult(resultS3Key);
         task.setCompletedAt(LocalDateTime.now());
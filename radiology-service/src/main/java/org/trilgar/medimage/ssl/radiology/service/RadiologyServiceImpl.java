@@ -10,6 +10,8 @@ import org.trilgar.medimage.ssl.radiology.entity.ExaminationTask;
 import org.trilgar.medimage.ssl.radiology.service.api.ExaminationTaskService;
 import org.trilgar.medimage.ssl.radiology.service.api.RadiologyService;
 import org.trilgar.medimage.ssl.s3.api.S3StorageService;
+import org.trilgar.medimage.ssl.staging.StagedObjectTracker;
+import org.trilgar.medimage.ssl.staging.StagingKeys;
 
 import java.util.UUID;
 
@@ -20,10 +22,14 @@ public class RadiologyServiceImpl implements RadiologyService {
     private final S3StorageService storageService;
     private final RabbitTemplate rabbitTemplate;
     private final ExaminationTaskService taskService;
+    private final StagedObjectTracker stagedObjects;
 
     @Override
     public void processScan(UUID patientId, byte[] fileData, String modality) {
-        String s3Key = storageService.upload(fileData, "png");
+        // tracked before it exists, so an upload that fails halfway is still reaped as an orphan
+        String s3Key = StagingKeys.imageKey(StagingKeys.today(), "png");
+        stagedObjects.uploaded(s3Key);
+        storageService.upload(s3Key, fileData, "image/png");
 
         ExaminationTask completedTask = taskService.completeTask(patientId, s3Key);
 
@@ -35,7 +41,8 @@ public class RadiologyServiceImpl implements RadiologyService {
                 completedTask.getId(),
                 patientId,
                 s3Key,
-                modality
+                modality,
+                null
         );
 
         rabbitTemplate.convertAndSend(RabbitConfig.ANALYSIS_QUEUE, request);
@@ -0,0 +1,188 @@
+package org.trilgar.medimage.ssl.radiology.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.server.ResponseStatusException;
+import org.trilgar.medimage.ssl.model.ImageAnalysisRequest;
+import org.trilgar.medimage.ssl.model.SeriesManifest;
+import org.trilgar.medimage.ssl.radiology.config.RabbitConfig;
+import org.trilgar.medimage.ssl.radiology.entity.ExaminationTask;
+import org.trilgar.medimage.ssl.radiology.entity.SeriesUpload;
+import org.trilgar.medimage.ssl.radiology.repository.SeriesUploadRepository;
+import org.trilgar.medimage.ssl.radiology.service.api.ExaminationTaskService;
+import org.trilgar.medimage.ssl.radiology.service.api.SeriesIngestionService;
+import org.trilgar.medimage.ssl.s3.api.S3StorageService;
+import org.trilgar.medimage.ssl.staging.StagedObjectTracker;
+import org.trilgar.medimage.ssl.staging.StagingKeys;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+/**
+ * Streams slices straight from the request into S3. Analysis is requested on {@code series_analysis_queue} as soon
+ * as the first slice is stored, so the model runs while the rest is still uploading; the analytical service gives
+ * that queue its own consumers, so a slow upload never holds up single images. Completing the series writes the
+ * {@link SeriesManifest} and completes the examination task with the manifest key in place of a single image.
+ * All objects of a series live under one prefix, tracked as a single staged object from the moment the series
+ * is opened.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class SeriesIngestionServiceImpl implements SeriesIngestionService {
+    private static final String SLICE_CONTENT_TYPE = "application/octet-stream";
+
+    private final S3StorageService storageService;
+    private final RabbitTemplate rabbitTemplate;
+    private final ExaminationTaskService taskService;
+    private final SeriesUploadRepository repository;
+    private final ObjectMapper objectMapper;
+    private final StagedObjectTracker stagedObjects;
+
+    @Override
+    @Transactional
+    public SeriesUpload openSeries(UUID patientId, String modality) {
+        ExaminationTask task = taskService.getPendingTask(patientId);
+        if (!task.getExpectedModality().equals(modality)) {
+            log.warn("Modality mismatch: Expected {}, Got {}", task.getExpectedModality(), modality);
+        }
+
+        SeriesUpload series = new SeriesUpload();
+        series.setId(UUID.randomUUID());
+        series.setTaskId(task.getId());
+        series.setPatientId(patientId);
+        series.setModality(modality);
+        series.setStatus(SeriesUpload.SeriesStatus.UPLOADING);
+        series.setCreatedAt(LocalDateTime.now());
+
+        stagedObjects.uploadedPrefix(prefix(series));
+        log.info("Series {} opened for task {}", series.getId(), task.getId());
+        return repository.save(series);
+    }
+
+    @Override
+    public void storeSlice(UUID seriesId, int index, InputStream content, long contentLength) {
+        if (index < 0) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Slice index must not be negative");
+        }
+        SeriesUpload series = getUploading(repository.findById(seriesId), seriesId);
+        storageService.upload(SeriesManifest.sliceKey(prefix(series), index), content, contentLength,
+                SLICE_CONTENT_TYPE);
+
+        if (repository.markAnalysisRequested(seriesId) == 1) {
+            try {
+                rabbitTemplate.convertAndSend(RabbitConfig.SERIES_ANALYSIS_QUEUE, analysisRequest(series));
+            } catch (RuntimeException e) {
+                repository.clearAnalysisRequested(seriesId);
+                throw e;
+            }
+            log.info("Analysis requested for series {} after slice {}", seriesId, index);
+        }
+    }
+
+    @Override
+    @Transactional
+    public SeriesManifest completeSeries(UUID seriesId, int sliceCount) {
+        if (sliceCount <= 0) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "A series needs at least one slice");
+        }
+        SeriesUpload series = getUploading(repository.findForUpdate(seriesId), seriesId);
+        String prefix = prefix(series);
+        List<String> sliceKeys = IntStream.range(0, sliceCount).mapToObj(i -> SeriesManifest.sliceKey(prefix, i)).toList();
+        requireStored(seriesId, prefix, sliceKeys);
+
+        LocalDateTime now = LocalDateTime.now();
+        SeriesManifest manifest = new SeriesManifest(
+                seriesId,
+                series.getPatientId(),
+                series.getModality(),
+                sliceCount,
+                sliceKeys,
+                now
+        );
+        String manifestKey = SeriesManifest.manifestKey(prefix);
+        byte[] json = toJson(manifest);
+        storageService.upload(manifestKey, new ByteArrayInputStream(json), json.length, "application/json");
+
+        taskService.completeTaskById(series.getTaskId(), manifestKey);
+        series.setStatus(SeriesUpload.SeriesStatus.COMPLETED);
+        series.setSliceCount(sliceCount);
+        series.setCompletedAt(now);
+        if (!series.isAnalysisRequested()) {
+            series.setAnalysisRequested(true);
+            ImageAnalysisRequest request = analysisRequest(series);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    rabbitTemplate.convertAndSend(RabbitConfig.SERIES_ANALYSIS_QUEUE, request);
+                }
+            });
+        }
+        repository.save(series);
+
+        log.info("Series {} completed with {} slices", seriesId, sliceCount);
+        return manifest;
+    }
+
+    /**
+     * The manifest promises every listed slice to readers, so a gap is refused before it is written.
+     */
+    private void requireStored(UUID seriesId, String prefix, List<String> sliceKeys) {
+        Set<String> stored = new HashSet<>(storageService.listKeys(prefix));
+        List<Integer> missing = IntStream.range(0, sliceKeys.size())
+                .filter(i -> !stored.contains(sliceKeys.get(i)))
+                .boxed()
+                .toList();
+        if (!missing.isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "Series " + seriesId + " is missing "
+                    + missing.size() + " slices, first " + missing.subList(0, Math.min(10, missing.size())));
+        }
+    }
+
+    private static ImageAnalysisRequest analysisRequest(SeriesUpload series) {
+        return new ImageAnalysisRequest(
+                series.getTaskId(),
+                series.getPatientId(),
+                SeriesManifest.manifestKey(prefix(series)),
+                series.getModality(),
+                series.getId()
+        );
+    }
+
+    private static SeriesUpload getUploading(Optional<SeriesUpload> found, UUID seriesId) {
+        SeriesUpload series = found
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Series not found: " + seriesId));
+        if (series.getStatus() != SeriesUpload.SeriesStatus.UPLOADING) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "Series " + seriesId + " is " + series.getStatus());
+        }
+        return series;
+    }
+
+    private static String prefix(SeriesUpload series) {
+        return StagingKeys.seriesPrefix(series.getCreatedAt().toLocalDate(), series.getId());
+    }
+
+    private byte[] toJson(SeriesManifest manifest) {
+        try {
+            return objectMapper.writeValueAsBytes(manifest);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -9,7 +9,9 @@ import java.util.UUID;
 public interface ExaminationTaskService {
     List<ExaminationTask> getPendingTasks();
     ExaminationTask getTaskById(UUID id);
+    ExaminationTask getPendingTask(UUID patientId);
     ExaminationTask createTask(PatientExaminationRequest request);
     ExaminationTask completeTask(UUID patientId, String resultS3Key);
+    ExaminationTask completeTaskById(UUID taskId, String resultS3Key);
     void cancelTask(UUID taskId);
 }
@@ -0,0 +1,13 @@
+package org.trilgar.medimage.ssl.radiology.service.api;
+
+import org.trilgar.medimage.ssl.model.SeriesManifest;
+import org.trilgar.medimage.ssl.radiology.entity.SeriesUpload;
+
+import java.io.InputStream;
+import java.util.UUID;
+
+public interface SeriesIngestionService {
+    SeriesUpload openSeries(UUID patientId, String modality);
+    void storeSlice(UUID seriesId, int index, InputStream content, long contentLength);
+    SeriesManifest completeSeries(UUID seriesId, int sliceCount);
+}
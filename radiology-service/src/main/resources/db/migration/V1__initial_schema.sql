@@ -0,0 +1,24 @@
+-- Matches the schema Hibernate created under ddl-auto: update, so existing databases baseline onto it.
+
+CREATE TABLE IF NOT EXISTS examination_tasks (
+    id                UUID         NOT NULL PRIMARY KEY,
+    patient_id        UUID,
+    expected_modality VARCHAR(255),
+    patient_full_name VARCHAR(255),
+    status            VARCHAR(255) CHECK (status IN ('PENDING', 'COMPLETED', 'CANCELLED')),
+    s3key_result      VARCHAR(255),
+    doctor_notes      VARCHAR(255),
+    is_urgent         BOOLEAN      NOT NULL,
+    created_at        TIMESTAMP(6),
+    completed_at      TIMESTAMP(6),
+    requested_at      TIMESTAMP(6)
+);
+
+-- shared with patient-service, see JdbcProcessedMessageStore
+CREATE TABLE IF NOT EXISTS processed_messages (
+    consumer     VARCHAR(100) NOT NULL,
+    message_key  VARCHAR(200) NOT NULL,
+    processed_at TIMESTAMP    NOT NULL,
+    PRIMARY KEY (consumer, message_key)
+);
+CREATE INDEX IF NOT EXISTS idx_processed_messages_processed_at ON processed_messages (processed_at);
@@ -0,0 +1,6 @@
+-- GET /api/radiology/tasks: pending tasks by age
+CREATE INDEX IF NOT EXISTS idx_examination_tasks_status_urgent_created
+    ON examination_tasks (status, is_urgent, created_at);
+
+-- completeTask: the pending task of a patient
+CREATE INDEX IF NOT EXISTS idx_examination_tasks_patient_status ON examination_tasks (patient_id, status);
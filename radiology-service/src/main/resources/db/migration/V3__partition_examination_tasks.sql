@@ -0,0 +1,42 @@
+-- Splits examination_tasks into a small hot partition (PENDING and recently finished tasks) and an archive
+-- partitioned by month of created_at. ExaminationTaskArchiver moves finished tasks by setting archived,
+-- which Postgres turns into a move between partitions. Queries on examination_tasks still see every row.
+
+CREATE TABLE examination_tasks_partitioned (
+    id                UUID         NOT NULL,
+    patient_id        UUID,
+    expected_modality VARCHAR(255),
+    patient_full_name VARCHAR(255),
+    status            VARCHAR(255) CHECK (status IN ('PENDING', 'COMPLETED', 'CANCELLED')),
+    s3key_result      VARCHAR(255),
+    doctor_notes      VARCHAR(255),
+    is_urgent         BOOLEAN      NOT NULL,
+    created_at        TIMESTAMP(6) NOT NULL,
+    completed_at      TIMESTAMP(6),
+    requested_at      TIMESTAMP(6),
+    archived          BOOLEAN      NOT NULL DEFAULT FALSE
+) PARTITION BY LIST (archived);
+
+CREATE TABLE examination_tasks_hot PARTITION OF examination_tasks_partitioned FOR VALUES IN (FALSE);
+
+CREATE TABLE examination_tasks_archive PARTITION OF examination_tasks_partitioned FOR VALUES IN (TRUE)
+    PARTITION BY RANGE (created_at);
+
+-- only used if a monthly partition is missing; the archiver creates them before moving rows
+CREATE TABLE examination_tasks_archive_default PARTITION OF examination_tasks_archive DEFAULT;
+
+-- every existing row starts hot; the archiver moves the finished ones on its first runs
+INSERT INTO examination_tasks_partitioned (id, patient_id, expected_modality, patient_full_name, status, s3key_result,
+                                           doctor_notes, is_urgent, created_at, completed_at, requested_at)
+SELECT id, patient_id, expected_modality, patient_full_name, status, s3key_result,
+       doctor_notes, is_urgent, COALESCE(created_at, requested_at, completed_at, now()), completed_at, requested_at
+FROM examination_tasks;
+
+DROP TABLE examination_tasks;
+ALTER TABLE examination_tasks_partitioned RENAME TO examination_tasks;
+
+-- a key on a partitioned table must contain the partition keys; id alone stays unique in practice
+ALTER TABLE examination_tasks ADD CONSTRAINT examination_tasks_pkey PRIMARY KEY (id, archived, created_at);
+
+CREATE INDEX idx_examination_tasks_status_urgent_created ON examination_tasks (status, is_urgent, created_at);
+CREATE INDEX idx_examination_tasks_patient_status ON examination_tasks (patient_id, status);
@@ -0,0 +1,16 @@
+-- Multi-slice studies uploaded slice by slice; the slices and the manifest live in S3 under series/<id>/.
+-- task_id has no foreign key: examination_tasks is partitioned and its primary key includes archived/created_at.
+
+CREATE TABLE series_uploads (
+    id                 UUID         NOT NULL PRIMARY KEY,
+    task_id            UUID         NOT NULL,
+    patient_id         UUID         NOT NULL,
+    modality           VARCHAR(255),
+    status             VARCHAR(255) NOT NULL CHECK (status IN ('UPLOADING', 'COMPLETED')),
+    analysis_requested BOOLEAN      NOT NULL DEFAULT FALSE,
+    slice_count        INTEGER,
+    created_at         TIMESTAMP(6) NOT NULL,
+    completed_at       TIMESTAMP(6)
+);
+
+CREATE INDEX idx_series_uploads_task ON series_uploads (task_id);
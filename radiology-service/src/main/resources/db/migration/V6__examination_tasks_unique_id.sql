@@ -0,0 +1,4 @@
+-- The primary key of examination_tasks is (id, archived, created_at), which on its own allows two tasks with the
+-- same id. Every task is inserted into the hot partition and only reaches the archive by being moved there, so a
+-- unique id on the hot partition is what keeps ids unique.
+ALTER TABLE examination_tasks_hot ADD CONSTRAINT examination_tasks_hot_id_key UNIQUE (id);
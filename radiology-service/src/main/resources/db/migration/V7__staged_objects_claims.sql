@@ -0,0 +1,3 @@
+-- Set by StagedObjectReaper while it deletes a row's objects outside any transaction; other replicas skip the
+-- row until it has passed. Shared table, so every service that creates it adds the column.
+ALTER TABLE staged_objects ADD COLUMN IF NOT EXISTS claimed_until TIMESTAMP;